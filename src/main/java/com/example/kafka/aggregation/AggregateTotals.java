@@ -0,0 +1,19 @@
+package com.example.kafka.aggregation;
+
+/**
+ * Order count, quantity and total amount (minor units of the base currency) of a set of orders.
+ */
+public record AggregateTotals(long count, long quantity, long totalMinor) {
+
+    public static final AggregateTotals ZERO = new AggregateTotals(0, 0, 0);
+
+    public AggregateTotals plus(AggregateTotals other) {
+        return new AggregateTotals(Math.addExact(count, other.count), Math.addExact(quantity, other.quantity),
+                Math.addExact(totalMinor, other.totalMinor));
+    }
+
+    public AggregateTotals minus(AggregateTotals other) {
+        return new AggregateTotals(Math.subtractExact(count, other.count),
+                Math.subtractExact(quantity, other.quantity), Math.subtractExact(totalMinor, other.totalMinor));
+    }
+}
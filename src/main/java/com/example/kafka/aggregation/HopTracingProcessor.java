@@ -0,0 +1,67 @@
+package com.example.kafka.aggregation;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Continues the trace carried in a record's headers through one Streams hop. The span covers everything the
+ * task does with the record up to the next repartition or sink, and its context replaces the one in the
+ * headers, so the next hop (or a consumer of the output topic) becomes its child.
+ * Unsampled traces only pass the context along.
+ */
+public class HopTracingProcessor<K, V> implements FixedKeyProcessor<K, V, V> {
+
+    private static final Propagator.Getter<Headers> GETTER = (headers, key) -> {
+        Header header = headers.lastHeader(key);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    };
+    private static final Propagator.Setter<Headers> SETTER = (headers, key, value) -> {
+        headers.remove(key);
+        headers.add(key, value.getBytes(StandardCharsets.UTF_8));
+    };
+
+    private final Tracer tracer;
+    private final Propagator propagator;
+    private final String spanName;
+
+    private FixedKeyProcessorContext<K, V> context;
+
+    public HopTracingProcessor(Tracer tracer, Propagator propagator, String spanName) {
+        this.tracer = tracer;
+        this.propagator = propagator;
+        this.spanName = spanName;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<K, V> context) {
+        this.context = context;
+    }
+
+    @Override
+    public void process(FixedKeyRecord<K, V> record) {
+        Span span = propagator.extract(record.headers(), GETTER)
+                .name(spanName)
+                .kind(Span.Kind.CONSUMER)
+                .tag("streams.task", context.taskId().toString())
+                .start();
+        Tracer.SpanInScope inScope = tracer.withSpan(span);
+        try {
+            propagator.inject(span.context(), record.headers(), SETTER);
+            context.forward(record);
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            inScope.close();
+            span.end();
+        }
+    }
+}
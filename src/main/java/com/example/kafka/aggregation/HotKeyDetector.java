@@ -0,0 +1,101 @@
+package com.example.kafka.aggregation;
+
+/**
+ * Finds the products that make up a large share of recent orders, using a count-min sketch of fixed size.
+ * Every decay interval all counters are halved, so the estimate follows recent traffic and a flash sale
+ * cools off again. Orders for a hot product are spread over salt buckets chosen by orderId, so they land
+ * on different partitions of the by-product repartition topic. Not thread-safe; one instance per task.
+ */
+public class HotKeyDetector {
+
+    public static final char SALT_SEPARATOR = '\u001f';
+
+    private static final int WIDTH = 1024;
+    private static final int DEPTH = 4;
+
+    private final long[][] counts = new long[DEPTH][WIDTH];
+    private final double hotShare;
+    private final long minCount;
+    private final long decayEvery;
+    private final int saltBuckets;
+    private long total;
+    private long sinceDecay;
+
+    /**
+     * @param hotShare    share of recent orders above which a product is hot, e.g. 0.3; keep it well above
+     *                    1 / number of products, or every product counts as hot; above 1 disables salting
+     * @param minCount    smallest estimated recent count for a hot product, so a quiet stream never salts
+     * @param decayEvery  number of orders between two halvings of the counters
+     * @param saltBuckets number of keys a hot product is spread over
+     */
+    public HotKeyDetector(double hotShare, long minCount, long decayEvery, int saltBuckets) {
+        if (saltBuckets < 2) {
+            throw new IllegalArgumentException("Hot keys need at least 2 salt buckets, got " + saltBuckets);
+        }
+        this.hotShare = hotShare;
+        this.minCount = minCount;
+        this.decayEvery = decayEvery;
+        this.saltBuckets = saltBuckets;
+    }
+
+    /**
+     * Counts one order for the product.
+     * @return the salt bucket for the order if the product is hot, otherwise -1
+     */
+    public int observe(String product, CharSequence orderId) {
+        long hash = KeyHashing.hash64(product);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int column = column(hash, row);
+            estimate = Math.min(estimate, ++counts[row][column]);
+        }
+        total++;
+        if (++sinceDecay >= decayEvery) {
+            decay();
+        }
+        if (estimate < minCount || estimate < hotShare * total) {
+            return -1;
+        }
+        return (int) Math.floorMod(KeyHashing.hash64(orderId), (long) saltBuckets);
+    }
+
+    // Estimated recent count; never below the true decayed count, above it by at most ~e/WIDTH of the total
+    public long estimate(String product) {
+        long hash = KeyHashing.hash64(product);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counts[row][column(hash, row)]);
+        }
+        return estimate;
+    }
+
+    public static String saltedKey(String product, int bucket) {
+        return product + SALT_SEPARATOR + bucket;
+    }
+
+    public static boolean isSalted(String key) {
+        return key.indexOf(SALT_SEPARATOR) >= 0;
+    }
+
+    public static String unsalted(String key) {
+        int separator = key.indexOf(SALT_SEPARATOR);
+        return separator < 0 ? key : key.substring(0, separator);
+    }
+
+    private void decay() {
+        for (long[] row : counts) {
+            for (int i = 0; i < WIDTH; i++) {
+                row[i] >>>= 1;
+            }
+        }
+        total >>>= 1;
+        sinceDecay = 0;
+    }
+
+    // Row hashes derived from one 64-bit hash (Kirsch-Mitzenmacher)
+    private static int column(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return (h1 + row * h2) & (WIDTH - 1);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.kafka.aggregation;
+
+import com.example.kafka.avro.Order;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Re-keys orders by product ahead of the by-product repartition. Products the detector finds hot get a
+ * salted key instead, so their orders spread over several aggregate tasks rather than piling onto one.
+ */
+@Slf4j
+public class HotKeySaltingProcessor implements Processor<String, Order, String, Order> {
+
+    private final HotKeyDetector detector;
+    private final Counter saltedOrders;
+    private final Set<String> hotProducts = new HashSet<>();
+
+    private ProcessorContext<String, Order> context;
+
+    public HotKeySaltingProcessor(HotKeyDetector detector, Counter saltedOrders) {
+        this.detector = detector;
+        this.saltedOrders = saltedOrders;
+    }
+
+    @Override
+    public void init(ProcessorContext<String, Order> context) {
+        this.context = context;
+    }
+
+    @Override
+    public void process(Record<String, Order> record) {
+        String product = record.value().getProduct().toString();
+        int bucket = detector.observe(product, record.value().getOrderId());
+        if (bucket < 0) {
+            if (hotProducts.remove(product)) {
+                log.info("Product no longer hot, aggregating unsalted: {} (task {})", product, context.taskId());
+            }
+            context.forward(record.withKey(product));
+            return;
+        }
+        if (hotProducts.add(product)) {
+            log.info("Hot product detected, salting its orders: {} (task {}, estimate {})",
+                    product, context.taskId(), detector.estimate(product));
+        }
+        saltedOrders.increment();
+        context.forward(record.withKey(HotKeyDetector.saltedKey(product, bucket)));
+    }
+}
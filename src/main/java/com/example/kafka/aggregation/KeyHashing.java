@@ -0,0 +1,26 @@
+package com.example.kafka.aggregation;
+
+/**
+ * 64-bit hash of order ids and product names, shared by the sketches, hot-key detection and
+ * deduplication: FNV-1a over the chars, finished with the MurmurHash3 mixer so both 32-bit halves
+ * are usable as independent hashes.
+ */
+public final class KeyHashing {
+
+    private KeyHashing() {
+    }
+
+    public static long hash64(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.kafka.aggregation;
+
+import com.example.kafka.avro.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+
+/**
+ * Forwards an order only if its orderId has not been seen within the TTL.
+ * Seen ids live in a segmented window store, so expired ids are dropped a whole segment at a time.
+ * Expects the stream to be keyed by orderId so that every copy of an order lands on the same task.
+ */
+@Slf4j
+public class OrderDeduplicationProcessor implements FixedKeyProcessor<String, Order, Order> {
+
+    private final String storeName;
+    private final long ttlMs;
+
+    private FixedKeyProcessorContext<String, Order> context;
+    private WindowStore<String, Long> seenOrders;
+
+    public OrderDeduplicationProcessor(String storeName, long ttlMs) {
+        this.storeName = storeName;
+        this.ttlMs = ttlMs;
+    }
+
+    @Override
+    public void init(FixedKeyProcessorContext<String, Order> context) {
+        this.context = context;
+        this.seenOrders = context.getStateStore(storeName);
+    }
+
+    @Override
+    public void process(FixedKeyRecord<String, Order> record) {
+        String orderId = record.value().getOrderId().toString();
+        long timestamp = record.timestamp();
+
+        try (WindowStoreIterator<Long> seen = seenOrders.fetch(orderId, timestamp - ttlMs, timestamp + ttlMs)) {
+            if (seen.hasNext()) {
+                log.info("Duplicate order dropped from aggregation: OrderId={}", orderId);
+                return;
+            }
+        }
+        seenOrders.put(orderId, timestamp, timestamp);
+        context.forward(record);
+    }
+}
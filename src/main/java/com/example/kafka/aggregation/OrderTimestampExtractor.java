@@ -0,0 +1,25 @@
+package com.example.kafka.aggregation;
+
+import com.example.kafka.avro.Order;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.streams.processor.TimestampExtractor;
+
+/**
+ * Uses the order's own orderTimestamp as event time, so a retried or redriven order still lands
+ * in the window it was placed in. Orders from producers that predate the field fall back to the
+ * record timestamp, and records without any valid timestamp take the partition's stream time.
+ */
+public class OrderTimestampExtractor implements TimestampExtractor {
+
+    @Override
+    public long extract(ConsumerRecord<Object, Object> record, long partitionTime) {
+        if (record.value() instanceof Order order && order.getOrderTimestamp() != null
+                && order.getOrderTimestamp() >= 0) {
+            return order.getOrderTimestamp();
+        }
+        if (record.timestamp() >= 0) {
+            return record.timestamp();
+        }
+        return Math.max(partitionTime, 0);
+    }
+}
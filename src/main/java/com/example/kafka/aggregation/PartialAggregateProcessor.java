@@ -0,0 +1,71 @@
+package com.example.kafka.aggregation;
+
+import com.example.kafka.avro.Order;
+import com.example.kafka.currency.OrderAmounts;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * First stage of the hot-product aggregate: folds the orders of one salted key into a partial sketch per
+ * event-time window and, every flush interval, forwards each partial keyed by its product and stamped with
+ * its latest order time, so the second stage merges one partial per salt bucket instead of every order.
+ * Partials are kept in a changelogged store until flushed, so a crash does not lose them.
+ */
+public class PartialAggregateProcessor implements Processor<String, Order, String, ProductPriceSketch> {
+
+    private final String storeName;
+    private final long windowMs;
+    private final long flushIntervalMs;
+
+    private ProcessorContext<String, ProductPriceSketch> context;
+    private TimestampedKeyValueStore<String, ProductPriceSketch> partials;
+
+    public PartialAggregateProcessor(String storeName, long windowMs, long flushIntervalMs) {
+        this.storeName = storeName;
+        this.windowMs = windowMs;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @Override
+    public void init(ProcessorContext<String, ProductPriceSketch> context) {
+        this.context = context;
+        this.partials = context.getStateStore(storeName);
+        context.schedule(Duration.ofMillis(flushIntervalMs), PunctuationType.WALL_CLOCK_TIME, now -> flush());
+    }
+
+    @Override
+    public void process(Record<String, Order> record) {
+        Order order = record.value();
+        long windowStart = record.timestamp() - Math.floorMod(record.timestamp(), windowMs);
+        // Partials never span an event-time window, so the windowed aggregate downstream stays exact
+        String partialKey = record.key() + HotKeyDetector.SALT_SEPARATOR + windowStart;
+
+        ValueAndTimestamp<ProductPriceSketch> existing = partials.get(partialKey);
+        ProductPriceSketch sketch = existing == null ? new ProductPriceSketch() : existing.value();
+        sketch.add(OrderAmounts.unitPriceMinor(order), order.getQuantity(), order.getOrderId());
+        long timestamp = existing == null ? record.timestamp() : Math.max(existing.timestamp(), record.timestamp());
+        partials.put(partialKey, ValueAndTimestamp.make(sketch, timestamp));
+    }
+
+    private void flush() {
+        List<KeyValue<String, ValueAndTimestamp<ProductPriceSketch>>> flushed = new ArrayList<>();
+        try (KeyValueIterator<String, ValueAndTimestamp<ProductPriceSketch>> iterator = partials.all()) {
+            iterator.forEachRemaining(flushed::add);
+        }
+        for (KeyValue<String, ValueAndTimestamp<ProductPriceSketch>> partial : flushed) {
+            String product = HotKeyDetector.unsalted(partial.key);
+            context.forward(new Record<>(product, partial.value.value(), partial.value.timestamp()));
+            partials.delete(partial.key);
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.kafka.aggregation;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Fixed-size, mergeable price distribution for a single product.
+ * Prices are unit prices in minor currency units (e.g. cents). Count, quantity, sum, min and max are
+ * exact longs; sums are overflow-checked and fail rather than wrap.
+ * Prices go into logarithmic buckets with a bounded relative error (DDSketch style), so any
+ * quantile can be answered from at most {@link #MAX_BINS} counters. Distinct order ids are
+ * counted with a HyperLogLog of {@code 2^HLL_PRECISION} one-byte registers.
+ */
+public class ProductPriceSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+    public static final int MAX_BINS = 1024;
+    public static final int HLL_PRECISION = 10;
+
+    private static final int HLL_REGISTERS = 1 << HLL_PRECISION;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private static final byte FORMAT_VERSION = 2;
+    private static final byte FORMAT_VERSION_V1 = 1;
+    // Version 1 held float prices in major units; they are rescaled to cents when read
+    private static final int V1_MINOR_UNITS_PER_MAJOR = 100;
+    // Before sketches, the store held the UTF-8 string "sum,count"; no version byte, so it starts with a digit
+    private static final char LEGACY_SEPARATOR = ',';
+    private static final byte HLL_NONE = 0;
+    private static final byte HLL_SPARSE = 1;
+    private static final byte HLL_DENSE = 2;
+
+    private long count;
+    private long quantity;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private long zeroCount;
+    private int minIndex;
+    private long[] bins = new long[0];
+    private byte[] registers;
+
+    public void add(long unitPriceMinor, long orderQuantity, CharSequence orderId) {
+        sum = Math.addExact(sum, Math.multiplyExact(unitPriceMinor, orderQuantity));
+        quantity = Math.addExact(quantity, orderQuantity);
+        count++;
+        min = Math.min(min, unitPriceMinor);
+        max = Math.max(max, unitPriceMinor);
+
+        if (unitPriceMinor > 0) {
+            addToBin(indexOf(unitPriceMinor), 1);
+        } else {
+            zeroCount++;
+        }
+        if (orderId != null) {
+            addDistinct(KeyHashing.hash64(orderId));
+        }
+    }
+
+    public ProductPriceSketch merge(ProductPriceSketch other) {
+        if (other.count == 0) {
+            return this;
+        }
+        sum = Math.addExact(sum, other.sum);
+        quantity = Math.addExact(quantity, other.quantity);
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        zeroCount += other.zeroCount;
+
+        if (other.bins.length > 0) {
+            // Widen once up front so the per-bin adds below never resize
+            addToBin(other.minIndex + other.bins.length - 1, 0);
+            addToBin(other.minIndex, 0);
+            for (int i = 0; i < other.bins.length; i++) {
+                if (other.bins[i] != 0) {
+                    addToBin(other.minIndex + i, other.bins[i]);
+                }
+            }
+        }
+
+        if (other.registers != null) {
+            if (registers == null) {
+                registers = new byte[HLL_REGISTERS];
+            }
+            for (int i = 0; i < HLL_REGISTERS; i++) {
+                if (other.registers[i] > registers[i]) {
+                    registers[i] = other.registers[i];
+                }
+            }
+        }
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    // Sum of unitPrice * quantity over all orders, in minor units
+    public long getSum() {
+        return sum;
+    }
+
+    // Average unit price weighted by quantity, in minor units
+    public double getAverage() {
+        return quantity == 0 ? 0.0 : (double) sum / quantity;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    public double quantile(double q) {
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = (long) (q * (count - 1));
+        if (rank < zeroCount) {
+            return min;
+        }
+        long cumulative = zeroCount;
+        for (int i = 0; i < bins.length; i++) {
+            cumulative += bins[i];
+            if (cumulative > rank) {
+                return Math.min(Math.max(valueOf(minIndex + i), min), max);
+            }
+        }
+        return max;
+    }
+
+    public long distinctOrders() {
+        if (registers == null) {
+            return 0;
+        }
+        double harmonicSum = 0;
+        int zeroRegisters = 0;
+        for (byte register : registers) {
+            harmonicSum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+        double m = HLL_REGISTERS;
+        double estimate = (0.7213 / (1 + 1.079 / m)) * m * m / harmonicSum;
+        if (estimate <= 2.5 * m && zeroRegisters > 0) {
+            estimate = m * Math.log(m / zeroRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        int nonZeroRegisters = 0;
+        if (registers != null) {
+            for (byte register : registers) {
+                if (register != 0) {
+                    nonZeroRegisters++;
+                }
+            }
+        }
+        byte hllMode = registers == null ? HLL_NONE
+                : nonZeroRegisters * 3 < HLL_REGISTERS ? HLL_SPARSE : HLL_DENSE;
+
+        int maxSize = 1 + 10 * 6 + 5 + 5 + bins.length * 10 + 1
+                + (hllMode == HLL_SPARSE ? 5 + nonZeroRegisters * 3 : hllMode == HLL_DENSE ? HLL_REGISTERS : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(maxSize);
+
+        buffer.put(FORMAT_VERSION);
+        putVarLong(buffer, count);
+        putVarLong(buffer, quantity);
+        putVarLong(buffer, zigZag(sum));
+        putVarLong(buffer, zigZag(min));
+        putVarLong(buffer, zigZag(max));
+        putVarLong(buffer, zeroCount);
+        putVarLong(buffer, ((minIndex << 1) ^ (minIndex >> 31)) & 0xFFFFFFFFL);
+        putVarLong(buffer, bins.length);
+        for (long bin : bins) {
+            putVarLong(buffer, bin);
+        }
+
+        buffer.put(hllMode);
+        if (hllMode == HLL_SPARSE) {
+            putVarLong(buffer, nonZeroRegisters);
+            for (int i = 0; i < HLL_REGISTERS; i++) {
+                if (registers[i] != 0) {
+                    buffer.putShort((short) i);
+                    buffer.put(registers[i]);
+                }
+            }
+        } else if (hllMode == HLL_DENSE) {
+            buffer.put(registers);
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public static ProductPriceSketch fromBytes(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        byte version = buffer.get();
+        if (version >= '0' && version <= '9') {
+            return fromLegacy(new String(data, StandardCharsets.UTF_8));
+        }
+        if (version == FORMAT_VERSION_V1) {
+            return fromV1(buffer);
+        }
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported sketch format version: " + version);
+        }
+
+        ProductPriceSketch sketch = new ProductPriceSketch();
+        sketch.count = getVarLong(buffer);
+        sketch.quantity = getVarLong(buffer);
+        sketch.sum = unZigZag(getVarLong(buffer));
+        sketch.min = unZigZag(getVarLong(buffer));
+        sketch.max = unZigZag(getVarLong(buffer));
+        sketch.zeroCount = getVarLong(buffer);
+        int zigZagIndex = (int) getVarLong(buffer);
+        sketch.minIndex = (zigZagIndex >>> 1) ^ -(zigZagIndex & 1);
+        sketch.bins = new long[(int) getVarLong(buffer)];
+        for (int i = 0; i < sketch.bins.length; i++) {
+            sketch.bins[i] = getVarLong(buffer);
+        }
+        readRegisters(sketch, buffer);
+        return sketch;
+    }
+
+    private static ProductPriceSketch fromV1(ByteBuffer buffer) {
+        ProductPriceSketch sketch = new ProductPriceSketch();
+        sketch.count = getVarLong(buffer);
+        sketch.quantity = sketch.count;
+        sketch.sum = Math.round(buffer.getDouble() * V1_MINOR_UNITS_PER_MAJOR);
+        double min = buffer.getDouble();
+        double max = buffer.getDouble();
+        if (sketch.count > 0) {
+            sketch.min = Math.round(min * V1_MINOR_UNITS_PER_MAJOR);
+            sketch.max = Math.round(max * V1_MINOR_UNITS_PER_MAJOR);
+        }
+        sketch.zeroCount = getVarLong(buffer);
+        int zigZagIndex = (int) getVarLong(buffer);
+        int v1MinIndex = (zigZagIndex >>> 1) ^ -(zigZagIndex & 1);
+        int v1Bins = (int) getVarLong(buffer);
+        for (int i = 0; i < v1Bins; i++) {
+            long n = getVarLong(buffer);
+            if (n != 0) {
+                // Move each bucket to the one holding its representative value in minor units
+                sketch.addToBin(indexOf(valueOf(v1MinIndex + i) * V1_MINOR_UNITS_PER_MAJOR), n);
+            }
+        }
+        readRegisters(sketch, buffer);
+        return sketch;
+    }
+
+    // Only sum and count survive, so every order lands in the bucket of the average price
+    private static ProductPriceSketch fromLegacy(String value) {
+        int separator = value.indexOf(LEGACY_SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Unsupported legacy aggregate: " + value);
+        }
+        ProductPriceSketch sketch = new ProductPriceSketch();
+        sketch.count = Long.parseLong(value.substring(separator + 1).trim());
+        if (sketch.count == 0) {
+            return sketch;
+        }
+        sketch.quantity = sketch.count;
+        sketch.sum = Math.round(Double.parseDouble(value.substring(0, separator)) * V1_MINOR_UNITS_PER_MAJOR);
+        long average = Math.round((double) sketch.sum / sketch.count);
+        sketch.min = average;
+        sketch.max = average;
+        if (average > 0) {
+            sketch.addToBin(indexOf(average), sketch.count);
+        } else {
+            sketch.zeroCount = sketch.count;
+        }
+        return sketch;
+    }
+
+    private static void readRegisters(ProductPriceSketch sketch, ByteBuffer buffer) {
+        byte hllMode = buffer.get();
+        if (hllMode == HLL_SPARSE) {
+            sketch.registers = new byte[HLL_REGISTERS];
+            long entries = getVarLong(buffer);
+            for (long i = 0; i < entries; i++) {
+                int register = buffer.getShort();
+                sketch.registers[register] = buffer.get();
+            }
+        } else if (hllMode == HLL_DENSE) {
+            sketch.registers = new byte[HLL_REGISTERS];
+            buffer.get(sketch.registers);
+        }
+    }
+
+    private void addToBin(int index, long n) {
+        if (bins.length == 0) {
+            minIndex = index;
+            bins = new long[1];
+        } else {
+            int maxIndex = minIndex + bins.length - 1;
+            if (index < minIndex || index > maxIndex) {
+                int newMax = Math.max(index, maxIndex);
+                // Keep the highest MAX_BINS buckets; anything lower collapses into the lowest one
+                int newMin = Math.max(Math.min(index, minIndex), newMax - MAX_BINS + 1);
+                rebin(newMin, newMax);
+            }
+        }
+        bins[Math.max(index, minIndex) - minIndex] += n;
+    }
+
+    private void rebin(int newMin, int newMax) {
+        long[] resized = new long[newMax - newMin + 1];
+        for (int i = 0; i < bins.length; i++) {
+            if (bins[i] != 0) {
+                resized[Math.max(minIndex + i, newMin) - newMin] += bins[i];
+            }
+        }
+        bins = resized;
+        minIndex = newMin;
+    }
+
+    private void addDistinct(long hash) {
+        if (registers == null) {
+            registers = new byte[HLL_REGISTERS];
+        }
+        int register = (int) (hash >>> (64 - HLL_PRECISION));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << HLL_PRECISION) | (1L << (HLL_PRECISION - 1))) + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+    }
+
+    private static int indexOf(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    private static double valueOf(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.kafka.aggregation;
+
+import org.apache.kafka.common.serialization.Serdes;
+
+public class ProductPriceSketchSerde extends Serdes.WrapperSerde<ProductPriceSketch> {
+
+    public ProductPriceSketchSerde() {
+        super((topic, sketch) -> sketch == null ? null : sketch.toBytes(),
+                (topic, data) -> data == null ? null : ProductPriceSketch.fromBytes(data));
+    }
+}
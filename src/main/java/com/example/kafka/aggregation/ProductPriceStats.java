@@ -0,0 +1,70 @@
+package com.example.kafka.aggregation;
+
+import com.example.kafka.catalog.ProductCatalogEntry;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public record ProductPriceStats(
+        String product,
+        long count,
+        long quantity,
+        String currency,
+        BigDecimal average,
+        BigDecimal min,
+        BigDecimal max,
+        BigDecimal p50,
+        BigDecimal p95,
+        BigDecimal p99,
+        long distinctOrders,
+        String category,
+        BigDecimal referencePrice,
+        BigDecimal deviationPercent) {
+
+    // The sketch holds minor units; fractionDigits is the number of minor-unit digits of the currency
+    public static ProductPriceStats from(String product, ProductPriceSketch sketch, String currency, int fractionDigits) {
+        return new ProductPriceStats(
+                product,
+                sketch.getCount(),
+                sketch.getQuantity(),
+                currency,
+                average(sketch, fractionDigits),
+                toMajor(sketch.getMin(), fractionDigits),
+                toMajor(sketch.getMax(), fractionDigits),
+                toMajor(Math.round(sketch.quantile(0.50)), fractionDigits),
+                toMajor(Math.round(sketch.quantile(0.95)), fractionDigits),
+                toMajor(Math.round(sketch.quantile(0.99)), fractionDigits),
+                sketch.distinctOrders(),
+                null,
+                null,
+                null);
+    }
+
+    // Adds category, list price and how far the average sits from it; unchanged if the product is not in the catalog
+    public ProductPriceStats withCatalog(ProductCatalogEntry entry) {
+        if (entry == null) {
+            return this;
+        }
+        BigDecimal deviation = null;
+        BigDecimal reference = entry.referencePrice();
+        if (reference != null && reference.signum() != 0) {
+            deviation = average.subtract(reference)
+                    .multiply(BigDecimal.valueOf(100))
+                    .divide(reference, 2, RoundingMode.HALF_UP);
+        }
+        return new ProductPriceStats(product, count, quantity, currency, average, min, max, p50, p95, p99, distinctOrders,
+                entry.category(), reference, deviation);
+    }
+
+    private static BigDecimal average(ProductPriceSketch sketch, int fractionDigits) {
+        if (sketch.getQuantity() == 0) {
+            return toMajor(0, fractionDigits);
+        }
+        return toMajor(sketch.getSum(), fractionDigits)
+                .divide(BigDecimal.valueOf(sketch.getQuantity()), fractionDigits, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal toMajor(long minor, int fractionDigits) {
+        return BigDecimal.valueOf(minor, fractionDigits);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.kafka.aggregation;
+
+import java.time.Instant;
+
+public record WindowedProductPriceStats(
+        Instant windowStart,
+        Instant windowEnd,
+        ProductPriceStats stats) {
+}
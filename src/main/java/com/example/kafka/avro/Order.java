@@ -14,10 +14,10 @@ import org.apache.avro.message.SchemaStore;
 
 @org.apache.avro.specific.AvroGenerated
 public class Order extends org.apache.avro.specific.SpecificRecordBase implements org.apache.avro.specific.SpecificRecord {
-  private static final long serialVersionUID = -7583197735407338717L;
+  private static final long serialVersionUID = -2954431062890357812L;
 
 
-  public static final org.apache.avro.Schema SCHEMA$ = new org.apache.avro.Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Order\",\"namespace\":\"com.example.kafka.avro\",\"fields\":[{\"name\":\"orderId\",\"type\":\"string\"},{\"name\":\"product\",\"type\":\"string\"},{\"name\":\"price\",\"type\":\"float\"}]}");
+  public static final org.apache.avro.Schema SCHEMA$ = new org.apache.avro.Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Order\",\"namespace\":\"com.example.kafka.avro\",\"fields\":[{\"name\":\"orderId\",\"type\":\"string\"},{\"name\":\"product\",\"type\":\"string\"},{\"name\":\"price\",\"type\":\"float\"},{\"name\":\"orderTimestamp\",\"type\":[\"null\",\"long\"],\"doc\":\"When the order was placed, in epoch milliseconds. Null for orders written before this field existed.\",\"default\":null},{\"name\":\"quantity\",\"type\":\"int\",\"doc\":\"Number of units ordered.\",\"default\":1},{\"name\":\"currency\",\"type\":\"string\",\"doc\":\"ISO 4217 currency code of priceMinor.\",\"default\":\"USD\"},{\"name\":\"priceMinor\",\"type\":[\"null\",\"long\"],\"doc\":\"Exact unit price in minor units of currency (e.g. cents). Null for orders that only carry the float price.\",\"default\":null}]}");
   public static org.apache.avro.Schema getClassSchema() { return SCHEMA$; }
 
   private static final SpecificData MODEL$ = new SpecificData();
@@ -76,6 +76,14 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
   private java.lang.CharSequence orderId;
   private java.lang.CharSequence product;
   private float price;
+  /** When the order was placed, in epoch milliseconds. Null for orders written before this field existed. */
+  private java.lang.Long orderTimestamp;
+  /** Number of units ordered. */
+  private int quantity;
+  /** ISO 4217 currency code of priceMinor. */
+  private java.lang.CharSequence currency;
+  /** Exact unit price in minor units of currency (e.g. cents). Null for orders that only carry the float price. */
+  private java.lang.Long priceMinor;
 
   /**
    * Default constructor.  Note that this does not initialize fields
@@ -89,11 +97,19 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
    * @param orderId The new value for orderId
    * @param product The new value for product
    * @param price The new value for price
+   * @param orderTimestamp When the order was placed, in epoch milliseconds. Null for orders written before this field existed.
+   * @param quantity Number of units ordered.
+   * @param currency ISO 4217 currency code of priceMinor.
+   * @param priceMinor Exact unit price in minor units of currency (e.g. cents). Null for orders that only carry the float price.
    */
-  public Order(java.lang.CharSequence orderId, java.lang.CharSequence product, java.lang.Float price) {
+  public Order(java.lang.CharSequence orderId, java.lang.CharSequence product, java.lang.Float price, java.lang.Long orderTimestamp, java.lang.Integer quantity, java.lang.CharSequence currency, java.lang.Long priceMinor) {
     this.orderId = orderId;
     this.product = product;
     this.price = price;
+    this.orderTimestamp = orderTimestamp;
+    this.quantity = quantity;
+    this.currency = currency;
+    this.priceMinor = priceMinor;
   }
 
   @Override
@@ -109,6 +125,10 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     case 0: return orderId;
     case 1: return product;
     case 2: return price;
+    case 3: return orderTimestamp;
+    case 4: return quantity;
+    case 5: return currency;
+    case 6: return priceMinor;
     default: throw new IndexOutOfBoundsException("Invalid index: " + field$);
     }
   }
@@ -121,6 +141,10 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     case 0: orderId = (java.lang.CharSequence)value$; break;
     case 1: product = (java.lang.CharSequence)value$; break;
     case 2: price = (java.lang.Float)value$; break;
+    case 3: orderTimestamp = (java.lang.Long)value$; break;
+    case 4: quantity = (java.lang.Integer)value$; break;
+    case 5: currency = (java.lang.CharSequence)value$; break;
+    case 6: priceMinor = (java.lang.Long)value$; break;
     default: throw new IndexOutOfBoundsException("Invalid index: " + field$);
     }
   }
@@ -176,6 +200,78 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     this.price = value;
   }
 
+  /**
+   * Gets the value of the 'orderTimestamp' field.
+   * @return When the order was placed, in epoch milliseconds. Null for orders written before this field existed.
+   */
+  public java.lang.Long getOrderTimestamp() {
+    return orderTimestamp;
+  }
+
+
+  /**
+   * Sets the value of the 'orderTimestamp' field.
+   * When the order was placed, in epoch milliseconds. Null for orders written before this field existed.
+   * @param value the value to set.
+   */
+  public void setOrderTimestamp(java.lang.Long value) {
+    this.orderTimestamp = value;
+  }
+
+  /**
+   * Gets the value of the 'quantity' field.
+   * @return Number of units ordered.
+   */
+  public int getQuantity() {
+    return quantity;
+  }
+
+
+  /**
+   * Sets the value of the 'quantity' field.
+   * Number of units ordered.
+   * @param value the value to set.
+   */
+  public void setQuantity(int value) {
+    this.quantity = value;
+  }
+
+  /**
+   * Gets the value of the 'currency' field.
+   * @return ISO 4217 currency code of priceMinor.
+   */
+  public java.lang.CharSequence getCurrency() {
+    return currency;
+  }
+
+
+  /**
+   * Sets the value of the 'currency' field.
+   * ISO 4217 currency code of priceMinor.
+   * @param value the value to set.
+   */
+  public void setCurrency(java.lang.CharSequence value) {
+    this.currency = value;
+  }
+
+  /**
+   * Gets the value of the 'priceMinor' field.
+   * @return Exact unit price in minor units of currency (e.g. cents). Null for orders that only carry the float price.
+   */
+  public java.lang.Long getPriceMinor() {
+    return priceMinor;
+  }
+
+
+  /**
+   * Sets the value of the 'priceMinor' field.
+   * Exact unit price in minor units of currency (e.g. cents). Null for orders that only carry the float price.
+   * @param value the value to set.
+   */
+  public void setPriceMinor(java.lang.Long value) {
+    this.priceMinor = value;
+  }
+
   /**
    * Creates a new Order RecordBuilder.
    * @return A new Order RecordBuilder
@@ -220,6 +316,14 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     private java.lang.CharSequence orderId;
     private java.lang.CharSequence product;
     private float price;
+    /** When the order was placed, in epoch milliseconds. Null for orders written before this field existed. */
+    private java.lang.Long orderTimestamp;
+    /** Number of units ordered. */
+    private int quantity;
+    /** ISO 4217 currency code of priceMinor. */
+    private java.lang.CharSequence currency;
+    /** Exact unit price in minor units of currency (e.g. cents). Null for orders that only carry the float price. */
+    private java.lang.Long priceMinor;
 
     /** Creates a new Builder */
     private Builder() {
@@ -244,6 +348,22 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
         this.price = data().deepCopy(fields()[2].schema(), other.price);
         fieldSetFlags()[2] = other.fieldSetFlags()[2];
       }
+      if (isValidValue(fields()[3], other.orderTimestamp)) {
+        this.orderTimestamp = data().deepCopy(fields()[3].schema(), other.orderTimestamp);
+        fieldSetFlags()[3] = other.fieldSetFlags()[3];
+      }
+      if (isValidValue(fields()[4], other.quantity)) {
+        this.quantity = data().deepCopy(fields()[4].schema(), other.quantity);
+        fieldSetFlags()[4] = other.fieldSetFlags()[4];
+      }
+      if (isValidValue(fields()[5], other.currency)) {
+        this.currency = data().deepCopy(fields()[5].schema(), other.currency);
+        fieldSetFlags()[5] = other.fieldSetFlags()[5];
+      }
+      if (isValidValue(fields()[6], other.priceMinor)) {
+        this.priceMinor = data().deepCopy(fields()[6].schema(), other.priceMinor);
+        fieldSetFlags()[6] = other.fieldSetFlags()[6];
+      }
     }
 
     /**
@@ -264,6 +384,22 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
         this.price = data().deepCopy(fields()[2].schema(), other.price);
         fieldSetFlags()[2] = true;
       }
+      if (isValidValue(fields()[3], other.orderTimestamp)) {
+        this.orderTimestamp = data().deepCopy(fields()[3].schema(), other.orderTimestamp);
+        fieldSetFlags()[3] = true;
+      }
+      if (isValidValue(fields()[4], other.quantity)) {
+        this.quantity = data().deepCopy(fields()[4].schema(), other.quantity);
+        fieldSetFlags()[4] = true;
+      }
+      if (isValidValue(fields()[5], other.currency)) {
+        this.currency = data().deepCopy(fields()[5].schema(), other.currency);
+        fieldSetFlags()[5] = true;
+      }
+      if (isValidValue(fields()[6], other.priceMinor)) {
+        this.priceMinor = data().deepCopy(fields()[6].schema(), other.priceMinor);
+        fieldSetFlags()[6] = true;
+      }
     }
 
     /**
@@ -385,6 +521,181 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
       return this;
     }
 
+    /**
+      * Gets the value of the 'orderTimestamp' field.
+      * When the order was placed, in epoch milliseconds. Null for orders written before this field existed.
+      * @return The value.
+      */
+    public java.lang.Long getOrderTimestamp() {
+      return orderTimestamp;
+    }
+
+
+    /**
+      * Sets the value of the 'orderTimestamp' field.
+      * When the order was placed, in epoch milliseconds. Null for orders written before this field existed.
+      * @param value The value of 'orderTimestamp'.
+      * @return This builder.
+      */
+    public com.example.kafka.avro.Order.Builder setOrderTimestamp(java.lang.Long value) {
+      validate(fields()[3], value);
+      this.orderTimestamp = value;
+      fieldSetFlags()[3] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'orderTimestamp' field has been set.
+      * When the order was placed, in epoch milliseconds. Null for orders written before this field existed.
+      * @return True if the 'orderTimestamp' field has been set, false otherwise.
+      */
+    public boolean hasOrderTimestamp() {
+      return fieldSetFlags()[3];
+    }
+
+
+    /**
+      * Clears the value of the 'orderTimestamp' field.
+      * When the order was placed, in epoch milliseconds. Null for orders written before this field existed.
+      * @return This builder.
+      */
+    public com.example.kafka.avro.Order.Builder clearOrderTimestamp() {
+      orderTimestamp = null;
+      fieldSetFlags()[3] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'quantity' field.
+      * Number of units ordered.
+      * @return The value.
+      */
+    public int getQuantity() {
+      return quantity;
+    }
+
+
+    /**
+      * Sets the value of the 'quantity' field.
+      * Number of units ordered.
+      * @param value The value of 'quantity'.
+      * @return This builder.
+      */
+    public com.example.kafka.avro.Order.Builder setQuantity(int value) {
+      validate(fields()[4], value);
+      this.quantity = value;
+      fieldSetFlags()[4] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'quantity' field has been set.
+      * Number of units ordered.
+      * @return True if the 'quantity' field has been set, false otherwise.
+      */
+    public boolean hasQuantity() {
+      return fieldSetFlags()[4];
+    }
+
+
+    /**
+      * Clears the value of the 'quantity' field.
+      * Number of units ordered.
+      * @return This builder.
+      */
+    public com.example.kafka.avro.Order.Builder clearQuantity() {
+      fieldSetFlags()[4] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'currency' field.
+      * ISO 4217 currency code of priceMinor.
+      * @return The value.
+      */
+    public java.lang.CharSequence getCurrency() {
+      return currency;
+    }
+
+
+    /**
+      * Sets the value of the 'currency' field.
+      * ISO 4217 currency code of priceMinor.
+      * @param value The value of 'currency'.
+      * @return This builder.
+      */
+    public com.example.kafka.avro.Order.Builder setCurrency(java.lang.CharSequence value) {
+      validate(fields()[5], value);
+      this.currency = value;
+      fieldSetFlags()[5] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'currency' field has been set.
+      * ISO 4217 currency code of priceMinor.
+      * @return True if the 'currency' field has been set, false otherwise.
+      */
+    public boolean hasCurrency() {
+      return fieldSetFlags()[5];
+    }
+
+
+    /**
+      * Clears the value of the 'currency' field.
+      * ISO 4217 currency code of priceMinor.
+      * @return This builder.
+      */
+    public com.example.kafka.avro.Order.Builder clearCurrency() {
+      currency = null;
+      fieldSetFlags()[5] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'priceMinor' field.
+      * Exact unit price in minor units of currency (e.g. cents). Null for orders that only carry the float price.
+      * @return The value.
+      */
+    public java.lang.Long getPriceMinor() {
+      return priceMinor;
+    }
+
+
+    /**
+      * Sets the value of the 'priceMinor' field.
+      * Exact unit price in minor units of currency (e.g. cents). Null for orders that only carry the float price.
+      * @param value The value of 'priceMinor'.
+      * @return This builder.
+      */
+    public com.example.kafka.avro.Order.Builder setPriceMinor(java.lang.Long value) {
+      validate(fields()[6], value);
+      this.priceMinor = value;
+      fieldSetFlags()[6] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'priceMinor' field has been set.
+      * Exact unit price in minor units of currency (e.g. cents). Null for orders that only carry the float price.
+      * @return True if the 'priceMinor' field has been set, false otherwise.
+      */
+    public boolean hasPriceMinor() {
+      return fieldSetFlags()[6];
+    }
+
+
+    /**
+      * Clears the value of the 'priceMinor' field.
+      * Exact unit price in minor units of currency (e.g. cents). Null for orders that only carry the float price.
+      * @return This builder.
+      */
+    public com.example.kafka.avro.Order.Builder clearPriceMinor() {
+      priceMinor = null;
+      fieldSetFlags()[6] = false;
+      return this;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public Order build() {
@@ -393,6 +704,10 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
         record.orderId = fieldSetFlags()[0] ? this.orderId : (java.lang.CharSequence) defaultValue(fields()[0]);
         record.product = fieldSetFlags()[1] ? this.product : (java.lang.CharSequence) defaultValue(fields()[1]);
         record.price = fieldSetFlags()[2] ? this.price : (java.lang.Float) defaultValue(fields()[2]);
+        record.orderTimestamp = fieldSetFlags()[3] ? this.orderTimestamp : (java.lang.Long) defaultValue(fields()[3]);
+        record.quantity = fieldSetFlags()[4] ? this.quantity : (java.lang.Integer) defaultValue(fields()[4]);
+        record.currency = fieldSetFlags()[5] ? this.currency : (java.lang.CharSequence) defaultValue(fields()[5]);
+        record.priceMinor = fieldSetFlags()[6] ? this.priceMinor : (java.lang.Long) defaultValue(fields()[6]);
         return record;
       } catch (org.apache.avro.AvroMissingFieldException e) {
         throw e;
@@ -431,6 +746,26 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
 
     out.writeFloat(this.price);
 
+    if (this.orderTimestamp == null) {
+      out.writeIndex(0);
+      out.writeNull();
+    } else {
+      out.writeIndex(1);
+      out.writeLong(this.orderTimestamp);
+    }
+
+    out.writeInt(this.quantity);
+
+    out.writeString(this.currency);
+
+    if (this.priceMinor == null) {
+      out.writeIndex(0);
+      out.writeNull();
+    } else {
+      out.writeIndex(1);
+      out.writeLong(this.priceMinor);
+    }
+
   }
 
   @Override public void customDecode(org.apache.avro.io.ResolvingDecoder in)
@@ -444,8 +779,26 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
 
       this.price = in.readFloat();
 
+      if (in.readIndex() != 1) {
+        in.readNull();
+        this.orderTimestamp = null;
+      } else {
+        this.orderTimestamp = in.readLong();
+      }
+
+      this.quantity = in.readInt();
+
+      this.currency = in.readString(this.currency instanceof Utf8 ? (Utf8)this.currency : null);
+
+      if (in.readIndex() != 1) {
+        in.readNull();
+        this.priceMinor = null;
+      } else {
+        this.priceMinor = in.readLong();
+      }
+
     } else {
-      for (int i = 0; i < 3; i++) {
+      for (int i = 0; i < 7; i++) {
         switch (fieldOrder[i].pos()) {
         case 0:
           this.orderId = in.readString(this.orderId instanceof Utf8 ? (Utf8)this.orderId : null);
@@ -459,6 +812,32 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
           this.price = in.readFloat();
           break;
 
+        case 3:
+          if (in.readIndex() != 1) {
+            in.readNull();
+            this.orderTimestamp = null;
+          } else {
+            this.orderTimestamp = in.readLong();
+          }
+          break;
+
+        case 4:
+          this.quantity = in.readInt();
+          break;
+
+        case 5:
+          this.currency = in.readString(this.currency instanceof Utf8 ? (Utf8)this.currency : null);
+          break;
+
+        case 6:
+          if (in.readIndex() != 1) {
+            in.readNull();
+            this.priceMinor = null;
+          } else {
+            this.priceMinor = in.readLong();
+          }
+          break;
+
         default:
           throw new java.io.IOException("Corrupt ResolvingDecoder.");
         }
@@ -0,0 +1,104 @@
+package com.example.kafka.catalog;
+
+import com.example.kafka.services.OrderAggregationStreamsService;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded LRU near-cache in front of the local catalog GlobalKTable store.
+ * Every instance holds the full catalog in its global store, so a miss is still a local read;
+ * the cache only saves the store lookup and deserialization on the hot listener path.
+ * Entries expire after ttl-ms so catalog updates are picked up. Misses are cached only for negative-ttl-ms:
+ * publishing invalidates just this instance's cache, and a product added through another instance must become
+ * known everywhere as soon as the global store has it.
+ */
+@Service
+public class ProductCatalogCache {
+
+    private final StreamsBuilderFactoryBean streamsBuilderFactoryBean;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+    private final Map<String, CachedEntry> cache;
+
+    public ProductCatalogCache(StreamsBuilderFactoryBean streamsBuilderFactoryBean,
+            @Value("${kafka.catalog.cache.max-entries}") int maxEntries,
+            @Value("${kafka.catalog.cache.ttl-ms}") long ttlMs,
+            @Value("${kafka.catalog.cache.negative-ttl-ms}") long negativeTtlMs) {
+        this.streamsBuilderFactoryBean = streamsBuilderFactoryBean;
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public Optional<ProductCatalogEntry> lookup(String product) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            CachedEntry cached = cache.get(product);
+            if (cached != null && now - cached.loadedAt() < (cached.entry() != null ? ttlMs : negativeTtlMs)) {
+                return Optional.ofNullable(cached.entry());
+            }
+        }
+
+        ReadOnlyKeyValueStore<String, ProductCatalogEntry> store = store();
+        if (store == null) {
+            return Optional.empty();
+        }
+        ProductCatalogEntry entry;
+        try {
+            entry = store.get(product);
+        } catch (InvalidStateStoreException e) {
+            return Optional.empty();
+        }
+        synchronized (cache) {
+            cache.put(product, new CachedEntry(entry, now));
+        }
+        return Optional.ofNullable(entry);
+    }
+
+    // True once the global store has been bootstrapped, so a miss means the product is really unknown.
+    // Global stores stay queryable while the instance rebalances.
+    public boolean isAvailable() {
+        KafkaStreams kafkaStreams = streamsBuilderFactoryBean.getKafkaStreams();
+        if (kafkaStreams == null) {
+            return false;
+        }
+        KafkaStreams.State state = kafkaStreams.state();
+        return state == KafkaStreams.State.RUNNING || state == KafkaStreams.State.REBALANCING;
+    }
+
+    public void invalidate(String product) {
+        synchronized (cache) {
+            cache.remove(product);
+        }
+    }
+
+    private ReadOnlyKeyValueStore<String, ProductCatalogEntry> store() {
+        if (!isAvailable()) {
+            return null;
+        }
+        try {
+            return streamsBuilderFactoryBean.getKafkaStreams().store(StoreQueryParameters.fromNameAndType(
+                    OrderAggregationStreamsService.PRODUCT_CATALOG_STORE, QueryableStoreTypes.keyValueStore()));
+        } catch (InvalidStateStoreException e) {
+            return null;
+        }
+    }
+
+    private record CachedEntry(ProductCatalogEntry entry, long loadedAt) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.kafka.catalog;
+
+import java.math.BigDecimal;
+
+/**
+ * Value of the compacted product catalog topic, keyed by product name.
+ */
+public record ProductCatalogEntry(
+        String product,
+        String category,
+        BigDecimal referencePrice) {
+
+    // Seed entries are written as product:category:referencePrice
+    public static ProductCatalogEntry parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Catalog entry must be product:category:referencePrice, got: " + spec);
+        }
+        return new ProductCatalogEntry(parts[0].trim(), parts[1].trim(), new BigDecimal(parts[2].trim()));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.kafka.catalog;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Writes entries to the compacted product catalog topic and seeds it from kafka.catalog.seed.
+ * The catalog is read back through the GlobalKTable in OrderAggregationStreamsService.
+ * Seeding only publishes products missing from the topic, so entries changed through PUT /api/catalog survive
+ * a restart. If the topic cannot be read in time, nothing is seeded rather than risk overwriting.
+ */
+@Slf4j
+@Service
+public class ProductCatalogService {
+
+    private final KafkaTemplate<String, ProductCatalogEntry> catalogKafkaTemplate;
+    private final ProductCatalogCache productCatalogCache;
+    private final ConsumerFactory<String, String> consumerFactory;
+    private final String catalogTopic;
+    private final boolean seedOnStartup;
+    private final long seedReadTimeoutMs;
+    private final List<ProductCatalogEntry> seedEntries = new ArrayList<>();
+    private final List<String> products = new CopyOnWriteArrayList<>();
+
+    public ProductCatalogService(KafkaTemplate<String, ProductCatalogEntry> catalogKafkaTemplate,
+            ProductCatalogCache productCatalogCache,
+            @Qualifier("aggregatedConsumerFactory") ConsumerFactory<String, String> consumerFactory,
+            @Value("${kafka.topic.catalog}") String catalogTopic,
+            @Value("${kafka.catalog.seed}") String[] seed,
+            @Value("${kafka.catalog.seed-on-startup}") boolean seedOnStartup,
+            @Value("${kafka.catalog.seed-read-timeout-ms}") long seedReadTimeoutMs) {
+        this.catalogKafkaTemplate = catalogKafkaTemplate;
+        this.productCatalogCache = productCatalogCache;
+        this.consumerFactory = consumerFactory;
+        this.catalogTopic = catalogTopic;
+        this.seedOnStartup = seedOnStartup;
+        this.seedReadTimeoutMs = seedReadTimeoutMs;
+        for (String spec : seed) {
+            if (!spec.isBlank()) {
+                ProductCatalogEntry entry = ProductCatalogEntry.parse(spec);
+                seedEntries.add(entry);
+                products.add(entry.product());
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedCatalog() {
+        if (!seedOnStartup) {
+            return;
+        }
+        Set<String> existing;
+        try {
+            existing = existingProducts();
+        } catch (RuntimeException e) {
+            log.warn("Could not read catalog topic {}, skipping seed: {}", catalogTopic, e.getMessage());
+            return;
+        }
+        existing.stream().filter(product -> !products.contains(product)).forEach(products::add);
+
+        List<ProductCatalogEntry> missing = seedEntries.stream()
+                .filter(entry -> !existing.contains(entry.product()))
+                .toList();
+        missing.forEach(this::publish);
+        log.info("Seeded product catalog topic {} with {} of {} entries, {} already present",
+                catalogTopic, missing.size(), seedEntries.size(), seedEntries.size() - missing.size());
+    }
+
+    public CompletableFuture<SendResult<String, ProductCatalogEntry>> publish(ProductCatalogEntry entry) {
+        if (!products.contains(entry.product())) {
+            products.add(entry.product());
+        }
+        return catalogKafkaTemplate.send(catalogTopic, entry.product(), entry)
+                .whenComplete((result, ex) -> {
+                    if (ex == null) {
+                        productCatalogCache.invalidate(entry.product());
+                    } else {
+                        log.error("Failed to publish catalog entry for {}: {}", entry.product(), ex.getMessage());
+                    }
+                });
+    }
+
+    // Keys currently in the compacted topic, read from the beginning up to the end offsets taken at the start
+    private Set<String> existingProducts() {
+        try (Consumer<String, String> consumer = consumerFactory.createConsumer()) {
+            List<TopicPartition> partitions = consumer.partitionsFor(catalogTopic).stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            Set<String> keys = new HashSet<>();
+            if (partitions.isEmpty()) {
+                return keys;
+            }
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> ends = consumer.endOffsets(partitions);
+            long deadline = System.currentTimeMillis() + seedReadTimeoutMs;
+            while (!ends.entrySet().stream().allMatch(end -> consumer.position(end.getKey()) >= end.getValue())) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("reading the catalog timed out after " + seedReadTimeoutMs + " ms");
+                }
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+                    if (record.value() == null) {
+                        keys.remove(record.key());
+                    } else {
+                        keys.add(record.key());
+                    }
+                }
+            }
+            return keys;
+        }
+    }
+
+    // Products this instance knows to be in the catalog, used to generate random orders
+    public List<String> getProducts() {
+        return products;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.kafka.catalog;
+
+import com.example.kafka.avro.Order;
+import com.example.kafka.pipeline.OrderRejection;
+import com.example.kafka.pipeline.OrderStage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rejects orders for products missing from the catalog when kafka.catalog.reject-unknown-products is set.
+ * Orders pass while the catalog is still loading, so a cold start never sends valid orders to the DLQ.
+ * Listener paths only: the Streams topology joins the catalog table instead, on the stream thread's own copy.
+ */
+@Component
+public class ProductCatalogStage implements OrderStage {
+
+    private final ProductCatalogCache productCatalogCache;
+    private final boolean rejectUnknownProducts;
+
+    public ProductCatalogStage(ProductCatalogCache productCatalogCache,
+            @Value("${kafka.catalog.reject-unknown-products}") boolean rejectUnknownProducts) {
+        this.productCatalogCache = productCatalogCache;
+        this.rejectUnknownProducts = rejectUnknownProducts;
+    }
+
+    @Override
+    public OrderRejection apply(Order order) {
+        if (!rejectUnknownProducts || !productCatalogCache.isAvailable()) {
+            return null;
+        }
+        String product = order.getProduct().toString();
+        if (productCatalogCache.lookup(product).isPresent()) {
+            return null;
+        }
+        return new OrderRejection("catalog", "unknown product " + product);
+    }
+
+    @Override
+    public boolean runsInStreams() {
+        return false;
+    }
+}
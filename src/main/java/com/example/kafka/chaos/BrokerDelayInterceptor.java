@@ -0,0 +1,47 @@
+package com.example.kafka.chaos;
+
+import org.apache.kafka.clients.producer.ProducerInterceptor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import java.util.Map;
+
+/**
+ * Simulates a slow broker by holding up every record's produce acknowledgment. Acknowledgments run on the
+ * producer's network thread, so the producer delivers at most about 1000 / delay records per second: send
+ * futures complete late, buffer.memory fills and send() blocks up to max.block.ms, as against a struggling
+ * cluster. Enabled on a producer through kafka.chaos.broker-delay-ms.
+ */
+public class BrokerDelayInterceptor implements ProducerInterceptor<Object, Object> {
+
+    public static final String DELAY_MS_CONFIG = "chaos.broker.delay.ms";
+
+    private long delayMs;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object value = configs.get(DELAY_MS_CONFIG);
+        delayMs = value == null ? 0 : Long.parseLong(value.toString());
+    }
+
+    @Override
+    public ProducerRecord<Object, Object> onSend(ProducerRecord<Object, Object> record) {
+        return record;
+    }
+
+    @Override
+    public void onAcknowledgement(RecordMetadata metadata, Exception exception) {
+        if (delayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.kafka.chaos;
+
+import com.example.kafka.avro.Order;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Injects failures and latency into the listeners, to load-test the retry and DLQ paths at a controlled rate.
+ * Off unless kafka.chaos.enabled is set, in which case every call returns after one field read.
+ * Injected failures throw {@link InjectedFaultException} and take the listener's normal failure path.
+ */
+@Slf4j
+@Component
+public class FaultInjector {
+
+    public static final String ORDER_CONSUMER = "order-consumer";
+    public static final String TENANT_CONSUMER = "tenant-consumer";
+    public static final String RETRY_CONSUMER = "retry-consumer";
+
+    private final boolean enabled;
+    private final MeterRegistry meterRegistry;
+    private final DoubleSupplier random;
+    private volatile FaultProfile profile;
+
+    @Autowired
+    public FaultInjector(MeterRegistry meterRegistry,
+            @Value("${kafka.chaos.enabled}") boolean enabled,
+            @Value("${kafka.chaos.failure-rate}") double failureRate,
+            @Value("${kafka.chaos.latency-ms}") long latencyMs,
+            @Value("${kafka.chaos.latency-rate}") double latencyRate,
+            @Value("${kafka.chaos.products}") String[] products,
+            @Value("${kafka.chaos.hops}") String[] hops) {
+        this(enabled, new FaultProfile(failureRate, latencyMs, latencyRate, toSet(products), toSet(hops)),
+                meterRegistry, () -> ThreadLocalRandom.current().nextDouble());
+        if (enabled) {
+            log.warn("Fault injection enabled: {}", profile);
+        }
+    }
+
+    FaultInjector(boolean enabled, FaultProfile profile, MeterRegistry meterRegistry, DoubleSupplier random) {
+        this.enabled = enabled;
+        this.profile = profile;
+        this.meterRegistry = meterRegistry;
+        this.random = random;
+    }
+
+    /**
+     * Applies the current profile to an order about to be processed at the given hop: may sleep, may throw.
+     * @throws InjectedFaultException if the order was picked to fail
+     */
+    public void inject(String hop, Order order) {
+        if (!enabled) {
+            return;
+        }
+        FaultProfile current = profile;
+        if (!current.targets(hop, order.getProduct().toString())) {
+            return;
+        }
+        if (current.latencyMs() > 0 && random.getAsDouble() < current.latencyRate()) {
+            meterRegistry.counter("orders.chaos.injected", "hop", hop, "fault", "latency").increment();
+            try {
+                Thread.sleep(current.latencyMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (random.getAsDouble() < current.failureRate()) {
+            meterRegistry.counter("orders.chaos.injected", "hop", hop, "fault", "failure").increment();
+            throw new InjectedFaultException("Injected failure at " + hop + " for order " + order.getOrderId());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public FaultProfile getProfile() {
+        return profile;
+    }
+
+    // Takes effect for the next order; only meaningful when enabled
+    public void setProfile(FaultProfile profile) {
+        this.profile = profile;
+        log.warn("Fault injection profile changed: {}", profile);
+    }
+
+    static Set<String> toSet(String[] values) {
+        return Arrays.stream(values).map(String::trim).filter(value -> !value.isEmpty()).collect(Collectors.toSet());
+    }
+}
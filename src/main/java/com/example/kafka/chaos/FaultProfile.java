@@ -0,0 +1,26 @@
+package com.example.kafka.chaos;
+
+import java.util.Set;
+
+/**
+ * What the fault injector does to the orders it targets: fail a share of them, and delay a share of them by
+ * a fixed latency. Empty product or hop sets target every product or hop.
+ */
+public record FaultProfile(double failureRate, long latencyMs, double latencyRate, Set<String> products,
+        Set<String> hops) {
+
+    public FaultProfile {
+        if (failureRate < 0 || failureRate > 1 || latencyRate < 0 || latencyRate > 1) {
+            throw new IllegalArgumentException("Fault rates must be between 0 and 1");
+        }
+        if (latencyMs < 0) {
+            throw new IllegalArgumentException("Injected latency must not be negative: " + latencyMs);
+        }
+        products = Set.copyOf(products);
+        hops = Set.copyOf(hops);
+    }
+
+    public boolean targets(String hop, String product) {
+        return (hops.isEmpty() || hops.contains(hop)) && (products.isEmpty() || products.contains(product));
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.kafka.chaos;
+
+public class InjectedFaultException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InjectedFaultException(String message) {
+        super(message);
+    }
+}
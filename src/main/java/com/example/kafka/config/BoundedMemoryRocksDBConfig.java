@@ -0,0 +1,85 @@
+package com.example.kafka.config;
+
+import org.apache.kafka.streams.state.RocksDBConfigSetter;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.WriteBufferManager;
+
+import java.util.Map;
+
+/**
+ * Bounds the off-heap memory of every RocksDB store in the Streams app.
+ * All stores share a single block cache, and memtables are charged against that same cache
+ * through a shared WriteBufferManager, so total usage stays at the configured budget no matter
+ * how many stores or keys exist.
+ */
+public class BoundedMemoryRocksDBConfig implements RocksDBConfigSetter {
+
+    public static final String TOTAL_OFF_HEAP_BYTES_CONFIG = "rocksdb.bounded.total.off.heap.bytes";
+    public static final String TOTAL_MEMTABLE_BYTES_CONFIG = "rocksdb.bounded.total.memtable.bytes";
+    public static final String INDEX_FILTER_BLOCK_RATIO_CONFIG = "rocksdb.bounded.index.filter.block.ratio";
+    public static final String BLOCK_SIZE_BYTES_CONFIG = "rocksdb.bounded.block.size.bytes";
+    public static final String MAX_WRITE_BUFFERS_CONFIG = "rocksdb.bounded.max.write.buffers";
+    public static final String BLOOM_FILTER_BITS_PER_KEY_CONFIG = "rocksdb.bounded.bloom.filter.bits.per.key";
+
+    private static Cache cache;
+    private static WriteBufferManager writeBufferManager;
+
+    private BloomFilter filter;
+
+    @Override
+    public void setConfig(String storeName, Options options, Map<String, Object> configs) {
+        initSharedResources(configs);
+
+        int maxWriteBuffers = (int) getLong(configs, MAX_WRITE_BUFFERS_CONFIG, 3);
+        long totalMemtableBytes = getLong(configs, TOTAL_MEMTABLE_BYTES_CONFIG, 32 * 1024 * 1024L);
+
+        BlockBasedTableConfig tableConfig = (BlockBasedTableConfig) options.tableFormatConfig();
+        tableConfig.setBlockCache(cache);
+        tableConfig.setCacheIndexAndFilterBlocks(true);
+        tableConfig.setCacheIndexAndFilterBlocksWithHighPriority(true);
+        tableConfig.setPinTopLevelIndexAndFilter(true);
+        tableConfig.setBlockSize(getLong(configs, BLOCK_SIZE_BYTES_CONFIG, 4096));
+
+        filter = new BloomFilter(getDouble(configs, BLOOM_FILTER_BITS_PER_KEY_CONFIG, 10.0));
+        tableConfig.setFilterPolicy(filter);
+
+        options.setWriteBufferManager(writeBufferManager);
+        options.setMaxWriteBufferNumber(maxWriteBuffers);
+        options.setWriteBufferSize(totalMemtableBytes / maxWriteBuffers);
+        options.setTableFormatConfig(tableConfig);
+    }
+
+    @Override
+    public void close(String storeName, Options options) {
+        // The cache and write buffer manager are shared by every store, so only the per-store filter is closed
+        if (filter != null) {
+            filter.close();
+        }
+    }
+
+    private static synchronized void initSharedResources(Map<String, Object> configs) {
+        if (cache != null) {
+            return;
+        }
+        long totalOffHeapBytes = getLong(configs, TOTAL_OFF_HEAP_BYTES_CONFIG, 128 * 1024 * 1024L);
+        long totalMemtableBytes = getLong(configs, TOTAL_MEMTABLE_BYTES_CONFIG, 32 * 1024 * 1024L);
+        double indexFilterBlockRatio = getDouble(configs, INDEX_FILTER_BLOCK_RATIO_CONFIG, 0.1);
+
+        cache = new LRUCache(totalOffHeapBytes, -1, false, indexFilterBlockRatio);
+        writeBufferManager = new WriteBufferManager(totalMemtableBytes, cache);
+    }
+
+    private static long getLong(Map<String, Object> configs, String key, long defaultValue) {
+        Object value = configs.get(key);
+        return value == null ? defaultValue : Long.parseLong(value.toString());
+    }
+
+    private static double getDouble(Map<String, Object> configs, String key, double defaultValue) {
+        Object value = configs.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value.toString());
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.kafka.config;
 
-import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import com.example.kafka.listener.PartitionStateRebalanceListener;
+import com.example.kafka.serde.OrderAvroDeserializer;
 import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -29,25 +31,91 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.consumer.properties.schema.registry.url}")
     private String schemaRegistryUrl;
 
+    @Value("${kafka.listener.concurrency}")
+    private int listenerConcurrency;
+
+    @Value("${kafka.listener.shutdown-timeout-ms}")
+    private long listenerShutdownTimeoutMs;
+
+    @Value("${kafka.feed.auto-offset-reset}")
+    private String feedAutoOffsetReset;
+
+    @Value("${kafka.consumer.group-instance-id}")
+    private String groupInstanceId;
+
+    @Value("${kafka.consumer.session-timeout-ms}")
+    private int sessionTimeoutMs;
+
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, KafkaAvroDeserializer.class);
+        // Resolves each writer schema version once against the Order class schema
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, OrderAvroDeserializer.class);
         props.put(KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG, schemaRegistryUrl);
-        props.put(KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        addMembershipProps(props, groupInstanceId, sessionTimeoutMs);
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory(
+            PartitionStateRebalanceListener rebalanceListener) {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(listenerConcurrency);
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // How long stop() waits for the current record to finish before the final offset commit
+        factory.getContainerProperties().setShutdownTimeout(listenerShutdownTimeoutMs);
+        factory.getContainerProperties().setConsumerRebalanceListener(rebalanceListener);
+        // Continues the trace from the record headers; containers created from this factory (tenants) inherit it
+        factory.getContainerProperties().setObservationEnabled(true);
         return factory;
     }
+
+    // Plain String consumers for the JSON aggregates written by the Streams app; no group, partitions are assigned
+    @Bean
+    public ConsumerFactory<String, String> aggregatedConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, feedAutoOffsetReset);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> aggregatedListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(aggregatedConsumerFactory());
+        // Without a group there is nothing to commit to
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setObservationEnabled(true);
+        return factory;
+    }
+
+    @Bean
+    public PartitionFinder partitionFinder() {
+        return new PartitionFinder(aggregatedConsumerFactory());
+    }
+
+    /**
+     * Cooperative-sticky assignment only moves the partitions that change owner, so the rest of the group
+     * keeps consuming through a rebalance. With a group.instance.id the member is static: a restart within
+     * the session timeout gets its partitions back without any rebalance. The container suffixes the id
+     * per consumer when concurrency is above one. A static member that stops for good keeps its partitions
+     * until the session times out, which also applies when the adaptive controller scales down.
+     */
+    static void addMembershipProps(Map<String, Object> props, String groupInstanceId, int sessionTimeoutMs) {
+        props.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, CooperativeStickyAssignor.class.getName());
+        props.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, sessionTimeoutMs);
+        if (groupInstanceId != null && !groupInstanceId.isBlank()) {
+            props.put(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG, groupInstanceId);
+        }
+    }
 }
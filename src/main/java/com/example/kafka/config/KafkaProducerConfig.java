@@ -1,14 +1,18 @@
 package com.example.kafka.config;
 
+import com.example.kafka.catalog.ProductCatalogEntry;
+import com.example.kafka.chaos.BrokerDelayInterceptor;
 import io.confluent.kafka.serializers.KafkaAvroSerializer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -22,7 +26,21 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.producer.properties.schema.registry.url}")
     private String schemaRegistryUrl;
 
+    @Value("${kafka.producer.max-block-ms}")
+    private long maxBlockMs;
+
+    @Value("${kafka.retry.producer.buffer-memory}")
+    private long retryBufferMemory;
+
+    @Value("${kafka.retry.producer.max-block-ms}")
+    private long retryMaxBlockMs;
+
+    // Simulated broker slowness on the order and retry producers; 0 leaves them untouched
+    @Value("${kafka.chaos.broker-delay-ms}")
+    private long chaosBrokerDelayMs;
+
     @Bean
+    @Primary
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
@@ -32,11 +50,68 @@ public class KafkaProducerConfig {
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
         configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 1);
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+        addBrokerDelay(configProps);
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
     @Bean
+    @Primary
     public KafkaTemplate<String, Object> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+        return tracedTemplate(producerFactory());
+    }
+
+    // Separate producer for retry/DLQ/parking sends so they cannot fill the buffer used for new orders
+    @Bean
+    public ProducerFactory<String, Object> retryProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
+        configProps.put("schema.registry.url", schemaRegistryUrl);
+        configProps.put(ProducerConfig.CLIENT_ID_CONFIG, "retry-producer");
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
+        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 1);
+        configProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, retryBufferMemory);
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, retryMaxBlockMs);
+        addBrokerDelay(configProps);
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public KafkaTemplate<String, Object> retryKafkaTemplate() {
+        return tracedTemplate(retryProducerFactory());
+    }
+
+    @Bean
+    public ProducerFactory<String, ProductCatalogEntry> catalogProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        configProps.put(ProducerConfig.CLIENT_ID_CONFIG, "catalog-producer");
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public KafkaTemplate<String, ProductCatalogEntry> catalogKafkaTemplate() {
+        return tracedTemplate(catalogProducerFactory());
+    }
+
+    private void addBrokerDelay(Map<String, Object> configProps) {
+        if (chaosBrokerDelayMs > 0) {
+            configProps.put(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG, BrokerDelayInterceptor.class.getName());
+            configProps.put(BrokerDelayInterceptor.DELAY_MS_CONFIG, chaosBrokerDelayMs);
+        }
+    }
+
+    // Each send gets a producer span and carries the current trace context in its headers
+    private static <V> KafkaTemplate<String, V> tracedTemplate(ProducerFactory<String, V> producerFactory) {
+        KafkaTemplate<String, V> template = new KafkaTemplate<>(producerFactory);
+        template.setObservationEnabled(true);
+        return template;
     }
 }
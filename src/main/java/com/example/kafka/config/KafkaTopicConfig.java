@@ -2,6 +2,7 @@ package com.example.kafka.config;
 
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -28,30 +29,77 @@ public class KafkaTopicConfig {
     @Value("${kafka.topic.aggregated}")
     private String aggregatedTopic;
 
+    @Value("${kafka.topic.parking}")
+    private String parkingTopic;
+
+    @Value("${kafka.topic.catalog}")
+    private String catalogTopic;
+
+    // Off when topics are managed outside the app (and for the CDS training run), saving the startup admin round trip
+    @Value("${kafka.admin.auto-create}")
+    private boolean autoCreateTopics;
+
+    @Value("${kafka.admin.operation-timeout-seconds}")
+    private int adminOperationTimeoutSeconds;
+
     @Bean
     public KafkaAdmin kafkaAdmin() {
         Map<String, Object> configs = new HashMap<>();
         configs.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        return new KafkaAdmin(configs);
+        KafkaAdmin kafkaAdmin = new KafkaAdmin(configs);
+        // All NewTopic beans are checked and created in one batched describe/create call
+        kafkaAdmin.setAutoCreate(autoCreateTopics);
+        kafkaAdmin.setOperationTimeout(adminOperationTimeoutSeconds);
+        return kafkaAdmin;
+    }
+
+    @Bean
+    public NewTopic ordersTopic(@Value("${kafka.topic.partitions.orders:${kafka.topic.default-partitions}}") int partitions,
+            @Value("${kafka.topic.replication-factor.orders:${kafka.topic.default-replication-factor}}") short replicationFactor) {
+        return newTopic(ordersTopic, partitions, replicationFactor);
     }
 
     @Bean
-    public NewTopic ordersTopic() {
-        return new NewTopic(ordersTopic, 3, (short) 1);
+    public NewTopic retryTopic(@Value("${kafka.topic.partitions.retry:${kafka.topic.default-partitions}}") int partitions,
+            @Value("${kafka.topic.replication-factor.retry:${kafka.topic.default-replication-factor}}") short replicationFactor) {
+        return newTopic(retryTopic, partitions, replicationFactor);
     }
 
     @Bean
-    public NewTopic retryTopic() {
-        return new NewTopic(retryTopic, 3, (short) 1);
+    public NewTopic dlqTopic(@Value("${kafka.topic.partitions.dlq:${kafka.topic.default-partitions}}") int partitions,
+            @Value("${kafka.topic.replication-factor.dlq:${kafka.topic.default-replication-factor}}") short replicationFactor) {
+        return newTopic(dlqTopic, partitions, replicationFactor);
     }
 
     @Bean
-    public NewTopic dlqTopic() {
-        return new NewTopic(dlqTopic, 3, (short) 1);
+    public NewTopic aggregatedTopic(@Value("${kafka.topic.partitions.aggregated:${kafka.topic.default-partitions}}") int partitions,
+            @Value("${kafka.topic.replication-factor.aggregated:${kafka.topic.default-replication-factor}}") short replicationFactor) {
+        return newTopic(aggregatedTopic, partitions, replicationFactor);
     }
 
     @Bean
-    public NewTopic aggregatedTopic() {
-        return new NewTopic(aggregatedTopic, 3, (short) 1);
+    public NewTopic parkingTopic(@Value("${kafka.topic.partitions.parking:${kafka.topic.default-partitions}}") int partitions,
+            @Value("${kafka.topic.replication-factor.parking:${kafka.topic.default-replication-factor}}") short replicationFactor) {
+        return newTopic(parkingTopic, partitions, replicationFactor);
+    }
+
+    // Compacted so the latest entry per product is kept forever and the GlobalKTable can always rebuild;
+    // one partition is enough since every instance reads all of it anyway
+    @Bean
+    public NewTopic catalogTopic(@Value("${kafka.topic.replication-factor.catalog:${kafka.topic.default-replication-factor}}") short replicationFactor) {
+        return newTopic(catalogTopic, 1, replicationFactor)
+                .configs(Map.of(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT,
+                        TopicConfig.MIN_IN_SYNC_REPLICAS_CONFIG, String.valueOf(minInSyncReplicas(replicationFactor))));
+    }
+
+    // With acks=all, min.insync.replicas of RF-1 (at most 2) survives one broker loss without accepting
+    // writes that only a single replica holds
+    private static NewTopic newTopic(String name, int partitions, short replicationFactor) {
+        return new NewTopic(name, partitions, replicationFactor)
+                .configs(Map.of(TopicConfig.MIN_IN_SYNC_REPLICAS_CONFIG, String.valueOf(minInSyncReplicas(replicationFactor))));
+    }
+
+    private static int minInSyncReplicas(short replicationFactor) {
+        return Math.max(1, Math.min(2, replicationFactor - 1));
     }
 }
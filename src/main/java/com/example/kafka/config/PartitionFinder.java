@@ -0,0 +1,35 @@
+package com.example.kafka.config;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Lists a topic's partitions for listeners that assign themselves every partition instead of joining a group.
+ * Resolved once, when the endpoint is registered: partitions added later are not read until the JVM restarts,
+ * so topics read this way are not offered for online expansion.
+ * On a first start the topic may not exist yet, in which case its configured partition count is used.
+ */
+public class PartitionFinder {
+
+    private final ConsumerFactory<String, String> consumerFactory;
+
+    public PartitionFinder(ConsumerFactory<String, String> consumerFactory) {
+        this.consumerFactory = consumerFactory;
+    }
+
+    public String[] partitions(String topic, int configuredPartitions) {
+        try (Consumer<String, String> consumer = consumerFactory.createConsumer()) {
+            List<PartitionInfo> partitions = consumer.partitionsFor(topic);
+            if (partitions == null || partitions.isEmpty()) {
+                return IntStream.range(0, configuredPartitions).mapToObj(String::valueOf).toArray(String[]::new);
+            }
+            return partitions.stream()
+                    .map(partition -> String.valueOf(partition.partition()))
+                    .toArray(String[]::new);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.kafka.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.processor.StateRestoreListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long each state store partition takes to restore from its changelog,
+ * so failover time can be compared across store types and standby settings.
+ */
+@Slf4j
+@Component
+public class StateRestoreTimingListener implements StateRestoreListener {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<TopicPartition, Long> restoreStartNanos = new ConcurrentHashMap<>();
+
+    public StateRestoreTimingListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void onRestoreStart(TopicPartition topicPartition, String storeName, long startingOffset, long endingOffset) {
+        restoreStartNanos.put(topicPartition, System.nanoTime());
+        log.info("Restore started: Store={}, Partition={}, Records to restore={}",
+                storeName, topicPartition, endingOffset - startingOffset);
+    }
+
+    @Override
+    public void onBatchRestored(TopicPartition topicPartition, String storeName, long batchEndOffset, long numRestored) {
+    }
+
+    @Override
+    public void onRestoreEnd(TopicPartition topicPartition, String storeName, long totalRestored) {
+        Long start = restoreStartNanos.remove(topicPartition);
+        if (start == null) {
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        Timer.builder("kafka.streams.restore.duration")
+                .tag("store", storeName)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        log.info("Restore finished: Store={}, Partition={}, Restored={}, Time={}ms",
+                storeName, topicPartition, totalRestored, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.kafka.config;
+
+import com.example.kafka.lifecycle.IngestionGateInterceptor;
+import com.example.kafka.ratelimit.RateLimitInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private static final String[] ORDER_SEND_PATHS = { "/api/orders", "/api/orders/send", "/api/orders/send-multiple" };
+
+    private final IngestionGateInterceptor ingestionGateInterceptor;
+    private final RateLimitInterceptor rateLimitInterceptor;
+
+    public WebConfig(IngestionGateInterceptor ingestionGateInterceptor, RateLimitInterceptor rateLimitInterceptor) {
+        this.ingestionGateInterceptor = ingestionGateInterceptor;
+        this.rateLimitInterceptor = rateLimitInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(ingestionGateInterceptor).addPathPatterns(ORDER_SEND_PATHS);
+        // After the shutdown gate, so requests refused during shutdown do not spend rate-limit permits
+        registry.addInterceptor(rateLimitInterceptor).addPathPatterns(ORDER_SEND_PATHS);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.kafka.controller;
+
+import com.example.kafka.chaos.FaultInjector;
+import com.example.kafka.chaos.FaultProfile;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Only registered when fault injection is enabled, so production has no way to turn it on at runtime
+@RestController
+@RequestMapping("/api/admin/chaos")
+@ConditionalOnProperty(name = "kafka.chaos.enabled", havingValue = "true")
+public class ChaosController {
+
+    private final FaultInjector faultInjector;
+
+    public ChaosController(FaultInjector faultInjector) {
+        this.faultInjector = faultInjector;
+    }
+
+    @GetMapping
+    public ResponseEntity<FaultProfile> getProfile() {
+        return ResponseEntity.ok(faultInjector.getProfile());
+    }
+
+    // Changes the given settings and keeps the others, e.g. PUT /api/admin/chaos?failureRate=0.5&products=Laptop
+    @PutMapping
+    public ResponseEntity<?> updateProfile(@RequestParam(required = false) Double failureRate,
+            @RequestParam(required = false) Long latencyMs,
+            @RequestParam(required = false) Double latencyRate,
+            @RequestParam(required = false) List<String> products,
+            @RequestParam(required = false) List<String> hops) {
+        FaultProfile current = faultInjector.getProfile();
+        try {
+            FaultProfile updated = new FaultProfile(
+                    failureRate != null ? failureRate : current.failureRate(),
+                    latencyMs != null ? latencyMs : current.latencyMs(),
+                    latencyRate != null ? latencyRate : current.latencyRate(),
+                    products != null ? Set.copyOf(products) : current.products(),
+                    hops != null ? Set.copyOf(hops) : current.hops());
+            faultInjector.setProfile(updated);
+            return ResponseEntity.ok(updated);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.kafka.controller;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import java.util.Map;
+
+/**
+ * Thrown while binding an {@link OrderRequest}, carrying every invalid field rather than only the first.
+ */
+public class InvalidOrderRequestException extends JsonMappingException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Map<String, String> fieldErrors;
+
+    public InvalidOrderRequestException(JsonParser parser, Map<String, String> fieldErrors) {
+        super(parser, "Invalid order data: " + fieldErrors);
+        this.fieldErrors = fieldErrors;
+    }
+
+    public Map<String, String> getFieldErrors() {
+        return fieldErrors;
+    }
+}
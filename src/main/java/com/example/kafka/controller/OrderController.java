@@ -1,15 +1,37 @@
 package com.example.kafka.controller;
 
+import com.example.kafka.aggregation.AggregateTotals;
+import com.example.kafka.aggregation.ProductPriceStats;
+import com.example.kafka.aggregation.WindowedProductPriceStats;
+import com.example.kafka.avro.Order;
+import com.example.kafka.reconcile.AggregateReconciler;
+import com.example.kafka.reconcile.ReconciliationReport;
+import com.example.kafka.services.AggregatedFeedService;
 import com.example.kafka.services.DLQConsumerService;
 import com.example.kafka.services.PriceAggregationService;
 import com.example.kafka.services.OrderProducerService;
+import com.example.kafka.services.ProductStatsQueryService;
+import com.example.kafka.services.StatsSnapshotPublisher;
+import com.example.kafka.snapshot.AggregationSnapshotService;
+import com.example.kafka.tenant.Tenant;
+import com.example.kafka.tenant.TenantRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Slf4j
 @RestController
@@ -19,54 +41,76 @@ public class OrderController {
     private final OrderProducerService producerService;
     private final PriceAggregationService priceAggregationService;
     private final DLQConsumerService dlqConsumerService;
+    private final ProductStatsQueryService productStatsQueryService;
+    private final StatsSnapshotPublisher statsSnapshotPublisher;
+    private final AggregatedFeedService aggregatedFeedService;
+    private final TenantRegistry tenantRegistry;
+    private final ObjectProvider<AggregateReconciler> aggregateReconciler;
+    private final ObjectProvider<AggregationSnapshotService> aggregationSnapshots;
 
     public OrderController(OrderProducerService producerService,
             PriceAggregationService priceAggregationService,
-            DLQConsumerService dlqConsumerService) {
+            DLQConsumerService dlqConsumerService,
+            ProductStatsQueryService productStatsQueryService,
+            StatsSnapshotPublisher statsSnapshotPublisher,
+            AggregatedFeedService aggregatedFeedService,
+            TenantRegistry tenantRegistry,
+            ObjectProvider<AggregateReconciler> aggregateReconciler,
+            ObjectProvider<AggregationSnapshotService> aggregationSnapshots) {
         this.producerService = producerService;
         this.priceAggregationService = priceAggregationService;
         this.dlqConsumerService = dlqConsumerService;
+        this.productStatsQueryService = productStatsQueryService;
+        this.statsSnapshotPublisher = statsSnapshotPublisher;
+        this.aggregatedFeedService = aggregatedFeedService;
+        this.tenantRegistry = tenantRegistry;
+        this.aggregateReconciler = aggregateReconciler;
+        this.aggregationSnapshots = aggregationSnapshots;
     }
 
     // Send a specific order with JSON payload
     @PostMapping
-    public ResponseEntity<Map<String, String>> sendOrder(@RequestBody Map<String, Object> orderData) {
-        try {
-            String orderId = (String) orderData.get("orderId");
-            String product = (String) orderData.get("product");
-
-            Object priceObj = orderData.get("price");
-            float price;
-            if (priceObj instanceof Double) {
-                price = ((Double) priceObj).floatValue();
-            } else if (priceObj instanceof Float) {
-                price = (Float) priceObj;
-            } else if (priceObj instanceof Integer) {
-                price = ((Integer) priceObj).floatValue();
-            } else {
-                price = Float.parseFloat(priceObj.toString());
-            }
-
-            producerService.sendSpecificOrder(orderId, product, price);
-
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "Order sent successfully");
-            response.put("orderId", orderId);
-            response.put("product", product);
-            response.put("price", String.valueOf(price));
-            return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
-            Map<String, String> error = new HashMap<>();
-            error.put("error", "Invalid order data: " + e.getMessage());
-            return ResponseEntity.badRequest().body(error);
+    public ResponseEntity<Map<String, String>> sendOrder(@RequestBody OrderRequest request,
+            @RequestHeader(name = TenantRegistry.TENANT_REQUEST_HEADER, required = false) String tenantId) {
+        Optional<Tenant> tenant = tenantRegistry.find(tenantId);
+        if (tenant.isEmpty()) {
+            return unknownTenant(tenantId);
         }
+        Order order = request.toOrder();
+        producerService.sendSpecificOrder(tenant.get().ordersTopic(), order);
+
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Order sent successfully");
+        response.put("orderId", request.orderId());
+        response.put("product", request.product());
+        response.put("price", BigDecimal.valueOf(request.priceMinor(), request.fractionDigits()).toPlainString());
+        response.put("quantity", String.valueOf(request.quantity()));
+        response.put("currency", request.currency());
+        return ResponseEntity.ok(response);
+    }
+
+    // Field-level errors from OrderRequestDeserializer, or a body that is not JSON at all
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<Map<String, Object>> handleUnreadableBody(HttpMessageNotReadableException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "Invalid order data");
+        if (e.getMostSpecificCause() instanceof InvalidOrderRequestException invalid) {
+            error.put("fields", invalid.getFieldErrors());
+        } else {
+            error.put("fields", Map.of("body", "is not valid JSON"));
+        }
+        return ResponseEntity.badRequest().body(error);
     }
 
     // Send a single random order to Kafka
     @PostMapping("/send")
-    public ResponseEntity<Map<String, String>> sendSingleOrder() {
-        producerService.sendOrder();
+    public ResponseEntity<Map<String, String>> sendSingleOrder(
+            @RequestHeader(name = TenantRegistry.TENANT_REQUEST_HEADER, required = false) String tenantId) {
+        Optional<Tenant> tenant = tenantRegistry.find(tenantId);
+        if (tenant.isEmpty()) {
+            return unknownTenant(tenantId);
+        }
+        producerService.sendOrder(tenant.get().ordersTopic());
         Map<String, String> response = new HashMap<>();
         response.put("message", "Order sent successfully");
         return ResponseEntity.ok(response);
@@ -75,14 +119,19 @@ public class OrderController {
     // Send multiple random orders to Kafka
     @PostMapping("/send-multiple")
     public ResponseEntity<Map<String, String>> sendMultipleOrders(
-            @RequestParam(defaultValue = "10") int count) {
+            @RequestParam(defaultValue = "10") int count,
+            @RequestHeader(name = TenantRegistry.TENANT_REQUEST_HEADER, required = false) String tenantId) {
         if (count < 1 || count > 1000) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Count must be between 1 and 1000");
             return ResponseEntity.badRequest().body(error);
         }
+        Optional<Tenant> tenant = tenantRegistry.find(tenantId);
+        if (tenant.isEmpty()) {
+            return unknownTenant(tenantId);
+        }
 
-        producerService.sendMultipleOrders(count);
+        producerService.sendMultipleOrders(tenant.get().ordersTopic(), count);
         Map<String, String> response = new HashMap<>();
         response.put("message", count + " orders sent successfully");
         return ResponseEntity.ok(response);
@@ -96,36 +145,113 @@ public class OrderController {
      * - Failed orders count
      */
     @GetMapping("/stats")
-    public ResponseEntity<Map<String, Object>> getOrderStats() {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalOrders", priceAggregationService.getOrderCount());
-        stats.put("totalPrice", String.format("%.2f", priceAggregationService.getTotalPrice()));
-        stats.put("runningAverage", String.format("%.2f", priceAggregationService.getRunningAverage().get()));
-        stats.put("failedOrders", dlqConsumerService.getFailedOrderCount());
+    public ResponseEntity<byte[]> getOrderStats() {
+        return snapshotResponse(statsSnapshotPublisher.getStatsSnapshot());
+    }
+
+    // Stream stats updates as server-sent events whenever they change
+    @GetMapping(path = "/stats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderStats() {
+        return statsSnapshotPublisher.subscribe();
+    }
+
+    // Live per-product aggregates from the order-aggregated topic, latest value per product
+    @GetMapping(path = "/aggregates/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAggregates() {
+        return aggregatedFeedService.subscribe();
+    }
+
+    /**
+     * Get per-product price distribution from the Streams aggregate store
+     * - Count, average, min and max price
+     * - p50 / p95 / p99 price
+     * - Estimated distinct orders
+     */
+    @GetMapping("/stats/products/{product}")
+    public ResponseEntity<ProductPriceStats> getProductStats(@PathVariable String product) {
+        try {
+            return productStatsQueryService.getProductStats(product)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalStateException | InvalidStateStoreException e) {
+            log.warn("Product stats store not queryable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    // Get event-time windows for one product over the last N minutes
+    @GetMapping("/stats/products/{product}/windows")
+    public ResponseEntity<List<WindowedProductPriceStats>> getWindowedProductStats(@PathVariable String product,
+            @RequestParam(defaultValue = "60") long minutes) {
+        Instant to = Instant.now();
+        try {
+            return ResponseEntity.ok(productStatsQueryService.getWindowedStats(
+                    product, to.minus(Duration.ofMinutes(minutes)), to));
+        } catch (IllegalStateException | InvalidStateStoreException e) {
+            log.warn("Product stats store not queryable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
 
-        return ResponseEntity.ok(stats);
+    // Get price distribution for all products held by this instance
+    @GetMapping("/stats/products")
+    public ResponseEntity<List<ProductPriceStats>> getAllProductStats(
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return ResponseEntity.ok(productStatsQueryService.getAllProductStats(limit));
+        } catch (IllegalStateException | InvalidStateStoreException e) {
+            log.warn("Product stats store not queryable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    // Drift of the listener and Streams aggregates over the last reconciled offset range
+    @GetMapping("/stats/reconciliation")
+    public ResponseEntity<ReconciliationReport> getReconciliation() {
+        AggregateReconciler reconciler = aggregateReconciler.getIfAvailable();
+        if (reconciler == null || reconciler.getLastReport() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(reconciler.getLastReport());
     }
 
     // Get all failed orders from DLQ
     @GetMapping("/failed")
-    public ResponseEntity<Map<String, Object>> getFailedOrders() {
-        List<DLQConsumerService.FailedOrder> failedOrders = dlqConsumerService.getFailedOrders();
-        Map<String, Object> response = new HashMap<>();
-        response.put("count", failedOrders.size());
-        response.put("failedOrders", failedOrders);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<byte[]> getFailedOrders() {
+        return snapshotResponse(statsSnapshotPublisher.getFailedSnapshot());
     }
 
-    // Reset all statistics and clear DLQ
+    // Reset all statistics and clear DLQ; the cleared totals are kept for POST /stats/reset/undo
     @DeleteMapping("/stats/reset")
     public ResponseEntity<Map<String, String>> resetStats() {
         priceAggregationService.reset();
+        // Persist the reset right away, together with the cleared totals, so a restart neither brings back
+        // the old totals nor loses the undo
+        aggregationSnapshots.ifAvailable(AggregationSnapshotService::snapshot);
         dlqConsumerService.clearFailedOrders();
+        statsSnapshotPublisher.refresh();
         Map<String, String> response = new HashMap<>();
         response.put("message", "Statistics reset successfully");
         return ResponseEntity.ok(response);
     }
 
+    // Add back the totals cleared by resets since the last undo; the cleared failed-orders list is not restored
+    @PostMapping("/stats/reset/undo")
+    public ResponseEntity<Map<String, String>> undoResetStats() {
+        AggregateTotals restored = priceAggregationService.undoReset();
+        Map<String, String> response = new HashMap<>();
+        if (restored.equals(AggregateTotals.ZERO)) {
+            response.put("error", "No reset to undo");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        aggregationSnapshots.ifAvailable(AggregationSnapshotService::snapshot);
+        statsSnapshotPublisher.refresh();
+        response.put("message", "Statistics reset undone");
+        response.put("restoredOrderCount", String.valueOf(restored.count()));
+        response.put("restoredQuantity", String.valueOf(restored.quantity()));
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> healthCheck() {
         Map<String, String> health = new HashMap<>();
@@ -133,4 +259,18 @@ public class OrderController {
         health.put("service", "Kafka Order System");
         return ResponseEntity.ok(health);
     }
+
+    // Spring answers 304 Not Modified on its own when If-None-Match matches the ETag
+    private ResponseEntity<byte[]> snapshotResponse(StatsSnapshotPublisher.Snapshot snapshot) {
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot.body());
+    }
+
+    private static ResponseEntity<Map<String, String>> unknownTenant(String tenantId) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Unknown tenant: " + tenantId);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    }
 }
@@ -0,0 +1,25 @@
+package com.example.kafka.controller;
+
+import com.example.kafka.avro.Order;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Body of POST /api/orders. Bound by {@link OrderRequestDeserializer}, which has already validated every
+ * field and resolved the price into minor units of the currency, so this maps straight onto the builder.
+ */
+@JsonDeserialize(using = OrderRequestDeserializer.class)
+public record OrderRequest(String orderId, String product, long priceMinor, int fractionDigits,
+        int quantity, String currency, long orderTimestamp) {
+
+    public Order toOrder() {
+        return Order.newBuilder()
+                .setOrderId(orderId)
+                .setProduct(product)
+                .setPrice((float) (priceMinor / Math.pow(10, fractionDigits)))
+                .setPriceMinor(priceMinor)
+                .setQuantity(quantity)
+                .setCurrency(currency)
+                .setOrderTimestamp(orderTimestamp)
+                .build();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.kafka.controller;
+
+import com.example.kafka.currency.FxRates;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streams an {@link OrderRequest} straight off the parser tokens: no intermediate Map or tree, no
+ * reflection, and the price is read as an exact decimal instead of going through a float.
+ * Unknown fields are skipped; all field errors are collected and reported together.
+ * Created through Spring's handler instantiator, which supplies the {@link FxRates} that decide which
+ * currencies are accepted.
+ */
+public class OrderRequestDeserializer extends StdDeserializer<OrderRequest> {
+
+    private static final long serialVersionUID = 1L;
+    private static final String DEFAULT_CURRENCY = "USD";
+
+    private final transient FxRates fxRates;
+
+    public OrderRequestDeserializer(FxRates fxRates) {
+        super(OrderRequest.class);
+        this.fxRates = fxRates;
+    }
+
+    @Override
+    public OrderRequest deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        Map<String, String> errors = new LinkedHashMap<>();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            errors.put("body", "must be a JSON object");
+            throw new InvalidOrderRequestException(parser, errors);
+        }
+
+        String orderId = null;
+        String product = null;
+        BigDecimal price = null;
+        int quantity = 1;
+        String currency = DEFAULT_CURRENCY;
+        long orderTimestamp = System.currentTimeMillis();
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "orderId" -> orderId = readText(parser, field, errors);
+                case "product" -> product = readText(parser, field, errors);
+                case "currency" -> currency = readText(parser, field, errors);
+                case "price" -> price = readDecimal(parser, errors);
+                case "quantity" -> quantity = (int) readLong(parser, field, 1, Integer.MAX_VALUE, errors);
+                case "orderTimestamp" -> orderTimestamp = readLong(parser, field, 0, Long.MAX_VALUE, errors);
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (orderId == null || orderId.isBlank()) {
+            errors.putIfAbsent("orderId", "is required");
+        }
+        if (product == null || product.isBlank()) {
+            errors.putIfAbsent("product", "is required");
+        }
+        int fractionDigits = 0;
+        if (currency != null) {
+            try {
+                fractionDigits = FxRates.fractionDigits(currency);
+                if (!fxRates.supports(currency)) {
+                    errors.putIfAbsent("currency", "is not supported");
+                }
+            } catch (IllegalArgumentException e) {
+                errors.putIfAbsent("currency", "is not an ISO 4217 code");
+            }
+        }
+        long priceMinor = 0;
+        if (price == null) {
+            errors.putIfAbsent("price", "is required");
+        } else if (!errors.containsKey("currency")) {
+            priceMinor = toMinor(price, fractionDigits, currency, errors);
+        }
+
+        if (!errors.isEmpty()) {
+            throw new InvalidOrderRequestException(parser, errors);
+        }
+        return new OrderRequest(orderId, product, priceMinor, fractionDigits, quantity, currency, orderTimestamp);
+    }
+
+    private static String readText(JsonParser parser, String field, Map<String, String> errors) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            errors.put(field, "must be a string");
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+
+    private static BigDecimal readDecimal(JsonParser parser, Map<String, String> errors) throws IOException {
+        JsonToken token = parser.currentToken();
+        try {
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return parser.getDecimalValue();
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                return new BigDecimal(parser.getText().trim());
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        errors.put("price", "must be a decimal number");
+        parser.skipChildren();
+        return null;
+    }
+
+    private static long readLong(JsonParser parser, String field, long min, long max,
+            Map<String, String> errors) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_NUMBER_INT
+                || parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+            errors.put(field, "must be an integer");
+            parser.skipChildren();
+            return min;
+        }
+        long value = parser.getLongValue();
+        if (value < min || value > max) {
+            errors.put(field, "must be between " + min + " and " + max);
+        }
+        return value;
+    }
+
+    private static long toMinor(BigDecimal price, int fractionDigits, String currency, Map<String, String> errors) {
+        if (price.signum() < 0) {
+            errors.put("price", "must not be negative");
+            return 0;
+        }
+        try {
+            return price.movePointRight(fractionDigits).longValueExact();
+        } catch (ArithmeticException e) {
+            errors.put("price", "must have at most " + fractionDigits + " decimal places for " + currency
+                    + " and fit in a long");
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.kafka.controller;
+
+import com.example.kafka.services.ParkingLotService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/parking")
+public class ParkingController {
+
+    private final ParkingLotService parkingLotService;
+
+    public ParkingController(ParkingLotService parkingLotService) {
+        this.parkingLotService = parkingLotService;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getBacklog() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("parkedOrders", parkingLotService.backlog());
+        return ResponseEntity.ok(response);
+    }
+
+    // Moves parked orders to the retry topic, e.g. POST /api/admin/parking/redrive?max=1000
+    @PostMapping("/redrive")
+    public ResponseEntity<?> redrive(@RequestParam(defaultValue = "1000") int max) {
+        if (max < 1) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "max must be positive");
+            return ResponseEntity.badRequest().body(error);
+        }
+        try {
+            return ResponseEntity.ok(parkingLotService.redrive(max));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while redriving parked orders");
+        } catch (Exception e) {
+            log.error("Parking redrive failed: {}", e.getMessage());
+            return error(HttpStatus.BAD_GATEWAY, "Redrive failed, parked orders left in place: " + e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<Map<String, String>> error(HttpStatus status, String message) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", message);
+        return ResponseEntity.status(status).body(error);
+    }
+}
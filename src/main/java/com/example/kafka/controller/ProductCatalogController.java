@@ -0,0 +1,48 @@
+package com.example.kafka.controller;
+
+import com.example.kafka.catalog.ProductCatalogCache;
+import com.example.kafka.catalog.ProductCatalogEntry;
+import com.example.kafka.catalog.ProductCatalogService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/catalog")
+public class ProductCatalogController {
+
+    private final ProductCatalogService productCatalogService;
+    private final ProductCatalogCache productCatalogCache;
+
+    public ProductCatalogController(ProductCatalogService productCatalogService,
+            ProductCatalogCache productCatalogCache) {
+        this.productCatalogService = productCatalogService;
+        this.productCatalogCache = productCatalogCache;
+    }
+
+    @GetMapping("/{product}")
+    public ResponseEntity<ProductCatalogEntry> getEntry(@PathVariable String product) {
+        if (!productCatalogCache.isAvailable()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return productCatalogCache.lookup(product)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Upsert a catalog entry; every instance sees it once the GlobalKTable has consumed it
+    @PutMapping("/{product}")
+    public ResponseEntity<Map<String, String>> putEntry(@PathVariable String product,
+            @RequestParam String category,
+            @RequestParam BigDecimal referencePrice) {
+        productCatalogService.publish(new ProductCatalogEntry(product, category, referencePrice));
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Catalog entry published");
+        response.put("product", product);
+        return ResponseEntity.accepted().body(response);
+    }
+}
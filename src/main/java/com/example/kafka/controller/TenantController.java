@@ -0,0 +1,68 @@
+package com.example.kafka.controller;
+
+import com.example.kafka.services.PriceAggregationService;
+import com.example.kafka.tenant.Tenant;
+import com.example.kafka.tenant.TenantRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/tenants")
+public class TenantController {
+
+    private final TenantRegistry tenantRegistry;
+
+    public TenantController(TenantRegistry tenantRegistry) {
+        this.tenantRegistry = tenantRegistry;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Map<String, String>>> getTenants() {
+        return ResponseEntity.ok(tenantRegistry.getTenants().stream()
+                .map(tenant -> Map.of("tenant", tenant.id(), "ordersTopic", tenant.ordersTopic(),
+                        "retryTopic", tenant.retryTopic()))
+                .toList());
+    }
+
+    // Adds a tenant at runtime: creates its orders and retry topics and starts their listener containers
+    @PostMapping("/{tenantId}")
+    public ResponseEntity<Map<String, String>> registerTenant(@PathVariable String tenantId) {
+        Map<String, String> response = new HashMap<>();
+        try {
+            Tenant tenant = tenantRegistry.register(tenantId);
+            response.put("message", "Tenant registered");
+            response.put("tenant", tenant.id());
+            response.put("ordersTopic", tenant.ordersTopic());
+            response.put("retryTopic", tenant.retryTopic());
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+
+    // Running totals from the tenant's own listener aggregate
+    @GetMapping("/{tenantId}/stats")
+    public ResponseEntity<Map<String, String>> getTenantStats(@PathVariable String tenantId) {
+        return tenantRegistry.find(tenantId)
+                .map(tenant -> {
+                    PriceAggregationService aggregation = tenant.aggregation();
+                    Map<String, String> stats = new HashMap<>();
+                    stats.put("tenant", tenant.id());
+                    stats.put("orderCount", String.valueOf(aggregation.getOrderCount()));
+                    stats.put("totalQuantity", String.valueOf(aggregation.getTotalQuantity()));
+                    stats.put("totalPrice", aggregation.getTotalPrice().toPlainString());
+                    stats.put("runningAverage", aggregation.getRunningAverage().toPlainString());
+                    return ResponseEntity.ok(stats);
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.kafka.controller;
+
+import com.example.kafka.scaling.CapacityPlanner;
+import com.example.kafka.scaling.PartitionExpansion;
+import com.example.kafka.scaling.TopicCapacity;
+import com.example.kafka.scaling.TopicScalingService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/admin")
+public class TopicAdminController {
+
+    private final TopicScalingService topicScalingService;
+    private final CapacityPlanner capacityPlanner;
+
+    public TopicAdminController(TopicScalingService topicScalingService, CapacityPlanner capacityPlanner) {
+        this.topicScalingService = topicScalingService;
+        this.capacityPlanner = capacityPlanner;
+    }
+
+    // Adds partitions online and restarts the topic's listeners with one consumer per partition
+    @PostMapping("/topics/{topic}/partitions")
+    public ResponseEntity<?> expandPartitions(@PathVariable String topic, @RequestParam int count) {
+        try {
+            PartitionExpansion expansion = topicScalingService.expandPartitions(topic, count);
+            return ResponseEntity.ok(expansion);
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while expanding " + topic);
+        } catch (Exception e) {
+            log.error("Failed to expand topic {} to {} partitions: {}", topic, count, e.getMessage());
+            return error(HttpStatus.BAD_GATEWAY, "Failed to expand " + topic + ": " + e.getMessage());
+        }
+    }
+
+    // Per-partition lag against produce/consume throughput, and the partition count each topic needs
+    @GetMapping("/capacity")
+    public ResponseEntity<List<TopicCapacity>> getCapacity() {
+        return ResponseEntity.ok(capacityPlanner.report());
+    }
+
+    private static ResponseEntity<Map<String, String>> error(HttpStatus status, String message) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", message);
+        return ResponseEntity.status(status).body(error);
+    }
+}
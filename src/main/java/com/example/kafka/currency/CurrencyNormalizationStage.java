@@ -0,0 +1,58 @@
+package com.example.kafka.currency;
+
+import com.example.kafka.avro.Order;
+import com.example.kafka.pipeline.OrderRejection;
+import com.example.kafka.pipeline.OrderStage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Rewrites every order into the base currency with an exact priceMinor, so both aggregation paths
+ * only ever add longs in one currency. The float price is rewritten to match, so orders re-published to
+ * the retry and DLQ topics stay consistent. Runs before the other stages and is a no-op on an order that
+ * has already been normalized, so retries can pass through it again.
+ * Orders whose total exceeds max-order-total-minor are rejected here, which keeps the exact sums downstream
+ * from overflowing inside the listener or a Streams task.
+ */
+@Component
+@org.springframework.core.annotation.Order(0)
+public class CurrencyNormalizationStage implements OrderStage {
+
+    private final FxRates fxRates;
+    private final long maxOrderTotalMinor;
+    private final OrderRejection outOfRange;
+
+    public CurrencyNormalizationStage(FxRates fxRates,
+            @Value("${kafka.fx.max-order-total-minor}") long maxOrderTotalMinor) {
+        this.fxRates = fxRates;
+        this.maxOrderTotalMinor = maxOrderTotalMinor;
+        this.outOfRange = new OrderRejection("currency", "order total exceeds " + maxOrderTotalMinor
+                + " minor units of " + fxRates.getBaseCurrency());
+    }
+
+    @Override
+    public OrderRejection apply(Order order) {
+        String currency = order.getCurrency().toString();
+        if (!fxRates.supports(currency)) {
+            return new OrderRejection("currency", "unsupported currency " + currency);
+        }
+        long unitPriceMinor;
+        try {
+            unitPriceMinor = OrderAmounts.unitPriceMinor(order);
+            if (!currency.equals(fxRates.getBaseCurrency())) {
+                unitPriceMinor = fxRates.toBaseMinor(unitPriceMinor, currency);
+            }
+            if (Math.abs(Math.multiplyExact(unitPriceMinor, (long) order.getQuantity())) > maxOrderTotalMinor) {
+                return outOfRange;
+            }
+        } catch (ArithmeticException e) {
+            return outOfRange;
+        }
+        order.setCurrency(fxRates.getBaseCurrency());
+        order.setPriceMinor(unitPriceMinor);
+        order.setPrice(BigDecimal.valueOf(unitPriceMinor, fxRates.getBaseFractionDigits()).floatValue());
+        return null;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.kafka.currency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exchange rates into the base currency, parsed once at startup from kafka.fx.rates (CODE:rate, units of
+ * base currency per one unit of CODE).
+ * Each rate is pre-scaled into a long numerator over a fixed denominator that already accounts for the
+ * difference in minor-unit digits, so converting an amount is two long multiplications and a division.
+ */
+@Slf4j
+@Component
+public class FxRates {
+
+    private static final long RATE_SCALE = 1_000_000L;
+
+    private final String baseCurrency;
+    private final int baseFractionDigits;
+    private final Map<String, long[]> conversions = new HashMap<>();
+
+    public FxRates(@Value("${kafka.fx.base-currency}") String baseCurrency,
+            @Value("${kafka.fx.rates}") String[] rates) {
+        this.baseCurrency = baseCurrency;
+        this.baseFractionDigits = fractionDigits(baseCurrency);
+        conversions.put(baseCurrency, new long[] { 1, 1 });
+        for (String spec : rates) {
+            if (spec.isBlank()) {
+                continue;
+            }
+            String[] parts = spec.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("FX rate must be CODE:rate, got: " + spec);
+            }
+            String code = parts[0].trim();
+            long numerator = new BigDecimal(parts[1].trim()).movePointRight(6).longValueExact();
+            long denominator = RATE_SCALE;
+            int digitShift = baseFractionDigits - fractionDigits(code);
+            for (int i = 0; i < Math.abs(digitShift); i++) {
+                if (digitShift > 0) {
+                    numerator = Math.multiplyExact(numerator, 10);
+                } else {
+                    denominator = Math.multiplyExact(denominator, 10);
+                }
+            }
+            conversions.put(code, new long[] { numerator, denominator });
+        }
+        log.info("Loaded {} FX rates into {}", conversions.size() - 1, baseCurrency);
+    }
+
+    public String getBaseCurrency() {
+        return baseCurrency;
+    }
+
+    public int getBaseFractionDigits() {
+        return baseFractionDigits;
+    }
+
+    public boolean supports(String currency) {
+        return conversions.containsKey(currency);
+    }
+
+    /**
+     * Converts an amount in minor units of currency to minor units of the base currency, rounding half up.
+     * @throws IllegalArgumentException if there is no rate for the currency
+     * @throws ArithmeticException if the result does not fit in a long
+     */
+    public long toBaseMinor(long amountMinor, String currency) {
+        long[] conversion = conversions.get(currency);
+        if (conversion == null) {
+            throw new IllegalArgumentException("No FX rate for currency " + currency);
+        }
+        if (conversion[1] == 1) {
+            return Math.multiplyExact(amountMinor, conversion[0]);
+        }
+        long scaled = Math.multiplyExact(amountMinor, conversion[0]);
+        return Math.floorDiv(Math.addExact(scaled, conversion[1] / 2), conversion[1]);
+    }
+
+    public static int fractionDigits(String currency) {
+        return Math.max(Currency.getInstance(currency).getDefaultFractionDigits(), 0);
+    }
+}
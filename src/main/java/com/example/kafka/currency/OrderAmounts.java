@@ -0,0 +1,26 @@
+package com.example.kafka.currency;
+
+import com.example.kafka.avro.Order;
+
+/**
+ * Exact amounts of an order in minor units of its currency.
+ * Orders from producers that predate priceMinor only carry the float price, which is rounded to the
+ * nearest minor unit once here.
+ */
+public final class OrderAmounts {
+
+    private OrderAmounts() {
+    }
+
+    public static long unitPriceMinor(Order order) {
+        if (order.getPriceMinor() != null) {
+            return order.getPriceMinor();
+        }
+        int digits = FxRates.fractionDigits(order.getCurrency().toString());
+        return Math.round(order.getPrice() * Math.pow(10, digits));
+    }
+
+    public static long totalMinor(Order order) {
+        return Math.multiplyExact(unitPriceMinor(order), order.getQuantity());
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.kafka.lifecycle;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Turns order sends away with 503 once shutdown has started, so clients retry against another instance
+ * instead of queueing records this instance may not get to send.
+ */
+@Component
+public class IngestionGateInterceptor implements HandlerInterceptor {
+
+    private final GracefulShutdownCoordinator shutdownCoordinator;
+
+    public IngestionGateInterceptor(GracefulShutdownCoordinator shutdownCoordinator) {
+        this.shutdownCoordinator = shutdownCoordinator;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (shutdownCoordinator.isAcceptingOrders() || !"POST".equals(request.getMethod())) {
+            return true;
+        }
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        return false;
+    }
+}
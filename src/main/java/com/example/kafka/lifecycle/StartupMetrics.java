@@ -0,0 +1,37 @@
+package com.example.kafka.lifecycle;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time from JVM start to the first order consumed, the number that matters when pods are scaled on lag.
+ * Boot's application.ready.time covers context startup; this adds partition assignment and the first fetch.
+ */
+@Slf4j
+@Component
+public class StartupMetrics {
+
+    private final AtomicLong timeToFirstRecordMs = new AtomicLong(-1);
+
+    public StartupMetrics(MeterRegistry meterRegistry) {
+        TimeGauge.builder("orders.startup.time-to-first-record", timeToFirstRecordMs, TimeUnit.MILLISECONDS,
+                        AtomicLong::get)
+                .register(meterRegistry);
+    }
+
+    public void recordConsumed() {
+        if (timeToFirstRecordMs.get() >= 0) {
+            return;
+        }
+        long uptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (timeToFirstRecordMs.compareAndSet(-1, uptimeMs)) {
+            log.info("First order consumed {} ms after JVM start", uptimeMs);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.kafka.listener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically adjusts the managed listener containers.
+ * - Pauses a container when downstream stages are saturated (too many in-flight retry/DLQ sends, or slow
+ *   aggregation) and resumes it once the backlog drains below the resume mark. A paused listener processes
+ *   nothing, so its processing average is halved every interval until it drops back under the limit.
+ * - Scales concurrency up, one consumer at a time and never past the topic's partition count, while lag stays
+ *   above the scale-up threshold; scales back down while the container is idle.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kafka.listener.adaptive.enabled", havingValue = "true")
+public class AdaptiveConcurrencyController {
+
+    public static final List<String> MANAGED_LISTENERS = List.of("order-consumer", "retry-consumer");
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final KafkaAdmin kafkaAdmin;
+    private final ListenerLoadMonitor loadMonitor;
+    private final RetryCircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final int minConcurrency;
+    private final long scaleUpLag;
+    private final long scaleDownLag;
+    private final long cooldownMs;
+    private final int maxInFlightSends;
+    private final int resumeInFlightSends;
+    private final long maxProcessingNanos;
+
+    private final Map<String, ListenerState> states = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyController(KafkaListenerEndpointRegistry registry,
+            KafkaAdmin kafkaAdmin,
+            ListenerLoadMonitor loadMonitor,
+            RetryCircuitBreaker circuitBreaker,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.listener.adaptive.min-concurrency}") int minConcurrency,
+            @Value("${kafka.listener.adaptive.scale-up-lag}") long scaleUpLag,
+            @Value("${kafka.listener.adaptive.scale-down-lag}") long scaleDownLag,
+            @Value("${kafka.listener.adaptive.cooldown-ms}") long cooldownMs,
+            @Value("${kafka.listener.backpressure.max-in-flight-sends}") int maxInFlightSends,
+            @Value("${kafka.listener.backpressure.resume-in-flight-sends}") int resumeInFlightSends,
+            @Value("${kafka.listener.backpressure.max-processing-ms}") long maxProcessingMs) {
+        this.registry = registry;
+        this.kafkaAdmin = kafkaAdmin;
+        this.loadMonitor = loadMonitor;
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+        this.minConcurrency = minConcurrency;
+        this.scaleUpLag = scaleUpLag;
+        this.scaleDownLag = scaleDownLag;
+        this.cooldownMs = cooldownMs;
+        this.maxInFlightSends = maxInFlightSends;
+        this.resumeInFlightSends = resumeInFlightSends;
+        this.maxProcessingNanos = TimeUnit.MILLISECONDS.toNanos(maxProcessingMs);
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.listener.adaptive.interval-ms}")
+    public void adjust() {
+        for (String listenerId : MANAGED_LISTENERS) {
+            MessageListenerContainer container = registry.getListenerContainer(listenerId);
+            if (circuitBreaker.holdsPause(listenerId)) {
+                continue;
+            }
+            if (container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent && container.isRunning()) {
+                adjust(listenerId, concurrent);
+            }
+        }
+    }
+
+    private void adjust(String listenerId, ConcurrentMessageListenerContainer<?, ?> container) {
+        ListenerState state = states.computeIfAbsent(listenerId, id -> new ListenerState(id, container));
+        state.lag = maxRecordsLag(container);
+
+        int inFlight = loadMonitor.getInFlightSends();
+        long processingNanos = loadMonitor.getProcessingEwmaNanos(listenerId);
+        boolean saturated = inFlight > maxInFlightSends || processingNanos > maxProcessingNanos;
+        boolean drained = inFlight <= resumeInFlightSends && processingNanos <= maxProcessingNanos;
+
+        if (!container.isPauseRequested() && saturated) {
+            log.warn("Pausing listener {}: In-flight sends={}, Processing EWMA={}ms",
+                    listenerId, inFlight, TimeUnit.NANOSECONDS.toMillis(processingNanos));
+            container.pause();
+            state.pauses.increment();
+            return;
+        }
+        if (container.isPauseRequested()) {
+            if (processingNanos > maxProcessingNanos) {
+                loadMonitor.decayProcessing(listenerId);
+            }
+            if (drained) {
+                log.info("Resuming listener {}: In-flight sends={}", listenerId, inFlight);
+                container.resume();
+                state.resumes.increment();
+            }
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - state.lastScaleMs < cooldownMs) {
+            return;
+        }
+        int concurrency = container.getConcurrency();
+        if (state.lag > scaleUpLag && concurrency < partitionCount(container)) {
+            rescale(state, container, concurrency + 1);
+            state.scaleUps.increment();
+        } else if (state.lag <= scaleDownLag && concurrency > minConcurrency) {
+            rescale(state, container, concurrency - 1);
+            state.scaleDowns.increment();
+        }
+    }
+
+    // Concurrency only takes effect on start, so the container is restarted; the resulting rebalance is why
+    // changes are rate limited by the cooldown
+    private void rescale(ListenerState state, ConcurrentMessageListenerContainer<?, ?> container, int concurrency) {
+        log.info("Scaling listener {} from {} to {} consumers (lag={})",
+                state.listenerId, container.getConcurrency(), concurrency, state.lag);
+        state.lastScaleMs = System.currentTimeMillis();
+        container.stop(() -> {
+            container.setConcurrency(concurrency);
+            container.start();
+        });
+    }
+
+    private int partitionCount(ConcurrentMessageListenerContainer<?, ?> container) {
+        String[] topics = container.getContainerProperties().getTopics();
+        if (topics == null || topics.length == 0) {
+            return container.getConcurrency();
+        }
+        try {
+            return kafkaAdmin.describeTopics(topics).values().stream()
+                    .mapToInt(description -> description.partitions().size())
+                    .max()
+                    .orElse(container.getConcurrency());
+        } catch (Exception e) {
+            log.warn("Could not describe topics for listener scaling: {}", e.getMessage());
+            return container.getConcurrency();
+        }
+    }
+
+    private static long maxRecordsLag(MessageListenerContainer container) {
+        double lag = 0;
+        for (Map<MetricName, ? extends Metric> clientMetrics : container.metrics().values()) {
+            for (Map.Entry<MetricName, ? extends Metric> entry : clientMetrics.entrySet()) {
+                MetricName name = entry.getKey();
+                if ("records-lag-max".equals(name.name()) && "consumer-fetch-manager-metrics".equals(name.group())
+                        && entry.getValue().metricValue() instanceof Double value && !value.isNaN()) {
+                    lag = Math.max(lag, value);
+                }
+            }
+        }
+        return (long) lag;
+    }
+
+    private final class ListenerState {
+
+        private final String listenerId;
+        private final Counter pauses;
+        private final Counter resumes;
+        private final Counter scaleUps;
+        private final Counter scaleDowns;
+        private volatile long lag;
+        private volatile long lastScaleMs;
+
+        private ListenerState(String listenerId, ConcurrentMessageListenerContainer<?, ?> container) {
+            this.listenerId = listenerId;
+            this.pauses = meterRegistry.counter("orders.listener.pauses", "listener", listenerId);
+            this.resumes = meterRegistry.counter("orders.listener.resumes", "listener", listenerId);
+            this.scaleUps = meterRegistry.counter("orders.listener.scale.ups", "listener", listenerId);
+            this.scaleDowns = meterRegistry.counter("orders.listener.scale.downs", "listener", listenerId);
+            meterRegistry.gauge("orders.listener.concurrency", Tags.of("listener", listenerId),
+                    container, c -> c.getConcurrency());
+            meterRegistry.gauge("orders.listener.paused", Tags.of("listener", listenerId),
+                    container, c -> c.isPauseRequested() ? 1 : 0);
+            meterRegistry.gauge("orders.listener.lag", Tags.of("listener", listenerId),
+                    this, s -> s.lag);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.kafka.listener;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load signals from the stages behind the listeners: sends to the retry/DLQ topics that are still in flight,
+ * and an exponentially weighted average of per-record processing time for each listener.
+ * The average only moves while records are processed, so a paused listener's average is decayed explicitly.
+ */
+@Component
+public class ListenerLoadMonitor {
+
+    private static final double EWMA_WEIGHT = 0.2;
+
+    private final AtomicInteger inFlightSends = new AtomicInteger();
+    private final Map<String, AtomicLong> processingEwmaNanos = new ConcurrentHashMap<>();
+
+    public ListenerLoadMonitor(MeterRegistry meterRegistry) {
+        meterRegistry.gauge("orders.listener.inflight.sends", inFlightSends);
+    }
+
+    public <T> CompletableFuture<T> trackSend(CompletableFuture<T> future) {
+        inFlightSends.incrementAndGet();
+        future.whenComplete((result, ex) -> inFlightSends.decrementAndGet());
+        return future;
+    }
+
+    public void recordProcessing(String listenerId, long nanos) {
+        AtomicLong ewma = processingEwmaNanos.computeIfAbsent(listenerId, id -> new AtomicLong(nanos));
+        ewma.getAndUpdate(current -> current + (long) (EWMA_WEIGHT * (nanos - current)));
+    }
+
+    // Halves the average; called while the listener is paused and no samples arrive
+    public void decayProcessing(String listenerId) {
+        AtomicLong ewma = processingEwmaNanos.get(listenerId);
+        if (ewma != null) {
+            ewma.getAndUpdate(current -> current / 2);
+        }
+    }
+
+    public int getInFlightSends() {
+        return inFlightSends.get();
+    }
+
+    public long getProcessingEwmaNanos(String listenerId) {
+        AtomicLong ewma = processingEwmaNanos.get(listenerId);
+        return ewma == null ? 0 : ewma.get();
+    }
+}
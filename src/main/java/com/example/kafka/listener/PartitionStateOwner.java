@@ -0,0 +1,14 @@
+package com.example.kafka.listener;
+
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+
+/**
+ * A listener that keeps in-memory state per assigned partition. With cooperative rebalancing only the
+ * partitions that actually move are passed here, so state for partitions this instance keeps survives.
+ */
+public interface PartitionStateOwner {
+
+    void releasePartitions(Collection<TopicPartition> partitions);
+}
@@ -0,0 +1,72 @@
+package com.example.kafka.listener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebalance hooks for the listener containers. Revoked or lost partitions are handed to every
+ * {@link PartitionStateOwner} after the final offset commit, and the time each consumer spends between
+ * giving up partitions and getting its new assignment is recorded as orders.listener.rebalance.pause.
+ * Callbacks run on the consumer thread, so the revocation time is kept per thread.
+ */
+@Slf4j
+@Component
+public class PartitionStateRebalanceListener implements ConsumerAwareRebalanceListener {
+
+    private final ObjectProvider<PartitionStateOwner> owners;
+    private final Timer pauseTimer;
+    private final Counter revokedPartitions;
+    private final Counter lostPartitions;
+    private final ThreadLocal<Long> revokedAtNanos = new ThreadLocal<>();
+
+    public PartitionStateRebalanceListener(ObjectProvider<PartitionStateOwner> owners, MeterRegistry meterRegistry) {
+        this.owners = owners;
+        this.pauseTimer = meterRegistry.timer("orders.listener.rebalance.pause");
+        this.revokedPartitions = meterRegistry.counter("orders.listener.rebalance.partitions", "change", "revoked");
+        this.lostPartitions = meterRegistry.counter("orders.listener.rebalance.partitions", "change", "lost");
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        revokedAtNanos.set(System.nanoTime());
+        revokedPartitions.increment(partitions.size());
+        log.info("Partitions revoked: {}", partitions);
+        owners.orderedStream().forEach(owner -> owner.releasePartitions(partitions));
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        revokedAtNanos.set(System.nanoTime());
+        lostPartitions.increment(partitions.size());
+        log.warn("Partitions lost: {}", partitions);
+        owners.orderedStream().forEach(owner -> owner.releasePartitions(partitions));
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Long revokedAt = revokedAtNanos.get();
+        if (revokedAt != null) {
+            pauseTimer.record(System.nanoTime() - revokedAt, TimeUnit.NANOSECONDS);
+            revokedAtNanos.remove();
+        }
+        if (!partitions.isEmpty()) {
+            log.info("Partitions assigned: {}", partitions);
+        }
+    }
+}
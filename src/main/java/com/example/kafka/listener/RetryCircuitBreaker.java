@@ -0,0 +1,167 @@
+package com.example.kafka.listener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Failure-rate circuit breaker between the main order listener and the retry topic.
+ * Outcomes are tracked over a sliding window of the last N records. When the failure rate crosses the threshold
+ * the breaker opens for a fixed time and either pauses the main listener (mode=pause) or lets the consumer park
+ * failures on the parking topic (mode=park). It then half-opens and decides from a small number of trial records.
+ */
+@Slf4j
+@Component
+public class RetryCircuitBreaker {
+
+    public static final String GUARDED_LISTENER = "order-consumer";
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final TaskScheduler taskScheduler;
+    private final boolean pauseMode;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final int halfOpenCalls;
+    private final long openDurationMs;
+    private final Counter openedCounter;
+
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private int halfOpenCount;
+    private int halfOpenFailures;
+    private volatile State state = State.CLOSED;
+
+    public RetryCircuitBreaker(KafkaListenerEndpointRegistry registry,
+            TaskScheduler taskScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.circuit-breaker.mode}") String mode,
+            @Value("${kafka.circuit-breaker.window-size}") int windowSize,
+            @Value("${kafka.circuit-breaker.minimum-calls}") int minimumCalls,
+            @Value("${kafka.circuit-breaker.failure-rate-threshold}") double failureRateThreshold,
+            @Value("${kafka.circuit-breaker.half-open-calls}") int halfOpenCalls,
+            @Value("${kafka.circuit-breaker.open-duration-ms}") long openDurationMs) {
+        this.registry = registry;
+        this.taskScheduler = taskScheduler;
+        this.pauseMode = "pause".equals(mode);
+        this.window = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.halfOpenCalls = halfOpenCalls;
+        this.openDurationMs = openDurationMs;
+        this.openedCounter = meterRegistry.counter("orders.circuit.breaker.opened");
+        meterRegistry.gauge("orders.circuit.breaker.state", this, breaker -> breaker.state.ordinal());
+    }
+
+    public void recordSuccess() {
+        record(false);
+    }
+
+    public void recordFailure() {
+        record(true);
+    }
+
+    public boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    // True while failures should go to the parking topic instead of the retry topic; never in pause mode
+    public boolean isParking() {
+        return !pauseMode && state == State.OPEN;
+    }
+
+    // True while the breaker, not the backpressure controller, owns the pause of the guarded listener
+    public boolean holdsPause(String listenerId) {
+        return pauseMode && state == State.OPEN && GUARDED_LISTENER.equals(listenerId);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    private synchronized void record(boolean failure) {
+        switch (state) {
+            case CLOSED -> {
+                if (windowCount == window.length) {
+                    if (window[windowIndex]) {
+                        windowFailures--;
+                    }
+                } else {
+                    windowCount++;
+                }
+                window[windowIndex] = failure;
+                if (failure) {
+                    windowFailures++;
+                }
+                windowIndex = (windowIndex + 1) % window.length;
+
+                if (windowCount >= minimumCalls && (double) windowFailures / windowCount >= failureRateThreshold) {
+                    open();
+                }
+            }
+            case HALF_OPEN -> {
+                halfOpenCount++;
+                if (failure) {
+                    halfOpenFailures++;
+                }
+                if (halfOpenCount >= halfOpenCalls) {
+                    if ((double) halfOpenFailures / halfOpenCount >= failureRateThreshold) {
+                        open();
+                    } else {
+                        close();
+                    }
+                }
+            }
+            case OPEN -> {
+                // Outcomes while open (park mode) do not count towards the next decision
+            }
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedCounter.increment();
+        log.warn("Circuit breaker OPEN: Failures={}/{}, Mode={}, Open for {}ms",
+                windowFailures, windowCount, pauseMode ? "pause" : "park", openDurationMs);
+
+        if (pauseMode) {
+            MessageListenerContainer container = registry.getListenerContainer(GUARDED_LISTENER);
+            if (container != null) {
+                container.pause();
+            }
+        }
+        taskScheduler.schedule(this::halfOpen, Instant.now().plusMillis(openDurationMs));
+    }
+
+    private synchronized void halfOpen() {
+        state = State.HALF_OPEN;
+        halfOpenCount = 0;
+        halfOpenFailures = 0;
+        log.info("Circuit breaker HALF_OPEN: evaluating next {} orders", halfOpenCalls);
+
+        if (pauseMode) {
+            MessageListenerContainer container = registry.getListenerContainer(GUARDED_LISTENER);
+            if (container != null) {
+                container.resume();
+            }
+        }
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+        log.info("Circuit breaker CLOSED");
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.kafka.pipeline;
+
+import com.example.kafka.avro.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validation and enrichment shared by every consumer of orders.
+ * Configured rules (kafka.pipeline.rules) run first, followed by any {@link OrderStage} beans in @Order order.
+ * The Streams topology evaluates only the stages that run in Streams; it applies the others in the topology.
+ */
+@Slf4j
+@Component
+public class OrderPipeline {
+
+    private final OrderStage[] stages;
+    private final OrderStage[] streamsStages;
+
+    public OrderPipeline(@Value("${kafka.pipeline.rules}") String[] rules,
+            ObjectProvider<OrderStage> stageBeans) {
+        List<OrderStage> compiled = new ArrayList<>();
+        for (String rule : rules) {
+            if (!rule.isBlank()) {
+                compiled.add(OrderRuleCompiler.compile(rule));
+            }
+        }
+        int ruleCount = compiled.size();
+        stageBeans.orderedStream().forEach(compiled::add);
+        this.stages = compiled.toArray(new OrderStage[0]);
+        this.streamsStages = compiled.stream().filter(OrderStage::runsInStreams).toArray(OrderStage[]::new);
+
+        log.info("Order pipeline compiled: {} rules, {} stages", ruleCount, stages.length - ruleCount);
+    }
+
+    /**
+     * Runs every stage in order.
+     * @return null if the order passed, otherwise the first rejection
+     */
+    public OrderRejection evaluate(Order order) {
+        return evaluate(stages, order);
+    }
+
+    // Same as evaluate, without the stages the Streams topology applies itself
+    public OrderRejection evaluateInStreams(Order order) {
+        return evaluate(streamsStages, order);
+    }
+
+    private static OrderRejection evaluate(OrderStage[] stages, Order order) {
+        for (OrderStage stage : stages) {
+            OrderRejection rejection = stage.apply(order);
+            if (rejection != null) {
+                return rejection;
+            }
+        }
+        return null;
+    }
+}
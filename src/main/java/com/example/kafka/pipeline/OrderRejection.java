@@ -0,0 +1,4 @@
+package com.example.kafka.pipeline;
+
+public record OrderRejection(String stage, String reason) {
+}
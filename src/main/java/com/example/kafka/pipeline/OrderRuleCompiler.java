@@ -0,0 +1,113 @@
+package com.example.kafka.pipeline;
+
+import com.example.kafka.avro.Order;
+import com.example.kafka.currency.OrderAmounts;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.DoublePredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles validation rules of the form {@code <field> <operator> [operand]} into stages.
+ * Operands are parsed, patterns compiled and rejections created once, so evaluating a rule is a field read
+ * and a comparison.
+ * - numeric fields (price, quantity): {@code >= > <= < == !=}; price is the exact unit price in minor units of
+ *   the order's currency (priceMinor), so {@code price < 100000} means below 1000.00
+ * - text fields (orderId, product): {@code not-blank}, {@code == value}, {@code != value},
+ *   {@code matches regex}, {@code in a|b|c}
+ */
+public final class OrderRuleCompiler {
+
+    private static final Map<String, ToDoubleFunction<Order>> NUMERIC_FIELDS = Map.of(
+            "price", OrderRuleCompiler::priceMinor,
+            "quantity", Order::getQuantity);
+
+    private static final Map<String, Function<Order, CharSequence>> TEXT_FIELDS = Map.of(
+            "orderId", Order::getOrderId,
+            "product", Order::getProduct,
+            "currency", Order::getCurrency);
+
+    private OrderRuleCompiler() {
+    }
+
+    public static OrderStage compile(String rule) {
+        String[] parts = rule.trim().split("\\s+", 3);
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Invalid order rule: " + rule);
+        }
+        String field = parts[0];
+        String operator = parts[1];
+        String operand = parts.length > 2 ? parts[2] : null;
+        OrderRejection rejection = new OrderRejection("rule", "Rule failed: " + rule.trim());
+
+        ToDoubleFunction<Order> numericField = NUMERIC_FIELDS.get(field);
+        if (numericField != null) {
+            DoublePredicate test = numericTest(rule, operator, requireOperand(rule, operand));
+            return order -> test.test(numericField.applyAsDouble(order)) ? null : rejection;
+        }
+
+        Function<Order, CharSequence> textField = TEXT_FIELDS.get(field);
+        if (textField != null) {
+            Predicate<CharSequence> test = textTest(rule, operator, operand);
+            return order -> test.test(textField.apply(order)) ? null : rejection;
+        }
+
+        throw new IllegalArgumentException("Unknown field in order rule: " + rule);
+    }
+
+    private static DoublePredicate numericTest(String rule, String operator, String operand) {
+        double bound = Double.parseDouble(operand);
+        return switch (operator) {
+            case ">=" -> value -> value >= bound;
+            case ">" -> value -> value > bound;
+            case "<=" -> value -> value <= bound;
+            case "<" -> value -> value < bound;
+            case "==" -> value -> value == bound;
+            case "!=" -> value -> value != bound;
+            default -> throw new IllegalArgumentException("Unknown numeric operator in order rule: " + rule);
+        };
+    }
+
+    private static Predicate<CharSequence> textTest(String rule, String operator, String operand) {
+        return switch (operator) {
+            case "not-blank" -> value -> value != null && !value.toString().isBlank();
+            case "==" -> {
+                String expected = requireOperand(rule, operand);
+                yield value -> value != null && expected.contentEquals(value);
+            }
+            case "!=" -> {
+                String expected = requireOperand(rule, operand);
+                yield value -> value == null || !expected.contentEquals(value);
+            }
+            case "matches" -> {
+                Pattern pattern = Pattern.compile(requireOperand(rule, operand));
+                yield value -> value != null && pattern.matcher(value).matches();
+            }
+            case "in" -> {
+                Set<String> allowed = Set.of(requireOperand(rule, operand).split("\\|"));
+                yield value -> value != null && allowed.contains(value.toString());
+            }
+            default -> throw new IllegalArgumentException("Unknown text operator in order rule: " + rule);
+        };
+    }
+
+    // An unknown currency has no minor unit; NaN fails every rule but != and the currency stage rejects it anyway
+    private static double priceMinor(Order order) {
+        try {
+            return OrderAmounts.unitPriceMinor(order);
+        } catch (IllegalArgumentException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static String requireOperand(String rule, String operand) {
+        if (operand == null) {
+            throw new IllegalArgumentException("Missing operand in order rule: " + rule);
+        }
+        return operand;
+    }
+}
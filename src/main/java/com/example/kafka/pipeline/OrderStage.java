@@ -0,0 +1,20 @@
+package com.example.kafka.pipeline;
+
+import com.example.kafka.avro.Order;
+
+/**
+ * One step of the order pipeline shared by the listeners and the Streams topology.
+ * A stage may enrich the order in place. It returns null to let the order continue, or a rejection
+ * to stop it. A rejection is permanent: the same order would fail again, so it goes straight to the DLQ.
+ * Exceptions thrown by a stage are treated as transient failures and retried.
+ */
+@FunctionalInterface
+public interface OrderStage {
+
+    OrderRejection apply(Order order);
+
+    // False for a stage the Streams topology applies itself, with its own state, instead of calling it
+    default boolean runsInStreams() {
+        return true;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.kafka.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples how full the order producer's buffer.memory is, so the REST edge can turn requests away
+ * before send() would block on a full buffer. Sampled on a schedule rather than per request because
+ * reading producer metrics walks the whole metrics map. Samples run on a thread of their own so the
+ * shared @Scheduled thread cannot delay them.
+ */
+@Slf4j
+@Component
+public class ProducerBufferMonitor {
+
+    private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ScheduledExecutorService sampler;
+    private volatile double utilization;
+
+    public ProducerBufferMonitor(KafkaTemplate<String, Object> kafkaTemplate, MeterRegistry meterRegistry,
+            @Value("${kafka.ratelimit.buffer-sample-interval-ms}") long sampleIntervalMs) {
+        this.kafkaTemplate = kafkaTemplate;
+        meterRegistry.gauge("orders.producer.buffer.utilization", this, ProducerBufferMonitor::getUtilization);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("producer-buffer-sampler-");
+        threadFactory.setDaemon(true);
+        this.sampler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        sampler.scheduleAtFixedRate(this::sampleSafely, sampleIntervalMs, sampleIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sampler.shutdownNow();
+    }
+
+    // An exception would cancel the fixed-rate task, so keep the last value and try again next tick
+    private void sampleSafely() {
+        try {
+            sample();
+        } catch (RuntimeException e) {
+            log.warn("Could not sample producer buffer: {}", e.getMessage());
+        }
+    }
+
+    public void sample() {
+        double available = -1;
+        double total = -1;
+        for (Map.Entry<MetricName, ? extends Metric> entry : kafkaTemplate.metrics().entrySet()) {
+            MetricName name = entry.getKey();
+            if (!PRODUCER_METRICS_GROUP.equals(name.group())) {
+                continue;
+            }
+            if ("buffer-available-bytes".equals(name.name())) {
+                available = toDouble(entry.getValue().metricValue());
+            } else if ("buffer-total-bytes".equals(name.name())) {
+                total = toDouble(entry.getValue().metricValue());
+            }
+        }
+        if (available >= 0 && total > 0) {
+            utilization = 1.0 - available / total;
+        }
+    }
+
+    // Fraction of buffer.memory currently holding unsent records, 0..1
+    public double getUtilization() {
+        return utilization;
+    }
+
+    private static double toDouble(Object value) {
+        return value instanceof Number number ? number.doubleValue() : -1;
+    }
+}
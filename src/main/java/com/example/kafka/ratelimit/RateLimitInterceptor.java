@@ -0,0 +1,107 @@
+package com.example.kafka.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for order sends. A request is turned away with 429 and Retry-After when the client
+ * is over its rate, or when the producer buffer is close to full, instead of letting the request thread
+ * block inside KafkaTemplate.send(). /send-multiple is charged one permit per order, and a batch larger
+ * than the burst is refused with 400 since it could never be admitted. Clients are keyed on the
+ * authenticated principal, else the remote address; client-supplied headers are not trusted.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final StripedRateLimiter rateLimiter;
+    private final ProducerBufferMonitor bufferMonitor;
+    private final double bufferHighWatermark;
+    private final Counter allowed;
+    private final Counter rejectedByRate;
+    private final Counter rejectedByBuffer;
+
+    public RateLimitInterceptor(ProducerBufferMonitor bufferMonitor,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.ratelimit.permits-per-second}") double permitsPerSecond,
+            @Value("${kafka.ratelimit.burst}") int burst,
+            @Value("${kafka.ratelimit.stripes}") int stripes,
+            @Value("${kafka.ratelimit.buffer-high-watermark}") double bufferHighWatermark) {
+        this.rateLimiter = new StripedRateLimiter(permitsPerSecond, burst, stripes);
+        this.bufferMonitor = bufferMonitor;
+        this.bufferHighWatermark = bufferHighWatermark;
+        this.allowed = meterRegistry.counter("orders.ratelimit.requests", "outcome", "allowed");
+        this.rejectedByRate = meterRegistry.counter("orders.ratelimit.requests", "outcome", "rejected-rate");
+        this.rejectedByBuffer = meterRegistry.counter("orders.ratelimit.requests", "outcome", "rejected-buffer");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (!"POST".equals(request.getMethod())) {
+            return true;
+        }
+        if (bufferMonitor.getUtilization() >= bufferHighWatermark) {
+            rejectedByBuffer.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, 1L, "Producer buffer is full, retry later");
+            return false;
+        }
+
+        int permits = permits(request);
+        if (permits > rateLimiter.getBurst()) {
+            rejectedByRate.increment();
+            reject(response, HttpStatus.BAD_REQUEST, null,
+                    "Batch exceeds the rate limit burst of " + rateLimiter.getBurst());
+            return false;
+        }
+        long waitNanos = rateLimiter.tryAcquire(clientKey(request), permits);
+        if (waitNanos > 0) {
+            rejectedByRate.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS,
+                    Math.max(1, (long) Math.ceil(waitNanos / (double) TimeUnit.SECONDS.toNanos(1))),
+                    "Rate limit exceeded");
+            return false;
+        }
+        allowed.increment();
+        return true;
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? "user:" + principal.getName() : "addr:" + request.getRemoteAddr();
+    }
+
+    private static int permits(HttpServletRequest request) {
+        String count = request.getParameter("count");
+        if (count == null || !request.getRequestURI().endsWith("/send-multiple")) {
+            return 1;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(count));
+        } catch (NumberFormatException e) {
+            // Let the controller reject the bad parameter
+            return 1;
+        }
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, Long retryAfterSeconds,
+            String message) throws IOException {
+        response.setStatus(status.value());
+        if (retryAfterSeconds != null) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.kafka.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free per-client rate limiter (GCRA, the token bucket expressed as a single timestamp).
+ * Clients are hashed onto a fixed array of stripes, each holding its theoretical arrival time; a request
+ * is one CAS on its stripe, so there are no locks, no per-client allocation and bounded memory.
+ * Clients that share a stripe share its budget, so the stripe count should be well above the number of
+ * concurrently active clients.
+ */
+public class StripedRateLimiter {
+
+    private final AtomicLongArray theoreticalArrival;
+    private final int mask;
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final int burst;
+    private final LongSupplier clock;
+
+    public StripedRateLimiter(double permitsPerSecond, int burst, int stripes) {
+        this(permitsPerSecond, burst, stripes, System::nanoTime);
+    }
+
+    StripedRateLimiter(double permitsPerSecond, int burst, int stripes, LongSupplier clock) {
+        if (permitsPerSecond <= 0 || burst < 1 || stripes < 1) {
+            throw new IllegalArgumentException("Rate, burst and stripes must be positive");
+        }
+        int size = Integer.highestOneBit(stripes - 1) << 1;
+        this.theoreticalArrival = new AtomicLongArray(Math.max(size, 1));
+        this.mask = theoreticalArrival.length() - 1;
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = emissionIntervalNanos * burst;
+        this.burst = burst;
+        this.clock = clock;
+        for (int i = 0; i < theoreticalArrival.length(); i++) {
+            theoreticalArrival.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Takes permits for the client if its bucket allows it.
+     * @return 0 if the permits were taken, otherwise the nanoseconds until they would be available
+     * @throws IllegalArgumentException if permits is below 1 or above the burst, which no bucket can hold
+     */
+    public long tryAcquire(String clientKey, int permits) {
+        if (permits < 1 || permits > burst) {
+            throw new IllegalArgumentException("Permits must be between 1 and the burst of " + burst);
+        }
+        int stripe = spread(clientKey.hashCode()) & mask;
+        long increment = emissionIntervalNanos * permits;
+        while (true) {
+            long now = clock.getAsLong();
+            long arrival = theoreticalArrival.get(stripe);
+            long next = Math.max(arrival, now) + increment;
+            long waitNanos = next - burstNanos - now;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrival.compareAndSet(stripe, arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
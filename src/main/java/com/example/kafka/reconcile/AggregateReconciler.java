@@ -0,0 +1,314 @@
+package com.example.kafka.reconcile;
+
+import com.example.kafka.aggregation.AggregateTotals;
+import com.example.kafka.avro.Order;
+import com.example.kafka.currency.OrderAmounts;
+import com.example.kafka.pipeline.OrderPipeline;
+import com.example.kafka.reconcile.ReconciliationLedger.Side;
+import com.example.kafka.scaling.TopicScalingService;
+import com.example.kafka.services.OrderAggregationStreamsService;
+import com.example.kafka.services.PriceAggregationService;
+import com.example.kafka.services.ProductStatsQueryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Periodically checks the listener aggregate (PriceAggregationService) and the Streams aggregate against the
+ * orders they should contain. At each checkpoint it records both consumer groups' committed offsets and
+ * both sides' totals, then reads the orders topic forward, once, with its own unsubscribed consumer, up to
+ * those offsets, evaluating the pipeline on each order as both sides do. Work per run is bounded, so a
+ * checkpoint may take several runs to complete.
+ *
+ * Listener drift dips while orders wait on the retry topic and recovers when they succeed; what remains is
+ * orders that ended in the DLQ. Duplicates skipped by either side also show up as negative drift, and totals
+ * read just before a commit as a short-lived swing between two intervals. Both aggregates are instance-local,
+ * so the comparison is exact only when one instance consumes every partition.
+ *
+ * A run can poll for a long time, so it has its own thread rather than holding up the shared @Scheduled jobs.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kafka.reconcile.enabled", havingValue = "true")
+public class AggregateReconciler {
+
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final TopicScalingService topicScalingService;
+    private final PriceAggregationService priceAggregationService;
+    private final ProductStatsQueryService productStatsQueryService;
+    private final OrderPipeline orderPipeline;
+    private final String ordersTopic;
+    private final String listenerGroupId;
+    private final int maxRecordsPerRun;
+    private final int adminTimeoutSeconds;
+    private final ReconciliationLedger ledger = new ReconciliationLedger();
+    private final Counter recordsRead;
+    private final Counter rebaselines;
+    private final AtomicReference<ReconciliationReport> lastReport = new AtomicReference<>();
+    private final ScheduledExecutorService runner;
+
+    private volatile Consumer<String, Object> consumer;
+    private Checkpoint pending;
+    private Checkpoint previous;
+    private AggregateTotals cumulativeListenerDrift = AggregateTotals.ZERO;
+    private AggregateTotals cumulativeStreamsDrift = AggregateTotals.ZERO;
+
+    public AggregateReconciler(ConsumerFactory<String, Object> consumerFactory,
+            TopicScalingService topicScalingService,
+            PriceAggregationService priceAggregationService,
+            ProductStatsQueryService productStatsQueryService,
+            OrderPipeline orderPipeline,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.topic.orders}") String ordersTopic,
+            @Value("${spring.kafka.consumer.group-id}") String listenerGroupId,
+            @Value("${kafka.reconcile.max-records-per-run}") int maxRecordsPerRun,
+            @Value("${kafka.reconcile.interval-ms}") long intervalMs,
+            @Value("${kafka.admin.operation-timeout-seconds}") int adminTimeoutSeconds) {
+        this.consumerFactory = consumerFactory;
+        this.topicScalingService = topicScalingService;
+        this.priceAggregationService = priceAggregationService;
+        this.productStatsQueryService = productStatsQueryService;
+        this.orderPipeline = orderPipeline;
+        this.ordersTopic = ordersTopic;
+        this.listenerGroupId = listenerGroupId;
+        this.maxRecordsPerRun = maxRecordsPerRun;
+        this.adminTimeoutSeconds = adminTimeoutSeconds;
+        this.recordsRead = meterRegistry.counter("orders.reconcile.records");
+        this.rebaselines = meterRegistry.counter("orders.reconcile.rebaselines");
+        for (String side : List.of("listener", "streams")) {
+            meterRegistry.gauge("orders.reconcile.drift", Tags.of("side", side, "measure", "count"), this,
+                    r -> r.cumulativeDrift(side).count());
+            meterRegistry.gauge("orders.reconcile.drift", Tags.of("side", side, "measure", "amount"), this,
+                    r -> r.cumulativeDrift(side).totalMinor());
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("order-reconciler-");
+        threadFactory.setDaemon(true);
+        this.runner = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        runner.scheduleWithFixedDelay(this::reconcile, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void reconcile() {
+        try {
+            if (pending == null && !startCheckpoint()) {
+                return;
+            }
+            readForward();
+            if (ledger.isCheckpointComplete()) {
+                finishCheckpoint();
+            }
+        } catch (Exception e) {
+            log.warn("Reconciliation run failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    public ReconciliationReport getLastReport() {
+        return lastReport.get();
+    }
+
+    @PreDestroy
+    public void close() {
+        runner.shutdownNow();
+        // Breaks a run out of poll() so the consumer can be closed without waiting for it
+        Consumer<String, Object> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+        synchronized (this) {
+            if (consumer != null) {
+                consumer.close();
+            }
+        }
+    }
+
+    private boolean startCheckpoint() throws Exception {
+        AggregateTotals streamsTotals;
+        try {
+            streamsTotals = productStatsQueryService.getLocalTotals();
+        } catch (IllegalStateException | InvalidStateStoreException e) {
+            log.debug("Reconciliation skipped: {}", e.getMessage());
+            return false;
+        }
+        long listenerResetEpoch = priceAggregationService.getResetEpoch();
+        AggregateTotals listenerTotals = priceAggregationService.getTotals();
+        Map<TopicPartition, OffsetAndMetadata> listenerOffsets = committedOffsets(listenerGroupId);
+        Map<TopicPartition, OffsetAndMetadata> streamsOffsets = committedOffsets(OrderAggregationStreamsService.APPLICATION_ID);
+
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (PartitionInfo info : consumer().partitionsFor(ordersTopic)) {
+            partitions.add(new TopicPartition(ordersTopic, info.partition()));
+        }
+        consumer.assign(partitions);
+
+        for (TopicPartition tp : partitions) {
+            Long listenerOffset = offset(listenerOffsets, tp);
+            Long streamsOffset = offset(streamsOffsets, tp);
+            if (!ledger.isTracked(tp.partition())) {
+                long start = Math.min(listenerOffset == null ? Long.MAX_VALUE : listenerOffset,
+                        streamsOffset == null ? Long.MAX_VALUE : streamsOffset);
+                if (start == Long.MAX_VALUE) {
+                    start = consumer.position(tp);
+                }
+                ledger.track(tp.partition(), start);
+            }
+            consumer.seek(tp, ledger.position(tp.partition()));
+            // A group that has not committed on the partition yet has made no progress there
+            if (!ledger.mark(Side.LISTENER, tp.partition(), listenerOffset == null
+                            ? ledger.lastMark(Side.LISTENER, tp.partition()) : listenerOffset)
+                    || !ledger.mark(Side.STREAMS, tp.partition(), streamsOffset == null
+                            ? ledger.lastMark(Side.STREAMS, tp.partition()) : streamsOffset)) {
+                rebaseline("committed offsets on " + tp + " moved backwards");
+                return false;
+            }
+        }
+        pending = new Checkpoint(listenerTotals, listenerResetEpoch, streamsTotals);
+        return true;
+    }
+
+    private void readForward() {
+        int read = 0;
+        while (read < maxRecordsPerRun && !ledger.isCheckpointComplete()) {
+            List<TopicPartition> reading = new ArrayList<>();
+            for (TopicPartition tp : consumer.assignment()) {
+                if (ledger.position(tp.partition()) < ledger.readLimit(tp.partition())) {
+                    reading.add(tp);
+                }
+            }
+            consumer.pause(consumer.assignment());
+            consumer.resume(reading);
+
+            ConsumerRecords<String, Object> records = consumer.poll(Duration.ofMillis(200));
+            for (TopicPartition tp : records.partitions()) {
+                long limit = ledger.readLimit(tp.partition());
+                for (ConsumerRecord<String, Object> record : records.records(tp)) {
+                    if (record.offset() >= limit) {
+                        // Fetched past this checkpoint; re-read from the limit next time
+                        consumer.seek(tp, limit);
+                        break;
+                    }
+                    ledger.record(tp.partition(), record.offset(), expectedContribution(record.value()));
+                    read++;
+                }
+            }
+            for (TopicPartition tp : reading) {
+                ledger.advanceTo(tp.partition(), Math.min(consumer.position(tp), ledger.readLimit(tp.partition())));
+            }
+            if (records.isEmpty() && !ledger.isCheckpointComplete()) {
+                break;
+            }
+        }
+        recordsRead.increment(read);
+    }
+
+    // What both aggregates should add for this order: the pipeline's verdict after currency normalization
+    private AggregateTotals expectedContribution(Object value) {
+        if (!(value instanceof Order order)) {
+            return AggregateTotals.ZERO;
+        }
+        Order copy = Order.newBuilder(order).build();
+        if (orderPipeline.evaluate(copy) != null) {
+            return AggregateTotals.ZERO;
+        }
+        return new AggregateTotals(1, copy.getQuantity(), OrderAmounts.totalMinor(copy));
+    }
+
+    private void finishCheckpoint() {
+        Checkpoint current = pending.complete(ledger.expectedAt(Side.LISTENER), ledger.expectedAt(Side.STREAMS));
+        pending = null;
+        if (previous != null) {
+            AggregateTotals listenerExpected = current.listenerExpected.minus(previous.listenerExpected);
+            AggregateTotals listenerActual = current.listenerTotals.minus(previous.listenerTotals);
+            AggregateTotals listenerDrift = null;
+            // A reset, or its undo, of the listener totals makes this interval incomparable for that side
+            if (current.listenerResetEpoch == previous.listenerResetEpoch && listenerActual.count() >= 0) {
+                listenerDrift = listenerActual.minus(listenerExpected);
+                cumulativeListenerDrift = cumulativeListenerDrift.plus(listenerDrift);
+            }
+            AggregateTotals streamsExpected = current.streamsExpected.minus(previous.streamsExpected);
+            AggregateTotals streamsActual = current.streamsTotals.minus(previous.streamsTotals);
+            AggregateTotals streamsDrift = streamsActual.minus(streamsExpected);
+            cumulativeStreamsDrift = cumulativeStreamsDrift.plus(streamsDrift);
+
+            ReconciliationReport report = new ReconciliationReport(Instant.now(),
+                    listenerExpected, listenerActual, listenerDrift,
+                    streamsExpected, streamsActual, streamsDrift,
+                    cumulativeListenerDrift, cumulativeStreamsDrift);
+            lastReport.set(report);
+            log.info("Reconciled: listener drift={}, streams drift={}", listenerDrift, streamsDrift);
+        }
+        previous = current;
+    }
+
+    private void rebaseline(String reason) {
+        log.warn("Reconciliation rebaselined: {}", reason);
+        rebaselines.increment();
+        ledger.clear();
+        pending = null;
+        previous = null;
+    }
+
+    private AggregateTotals cumulativeDrift(String side) {
+        return "listener".equals(side) ? cumulativeListenerDrift : cumulativeStreamsDrift;
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> committedOffsets(String groupId) throws Exception {
+        return topicScalingService.admin().listConsumerGroupOffsets(groupId).partitionsToOffsetAndMetadata()
+                .get(adminTimeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    private static Long offset(Map<TopicPartition, OffsetAndMetadata> offsets, TopicPartition tp) {
+        OffsetAndMetadata offset = offsets.get(tp);
+        return offset == null ? null : offset.offset();
+    }
+
+    private Consumer<String, Object> consumer() {
+        if (consumer == null) {
+            consumer = consumerFactory.createConsumer("order-reconciler", "-reconciler");
+        }
+        return consumer;
+    }
+
+    private static final class Checkpoint {
+
+        private final AggregateTotals listenerTotals;
+        private final long listenerResetEpoch;
+        private final AggregateTotals streamsTotals;
+        private AggregateTotals listenerExpected;
+        private AggregateTotals streamsExpected;
+
+        private Checkpoint(AggregateTotals listenerTotals, long listenerResetEpoch, AggregateTotals streamsTotals) {
+            this.listenerTotals = listenerTotals;
+            this.listenerResetEpoch = listenerResetEpoch;
+            this.streamsTotals = streamsTotals;
+        }
+
+        private Checkpoint complete(AggregateTotals listenerExpected, AggregateTotals streamsExpected) {
+            this.listenerExpected = listenerExpected;
+            this.streamsExpected = streamsExpected;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.kafka.reconcile;
+
+import com.example.kafka.aggregation.AggregateTotals;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Expected aggregate contributions of the orders topic, read once and in offset order per partition.
+ * A checkpoint marks the offset each side had committed; when the reader gets there, the expected totals
+ * of everything before that offset are captured. Each side's progress between two checkpoints can then be
+ * compared with exactly the orders in the offset range it covered, without reading any offset twice. The
+ * sides may be far apart: a side behind the reader is captured from the totals kept since its last mark.
+ */
+class ReconciliationLedger {
+
+    enum Side { LISTENER, STREAMS }
+
+    private final Map<Integer, PartitionLedger> partitions = new HashMap<>();
+
+    boolean isTracked(int partition) {
+        return partitions.containsKey(partition);
+    }
+
+    void track(int partition, long offset) {
+        partitions.put(partition, new PartitionLedger(offset));
+    }
+
+    long position(int partition) {
+        return partitions.get(partition).position;
+    }
+
+    // The side's mark from the previous checkpoint, or where tracking started if it has none yet
+    long lastMark(Side side, int partition) {
+        PartitionLedger ledger = partitions.get(partition);
+        Long target = ledger.targets.get(side);
+        return target == null ? ledger.history.firstKey() : target;
+    }
+
+    /**
+     * Registers the offset a side has committed on a partition for the next checkpoint. The offset may be
+     * behind what was already read for the other side; its expected totals are kept until both sides pass.
+     * @return false if it is behind the side's own previous mark (the group was rewound), so it cannot be aligned
+     */
+    boolean mark(Side side, int partition, long offset) {
+        PartitionLedger ledger = partitions.get(partition);
+        if (offset < lastMark(side, partition)) {
+            return false;
+        }
+        ledger.targets.put(side, offset);
+        ledger.captured.remove(side);
+        ledger.captureReached();
+        ledger.prune();
+        return true;
+    }
+
+    // Furthest offset this checkpoint needs on the partition; reading past it would skip the next marks
+    long readLimit(int partition) {
+        return partitions.get(partition).targets.values().stream().mapToLong(Long::longValue).max().orElse(0);
+    }
+
+    // Adds the contribution of the record at offset; records must arrive in offset order
+    void record(int partition, long offset, AggregateTotals contribution) {
+        PartitionLedger ledger = partitions.get(partition);
+        ledger.expected = ledger.expected.plus(contribution);
+        ledger.position = offset + 1;
+        ledger.history.put(ledger.position, ledger.expected);
+        ledger.captureReached();
+    }
+
+    // Everything before position has been read, e.g. the consumer position after a poll
+    void advanceTo(int partition, long position) {
+        PartitionLedger ledger = partitions.get(partition);
+        ledger.position = Math.max(ledger.position, position);
+        ledger.captureReached();
+    }
+
+    boolean isCheckpointComplete() {
+        return partitions.values().stream()
+                .allMatch(ledger -> ledger.captured.keySet().containsAll(ledger.targets.keySet()));
+    }
+
+    // Expected totals of every order before the side's marked offsets, summed over partitions
+    AggregateTotals expectedAt(Side side) {
+        AggregateTotals total = AggregateTotals.ZERO;
+        for (PartitionLedger ledger : partitions.values()) {
+            total = total.plus(ledger.captured.getOrDefault(side, AggregateTotals.ZERO));
+        }
+        return total;
+    }
+
+    void clear() {
+        partitions.clear();
+    }
+
+    private static final class PartitionLedger {
+
+        private final Map<Side, Long> targets = new EnumMap<>(Side.class);
+        private final Map<Side, AggregateTotals> captured = new EnumMap<>(Side.class);
+        // Expected totals of every record before each offset, from the lowest mark on; offsets without an
+        // entry (skipped or not records) carry the totals of the entry below them
+        private final NavigableMap<Long, AggregateTotals> history = new TreeMap<>();
+        private long position;
+        private AggregateTotals expected = AggregateTotals.ZERO;
+
+        private PartitionLedger(long position) {
+            this.position = position;
+            history.put(position, expected);
+        }
+
+        private void captureReached() {
+            for (Map.Entry<Side, Long> target : targets.entrySet()) {
+                if (target.getValue() <= position && !captured.containsKey(target.getKey())) {
+                    captured.put(target.getKey(), history.floorEntry(target.getValue()).getValue());
+                }
+            }
+        }
+
+        // Keeps what the slower side can still be marked at: its own mark never moves back
+        private void prune() {
+            long lowest = targets.values().stream().mapToLong(Long::longValue).min().orElse(position);
+            history.headMap(history.floorKey(lowest), false).clear();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.kafka.reconcile;
+
+import com.example.kafka.aggregation.AggregateTotals;
+
+import java.time.Instant;
+
+/**
+ * One reconciled interval between two checkpoints. For each side, expected is what the orders in the offset
+ * range it committed during the interval should have added, actual is what its aggregate really grew by,
+ * and drift is actual minus expected. The listener side is null for an interval in which its totals were
+ * reset. Cumulative drift is summed over every interval since the job started.
+ */
+public record ReconciliationReport(Instant reconciledAt,
+        AggregateTotals listenerExpected, AggregateTotals listenerActual, AggregateTotals listenerDrift,
+        AggregateTotals streamsExpected, AggregateTotals streamsActual, AggregateTotals streamsDrift,
+        AggregateTotals cumulativeListenerDrift, AggregateTotals cumulativeStreamsDrift) {
+}
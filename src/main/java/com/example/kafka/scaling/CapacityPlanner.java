@@ -0,0 +1,111 @@
+package com.example.kafka.scaling;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples log-end and committed offsets for the configured topic:group pairs and reports, per partition,
+ * lag against produce and consume throughput, plus how many partitions each topic needs.
+ */
+@Slf4j
+@Service
+public class CapacityPlanner {
+
+    private final TopicScalingService topicScalingService;
+    private final List<String[]> targets = new ArrayList<>();
+    private final double headroom;
+    private final int adminTimeoutSeconds;
+    private volatile OffsetSample previous;
+    private volatile OffsetSample latest;
+
+    public CapacityPlanner(TopicScalingService topicScalingService,
+            @Value("${kafka.capacity.targets}") String[] targets,
+            @Value("${kafka.capacity.headroom}") double headroom,
+            @Value("${kafka.admin.operation-timeout-seconds}") int adminTimeoutSeconds) {
+        this.topicScalingService = topicScalingService;
+        for (String target : targets) {
+            String[] parts = target.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("kafka.capacity.targets entries must be topic:group, got " + target);
+            }
+            this.targets.add(parts);
+        }
+        this.headroom = headroom;
+        this.adminTimeoutSeconds = adminTimeoutSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.capacity.sample-interval-ms}")
+    public void sample() {
+        try {
+            OffsetSample sample = readOffsets();
+            previous = latest;
+            latest = sample;
+        } catch (Exception e) {
+            log.debug("Capacity sample skipped: {}", e.getMessage());
+        }
+    }
+
+    // Empty until two samples exist
+    public List<TopicCapacity> report() {
+        OffsetSample from = previous;
+        OffsetSample to = latest;
+        if (from == null || to == null) {
+            return List.of();
+        }
+        return targets.stream()
+                .map(target -> TopicCapacity.compute(target[0], target[1], from, to, headroom))
+                .toList();
+    }
+
+    private OffsetSample readOffsets() throws Exception {
+        AdminClient admin = topicScalingService.admin();
+        Set<String> topics = new LinkedHashSet<>();
+        Set<String> groups = new LinkedHashSet<>();
+        targets.forEach(target -> {
+            topics.add(target[0]);
+            groups.add(target[1]);
+        });
+
+        Map<String, TopicDescription> descriptions = admin.describeTopics(topics).allTopicNames()
+                .get(adminTimeoutSeconds, TimeUnit.SECONDS);
+        Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+        descriptions.values().forEach(description -> description.partitions().forEach(partition ->
+                request.put(new TopicPartition(description.name(), partition.partition()), OffsetSpec.latest())));
+
+        long timeMs = System.currentTimeMillis();
+        Map<TopicPartition, Long> endOffsets = new HashMap<>();
+        for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> entry
+                : admin.listOffsets(request).all().get(adminTimeoutSeconds, TimeUnit.SECONDS).entrySet()) {
+            endOffsets.put(entry.getKey(), entry.getValue().offset());
+        }
+
+        Map<String, Map<TopicPartition, Long>> committedOffsets = new HashMap<>();
+        for (String group : groups) {
+            Map<TopicPartition, Long> committed = new HashMap<>();
+            for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : admin.listConsumerGroupOffsets(group)
+                    .partitionsToOffsetAndMetadata().get(adminTimeoutSeconds, TimeUnit.SECONDS).entrySet()) {
+                if (entry.getValue() != null) {
+                    committed.put(entry.getKey(), entry.getValue().offset());
+                }
+            }
+            committedOffsets.put(group, committed);
+        }
+        return new OffsetSample(timeMs, endOffsets, committedOffsets);
+    }
+}
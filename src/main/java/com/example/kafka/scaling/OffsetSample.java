@@ -0,0 +1,16 @@
+package com.example.kafka.scaling;
+
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Map;
+
+/**
+ * Log-end offsets and per-group committed offsets read at one point in time.
+ */
+public record OffsetSample(long timeMs, Map<TopicPartition, Long> endOffsets,
+        Map<String, Map<TopicPartition, Long>> committedOffsets) {
+
+    long committed(String groupId, TopicPartition partition) {
+        return committedOffsets.getOrDefault(groupId, Map.of()).getOrDefault(partition, 0L);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.kafka.scaling;
+
+/**
+ * Lag and throughput of one partition for one consumer group. Rates are records per second over the last
+ * sample interval; secondsToDrain is null when the group is not gaining on the producers.
+ */
+public record PartitionCapacity(int partition, long endOffset, long committedOffset, long lag,
+        double produceRate, double consumeRate, Long secondsToDrain) {
+}
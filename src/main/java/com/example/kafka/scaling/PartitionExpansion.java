@@ -0,0 +1,11 @@
+package com.example.kafka.scaling;
+
+import java.util.List;
+
+/**
+ * Outcome of an online partition increase: the internal topics expanded with it and the listener
+ * containers restarted with one consumer per partition.
+ */
+public record PartitionExpansion(String topic, int previousPartitions, int partitions,
+        List<String> expandedInternalTopics, List<String> rescaledListeners) {
+}
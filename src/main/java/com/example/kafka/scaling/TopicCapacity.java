@@ -0,0 +1,67 @@
+package com.example.kafka.scaling;
+
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Capacity of one consumer group on one topic, computed from two offset samples.
+ * Only a partition with lag shows what a consumer can actually do (a caught-up consumer runs at the
+ * producer's rate), so the per-partition capacity is the best consume rate among lagging partitions.
+ * recommendedPartitions is how many such partitions the current produce rate needs with the given
+ * headroom; it never goes below the current count since partitions cannot be removed.
+ */
+public record TopicCapacity(String topic, String groupId, int partitions, long totalLag, double produceRate,
+        double consumeRate, double partitionCapacity, int recommendedPartitions,
+        List<PartitionCapacity> partitionDetails) {
+
+    static TopicCapacity compute(String topic, String groupId, OffsetSample previous, OffsetSample latest,
+            double headroom) {
+        double elapsedSeconds = previous == null ? 0 : (latest.timeMs() - previous.timeMs()) / 1000.0;
+        List<TopicPartition> topicPartitions = latest.endOffsets().keySet().stream()
+                .filter(tp -> tp.topic().equals(topic))
+                .sorted(Comparator.comparingInt(TopicPartition::partition))
+                .toList();
+
+        List<PartitionCapacity> details = new ArrayList<>();
+        long totalLag = 0;
+        double totalProduceRate = 0;
+        double totalConsumeRate = 0;
+        double partitionCapacity = 0;
+        for (TopicPartition tp : topicPartitions) {
+            long end = latest.endOffsets().get(tp);
+            long committed = latest.committed(groupId, tp);
+            long lag = Math.max(0, end - committed);
+            double produceRate = 0;
+            double consumeRate = 0;
+            if (elapsedSeconds > 0 && previous.endOffsets().containsKey(tp)) {
+                produceRate = Math.max(0, end - previous.endOffsets().get(tp)) / elapsedSeconds;
+                consumeRate = Math.max(0, committed - previous.committed(groupId, tp)) / elapsedSeconds;
+            }
+            Long secondsToDrain = null;
+            if (lag == 0) {
+                secondsToDrain = 0L;
+            } else if (consumeRate > produceRate) {
+                secondsToDrain = (long) Math.ceil(lag / (consumeRate - produceRate));
+            }
+            if (lag > 0) {
+                partitionCapacity = Math.max(partitionCapacity, consumeRate);
+            }
+            details.add(new PartitionCapacity(tp.partition(), end, committed, lag, produceRate, consumeRate,
+                    secondsToDrain));
+            totalLag += lag;
+            totalProduceRate += produceRate;
+            totalConsumeRate += consumeRate;
+        }
+
+        int partitions = topicPartitions.size();
+        int recommended = partitions;
+        if (partitionCapacity > 0) {
+            recommended = Math.max(partitions, (int) Math.ceil(totalProduceRate * headroom / partitionCapacity));
+        }
+        return new TopicCapacity(topic, groupId, partitions, totalLag, totalProduceRate, totalConsumeRate,
+                partitionCapacity, recommended, details);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.kafka.scaling;
+
+import com.example.kafka.services.OrderAggregationStreamsService;
+import com.example.kafka.tenant.Tenant;
+import com.example.kafka.tenant.TenantRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewPartitions;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Grows the app's topics online. Partitions can only be added, and adding them changes which partition
+ * a key hashes to, so for the orders topic this also:
+ * - expands the Streams dedup changelog to match, since Streams refuses to run when a changelog has fewer
+ *   partitions than its tasks. Dedup entries stay where they were written, so a copy of an order that
+ *   arrives shortly after the expansion can land on a different task and be counted again.
+ * - leaves the by-product aggregates alone: they sit behind a repartition topic with a pinned partition
+ *   count (kafka.streams.aggregate-partitions), so no product changes tasks.
+ * Listener containers on the topic are restarted with one consumer per partition; the adaptive controller
+ * scales them back down when idle. The aggregated topic is not scalable: its feed assigns itself the partitions
+ * that existed when it started, so aggregates on added partitions would not reach /aggregates/stream.
+ */
+@Slf4j
+@Service
+public class TopicScalingService {
+
+    private final KafkaAdmin kafkaAdmin;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final TenantRegistry tenantRegistry;
+    private final String ordersTopic;
+    private final Set<String> scalableTopics;
+    private final int adminTimeoutSeconds;
+    private AdminClient adminClient;
+
+    public TopicScalingService(KafkaAdmin kafkaAdmin,
+            KafkaListenerEndpointRegistry listenerRegistry,
+            TenantRegistry tenantRegistry,
+            @Value("${kafka.topic.orders}") String ordersTopic,
+            @Value("${kafka.topic.retry}") String retryTopic,
+            @Value("${kafka.topic.dlq}") String dlqTopic,
+            @Value("${kafka.topic.parking}") String parkingTopic,
+            @Value("${kafka.admin.operation-timeout-seconds}") int adminTimeoutSeconds) {
+        this.kafkaAdmin = kafkaAdmin;
+        this.listenerRegistry = listenerRegistry;
+        this.tenantRegistry = tenantRegistry;
+        this.ordersTopic = ordersTopic;
+        this.scalableTopics = Set.of(ordersTopic, retryTopic, dlqTopic, parkingTopic);
+        this.adminTimeoutSeconds = adminTimeoutSeconds;
+    }
+
+    public synchronized PartitionExpansion expandPartitions(String topic, int partitions)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        boolean tenantTopic = tenantRegistry.getTenants().stream()
+                .anyMatch(t -> t.ordersTopic().equals(topic) || t.retryTopic().equals(topic));
+        if (!scalableTopics.contains(topic) && !tenantTopic) {
+            throw new IllegalArgumentException("Not a scalable topic: " + topic);
+        }
+        int current = partitionCount(topic);
+        if (partitions <= current) {
+            throw new IllegalArgumentException("Topic " + topic + " already has " + current
+                    + " partitions; partitions can only be added");
+        }
+
+        Map<String, NewPartitions> increases = new HashMap<>();
+        increases.put(topic, NewPartitions.increaseTo(partitions));
+        List<String> internalTopics = new ArrayList<>();
+        if (topic.equals(ordersTopic)) {
+            String dedupChangelog = OrderAggregationStreamsService.APPLICATION_ID + "-"
+                    + OrderAggregationStreamsService.ORDER_DEDUP_STORE + "-changelog";
+            // Absent until Streams has run once, in which case it is created at the right size
+            int changelogPartitions = existingPartitionCount(dedupChangelog);
+            if (changelogPartitions > 0 && changelogPartitions < partitions) {
+                increases.put(dedupChangelog, NewPartitions.increaseTo(partitions));
+                internalTopics.add(dedupChangelog);
+            }
+        }
+        admin().createPartitions(increases).all().get(adminTimeoutSeconds, TimeUnit.SECONDS);
+        log.info("Expanded topic {} from {} to {} partitions (internal topics: {})",
+                topic, current, partitions, internalTopics);
+
+        List<String> rescaled = new ArrayList<>();
+        for (MessageListenerContainer container : listenerContainers()) {
+            String[] topics = container.getContainerProperties().getTopics();
+            if (topics != null && Arrays.asList(topics).contains(topic)
+                    && container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent
+                    && concurrent.isRunning()) {
+                rescale(concurrent, partitions);
+                rescaled.add(container.getListenerId());
+            }
+        }
+        return new PartitionExpansion(topic, current, partitions, internalTopics, rescaled);
+    }
+
+    public int partitionCount(String topic) {
+        TopicDescription description = kafkaAdmin.describeTopics(topic).get(topic);
+        return description == null ? 0 : description.partitions().size();
+    }
+
+    private int existingPartitionCount(String topic) {
+        try {
+            return partitionCount(topic);
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    // Shared with the capacity planner and reconciler; created on first use so startup never waits on the cluster
+    public synchronized AdminClient admin() {
+        if (adminClient == null) {
+            adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        }
+        return adminClient;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (adminClient != null) {
+            adminClient.close();
+        }
+    }
+
+    private List<MessageListenerContainer> listenerContainers() {
+        List<MessageListenerContainer> containers = new ArrayList<>(listenerRegistry.getListenerContainers());
+        for (Tenant tenant : tenantRegistry.getTenants()) {
+            containers.add(tenant.container());
+            containers.add(tenant.retryContainer());
+        }
+        return containers;
+    }
+
+    // Concurrency only takes effect on start, as in AdaptiveConcurrencyController
+    private static void rescale(ConcurrentMessageListenerContainer<?, ?> container, int concurrency) {
+        log.info("Restarting listener {} with {} consumers to match partitions", container.getListenerId(), concurrency);
+        container.stop(() -> {
+            container.setConcurrency(concurrency);
+            container.start();
+        });
+    }
+}
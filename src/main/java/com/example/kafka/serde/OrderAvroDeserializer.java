@@ -0,0 +1,119 @@
+package com.example.kafka.serde;
+
+import com.example.kafka.avro.Order;
+import io.confluent.kafka.schemaregistry.ParsedSchema;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.CachedSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaCompatibility;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads Confluent-framed Avro orders written with any compatible version of order.avsc into the
+ * current {@link Order} class.
+ * The writer schema is looked up once per schema id, checked against the reader schema, and turned
+ * into a resolving reader that is cached, so per record the only extra work is a map lookup.
+ * A writer schema that cannot be read fails with a SerializationException naming the incompatibility.
+ */
+public class OrderAvroDeserializer implements Deserializer<Order> {
+
+    private static final byte MAGIC_BYTE = 0x0;
+    private static final int HEADER_SIZE = 5;
+    private static final int SCHEMA_CACHE_CAPACITY = 1000;
+
+    private final Map<Integer, DatumReader<Order>> readers = new ConcurrentHashMap<>();
+    private final ThreadLocal<BinaryDecoder> decoders = new ThreadLocal<>();
+    private SchemaRegistryClient schemaRegistry;
+
+    public OrderAvroDeserializer() {
+    }
+
+    public OrderAvroDeserializer(SchemaRegistryClient schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        if (schemaRegistry != null) {
+            return;
+        }
+        Object urls = configs.get(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG);
+        if (urls == null) {
+            throw new IllegalArgumentException(AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG + " is required");
+        }
+        List<String> baseUrls = urls instanceof List<?> list
+                ? list.stream().map(Object::toString).toList()
+                : Arrays.stream(urls.toString().split(",")).map(String::trim).toList();
+        schemaRegistry = new CachedSchemaRegistryClient(baseUrls, SCHEMA_CACHE_CAPACITY, configs);
+    }
+
+    @Override
+    public Order deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length < HEADER_SIZE || data[0] != MAGIC_BYTE) {
+            throw new SerializationException("Unknown magic byte in order record from topic " + topic);
+        }
+        int schemaId = ByteBuffer.wrap(data, 1, 4).getInt();
+        DatumReader<Order> reader = readers.computeIfAbsent(schemaId, this::createReader);
+
+        BinaryDecoder decoder = DecoderFactory.get()
+                .binaryDecoder(data, HEADER_SIZE, data.length - HEADER_SIZE, decoders.get());
+        decoders.set(decoder);
+        try {
+            return reader.read(null, decoder);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Error deserializing order with schema id " + schemaId
+                    + " from topic " + topic, e);
+        }
+    }
+
+    // Number of distinct writer schemas seen so far
+    public int getCachedReaderCount() {
+        return readers.size();
+    }
+
+    private DatumReader<Order> createReader(int schemaId) {
+        Schema writerSchema = writerSchema(schemaId);
+        SchemaCompatibility.SchemaPairCompatibility compatibility =
+                SchemaCompatibility.checkReaderWriterCompatibility(Order.getClassSchema(), writerSchema);
+        if (compatibility.getType() != SchemaCompatibility.SchemaCompatibilityType.COMPATIBLE) {
+            throw new SerializationException("Order schema id " + schemaId + " cannot be read as "
+                    + Order.getClassSchema().getFullName() + ": " + compatibility.getDescription());
+        }
+        return new SpecificDatumReader<>(writerSchema, Order.getClassSchema());
+    }
+
+    private Schema writerSchema(int schemaId) {
+        try {
+            ParsedSchema parsed = schemaRegistry.getSchemaById(schemaId);
+            if (!(parsed instanceof AvroSchema avroSchema)) {
+                throw new SerializationException("Schema id " + schemaId + " is not an Avro schema");
+            }
+            return avroSchema.rawSchema();
+        } catch (IOException | RestClientException e) {
+            throw new SerializationException("Error retrieving writer schema id " + schemaId, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        readers.clear();
+    }
+}
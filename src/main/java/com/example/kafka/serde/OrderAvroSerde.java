@@ -0,0 +1,21 @@
+package com.example.kafka.serde;
+
+import com.example.kafka.avro.Order;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.streams.serdes.avro.SpecificAvroSerializer;
+import org.apache.kafka.common.serialization.Serdes;
+
+/**
+ * Writes orders with the current schema and reads any compatible older or newer version through
+ * {@link OrderAvroDeserializer}.
+ */
+public class OrderAvroSerde extends Serdes.WrapperSerde<Order> {
+
+    public OrderAvroSerde() {
+        super(new SpecificAvroSerializer<>(), new OrderAvroDeserializer());
+    }
+
+    public OrderAvroSerde(SchemaRegistryClient schemaRegistry) {
+        super(new SpecificAvroSerializer<>(schemaRegistry), new OrderAvroDeserializer(schemaRegistry));
+    }
+}
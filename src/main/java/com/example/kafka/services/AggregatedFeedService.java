@@ -0,0 +1,178 @@
+package com.example.kafka.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans the order-aggregated topic out to server-sent-event subscribers.
+ * One group-less consumer per instance reads every partition; every subscriber has its own pending map keyed
+ * by product, so a slow client only ever holds the latest aggregate per product. Each subscriber drains on its
+ * own virtual thread, so a client stuck in a send never blocks the others, and it is dropped once its send
+ * has been blocked for longer than the send timeout.
+ */
+@Slf4j
+@Service
+public class AggregatedFeedService {
+
+    private final Map<String, String> latestAggregates = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatcher;
+    private final long sseTimeoutMs;
+    private final long sendTimeoutNanos;
+    private final int maxPendingPerSubscriber;
+    private final Timer fanOutLatency;
+    private final Counter droppedUpdates;
+    private final Counter timedOutSubscribers;
+
+    public AggregatedFeedService(MeterRegistry meterRegistry,
+            @Value("${kafka.feed.sse-timeout-ms}") long sseTimeoutMs,
+            @Value("${kafka.feed.send-timeout-ms}") long sendTimeoutMs,
+            @Value("${kafka.feed.max-pending-per-subscriber}") int maxPendingPerSubscriber) {
+        this.dispatcher = Executors.newVirtualThreadPerTaskExecutor();
+        this.sseTimeoutMs = sseTimeoutMs;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        this.maxPendingPerSubscriber = maxPendingPerSubscriber;
+        this.fanOutLatency = meterRegistry.timer("orders.feed.fanout.latency");
+        this.droppedUpdates = meterRegistry.counter("orders.feed.dropped.updates");
+        this.timedOutSubscribers = meterRegistry.counter("orders.feed.timed.out.subscribers");
+        meterRegistry.gaugeCollectionSize("orders.feed.subscribers", Tags.empty(), subscribers);
+    }
+
+    @KafkaListener(id = "aggregated-feed", idIsGroup = false, containerFactory = "aggregatedListenerContainerFactory",
+            topicPartitions = @TopicPartition(topic = "${kafka.topic.aggregated}",
+                    partitions = "#{@partitionFinder.partitions('${kafka.topic.aggregated}', "
+                            + "${kafka.topic.partitions.aggregated:${kafka.topic.default-partitions}})}"))
+    public void consumeAggregate(@Payload String aggregate,
+            @Header(KafkaHeaders.RECEIVED_KEY) String product) {
+        latestAggregates.put(product, aggregate);
+        long now = System.nanoTime();
+        Update update = new Update(aggregate, now);
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isStuck(now)) {
+                log.debug("Dropping aggregate feed subscriber blocked in send for over {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                timedOutSubscribers.increment();
+                subscribers.remove(subscriber);
+                subscriber.emitter.completeWithError(new IOException("SSE send timed out"));
+                continue;
+            }
+            subscriber.offer(product, update);
+        }
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        long now = System.nanoTime();
+        latestAggregates.forEach((product, aggregate) -> subscriber.offer(product, new Update(aggregate, now)));
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private record Update(String aggregate, long receivedNanos) {
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Map<String, Update> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // System.nanoTime() when the send in progress started, 0 when idle
+        private volatile long sendStartedNanos;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        boolean isStuck(long now) {
+            long started = sendStartedNanos;
+            return started != 0 && now - started > sendTimeoutNanos;
+        }
+
+        void offer(String product, Update update) {
+            // Latest value per product wins; a brand-new product is dropped once the buffer is full
+            if (pending.size() >= maxPendingPerSubscriber && !pending.containsKey(product)) {
+                droppedUpdates.increment();
+                return;
+            }
+            pending.put(product, update);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down; the emitter is completed by shutdown()
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Iterator<Map.Entry<String, Update>> iterator = pending.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<String, Update> entry = iterator.next();
+                    Update update = entry.getValue();
+                    if (!pending.remove(entry.getKey(), update)) {
+                        continue;
+                    }
+                    sendStartedNanos = System.nanoTime();
+                    emitter.send(SseEmitter.event()
+                            .name("aggregate")
+                            .id(entry.getKey())
+                            .data(update.aggregate(), MediaType.APPLICATION_JSON));
+                    sendStartedNanos = 0;
+                    fanOutLatency.record(System.nanoTime() - update.receivedNanos(), TimeUnit.NANOSECONDS);
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping aggregate feed subscriber: {}", e.getMessage());
+                subscribers.remove(this);
+                pending.clear();
+                return;
+            } finally {
+                sendStartedNanos = 0;
+                draining.set(false);
+            }
+            if (!pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+}
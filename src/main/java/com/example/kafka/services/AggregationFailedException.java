@@ -0,0 +1,14 @@
+package com.example.kafka.services;
+
+/**
+ * Thrown when an order passed deduplication but could not be added to the aggregate, e.g. on overflow.
+ * The dedup mark cannot be taken back, so a retry would drop the order as a duplicate: it goes to the DLQ.
+ */
+public class AggregationFailedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public AggregationFailedException(String orderId, RuntimeException cause) {
+        super("Aggregation failed for order " + orderId + ": " + cause.getMessage(), cause);
+    }
+}
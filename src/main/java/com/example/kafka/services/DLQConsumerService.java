@@ -11,10 +11,14 @@ import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Service
@@ -23,29 +27,39 @@ public class DLQConsumerService {
     private static final Logger FAILED_ORDER_LOGGER = LoggerFactory.getLogger("FAILED_ORDER_LOGGER");
 
     private final List<FailedOrder> failedOrders = new CopyOnWriteArrayList<>();
+    private final AtomicLong version = new AtomicLong();
 
-    @KafkaListener(topics = "${kafka.topic.dlq}", groupId = "dlq-consumer-group")
+    @KafkaListener(id = "dlq-consumer", topics = "${kafka.topic.dlq}", groupId = "dlq-consumer-group")
     public void consumeDLQOrder(@Payload Order order,
             @Header(KafkaHeaders.RECEIVED_KEY) String key,
+            @Header(name = RetryDispatcher.FAILURE_REASON_HEADER, required = false) byte[] failureReason,
             Acknowledgment acknowledgment) {
 
         log.error("DLQ ORDER RECEIVED");
         log.error("OrderId: {}", order.getOrderId());
         log.error("Product: {}", order.getProduct());
         log.error("Price: {}", order.getPrice());
+        LocalDateTime orderedAt = order.getOrderTimestamp() != null
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(order.getOrderTimestamp()), ZoneId.systemDefault())
+                : null;
+        log.error("Ordered at: {}", orderedAt);
         log.error("Timestamp: {}", LocalDateTime.now());
 
-        String errorReason = order.getPrice() < 0 ? "Invalid price" : "Processing failed after max retries";
-        FAILED_ORDER_LOGGER.info("[DLQ] Failed Topic: order-topic | OrderId: {} | Product: {} | Price: {} | Error: {}",
-                order.getOrderId(), order.getProduct(), order.getPrice(), errorReason);
+        String errorReason = failureReason != null
+                ? new String(failureReason, StandardCharsets.UTF_8)
+                : "Processing failed after max retries";
+        FAILED_ORDER_LOGGER.info("[DLQ] Failed Topic: order-topic | OrderId: {} | Product: {} | Price: {} | Ordered At: {} | Error: {}",
+                order.getOrderId(), order.getProduct(), order.getPrice(), orderedAt, errorReason);
 
         FailedOrder failedOrder = new FailedOrder(
                 order.getOrderId().toString(),
                 order.getProduct().toString(),
                 order.getPrice(),
+                orderedAt,
                 LocalDateTime.now(),
-                "Failed after max retry attempts");
+                errorReason);
         failedOrders.add(failedOrder);
+        version.incrementAndGet();
 
         acknowledgment.acknowledge();
 
@@ -60,8 +74,14 @@ public class DLQConsumerService {
         return failedOrders.size();
     }
 
+    // Incremented on every change to the failed orders list
+    public long getVersion() {
+        return version.get();
+    }
+
     public void clearFailedOrders() {
         failedOrders.clear();
+        version.incrementAndGet();
         log.info("Failed orders list cleared");
     }
 
@@ -69,6 +89,7 @@ public class DLQConsumerService {
             String orderId,
             String product,
             float price,
+            LocalDateTime orderedAt,
             LocalDateTime failedAt,
             String reason) {
     }
@@ -1,18 +1,49 @@
 package com.example.kafka.services;
 
+import com.example.kafka.aggregation.HopTracingProcessor;
+import com.example.kafka.aggregation.HotKeyDetector;
+import com.example.kafka.aggregation.HotKeySaltingProcessor;
+import com.example.kafka.aggregation.OrderDeduplicationProcessor;
+import com.example.kafka.aggregation.OrderTimestampExtractor;
+import com.example.kafka.aggregation.PartialAggregateProcessor;
+import com.example.kafka.aggregation.ProductPriceSketch;
+import com.example.kafka.aggregation.ProductPriceSketchSerde;
+import com.example.kafka.aggregation.ProductPriceStats;
 import com.example.kafka.avro.Order;
+import com.example.kafka.catalog.ProductCatalogEntry;
+import com.example.kafka.config.BoundedMemoryRocksDBConfig;
+import com.example.kafka.currency.FxRates;
+import com.example.kafka.currency.OrderAmounts;
+import com.example.kafka.config.StateRestoreTimingListener;
+import com.example.kafka.pipeline.OrderPipeline;
+import com.example.kafka.serde.OrderAvroSerde;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.kstream.*;
+import org.apache.kafka.streams.state.KeyValueBytesStoreSupplier;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.WindowStore;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafkaStreams;
 import org.springframework.kafka.annotation.KafkaStreamsDefaultConfiguration;
 import org.springframework.kafka.config.KafkaStreamsConfiguration;
+import org.springframework.kafka.config.StreamsBuilderFactoryBeanConfigurer;
+import org.springframework.kafka.support.serializer.JsonSerde;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,6 +52,15 @@ import java.util.Map;
 @EnableKafkaStreams
 public class OrderAggregationStreamsService {
 
+    public static final String APPLICATION_ID = "order-aggregation-streams";
+    public static final String PRODUCT_AGGREGATE_STORE = "product-price-aggregate-store";
+    public static final String ORDER_DEDUP_STORE = "order-dedup-store";
+    public static final String PRODUCT_CATALOG_STORE = "product-catalog-store";
+    public static final String PRODUCT_WINDOWED_STORE = "product-price-windowed-store";
+    public static final String ORDERS_BY_PRODUCT_REPARTITION = "orders-by-product";
+    public static final String PRODUCT_PARTIALS_REPARTITION = "product-partials";
+    public static final String HOT_PRODUCT_PARTIAL_STORE = "hot-product-partial-store";
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
@@ -30,68 +70,295 @@ public class OrderAggregationStreamsService {
     @Value("${kafka.topic.aggregated}")
     private String aggregatedTopic;
 
+    @Value("${kafka.topic.catalog}")
+    private String catalogTopic;
+
+    @Value("${kafka.catalog.reject-unknown-products}")
+    private boolean rejectUnknownProducts;
+
     @Value("${spring.kafka.consumer.properties.schema.registry.url}")
     private String schemaRegistryUrl;
 
+    @Value("${kafka.streams.rocksdb.total-off-heap-bytes}")
+    private long rocksDbTotalOffHeapBytes;
+
+    @Value("${kafka.streams.rocksdb.total-memtable-bytes}")
+    private long rocksDbTotalMemtableBytes;
+
+    @Value("${kafka.streams.rocksdb.index-filter-block-ratio}")
+    private double rocksDbIndexFilterBlockRatio;
+
+    @Value("${kafka.streams.rocksdb.block-size-bytes}")
+    private long rocksDbBlockSizeBytes;
+
+    @Value("${kafka.streams.rocksdb.max-write-buffers}")
+    private int rocksDbMaxWriteBuffers;
+
+    @Value("${kafka.streams.rocksdb.bloom-filter-bits-per-key}")
+    private double rocksDbBloomFilterBitsPerKey;
+
+    @Value("${kafka.streams.cache-max-bytes}")
+    private long streamsCacheMaxBytes;
+
+    @Value("${kafka.streams.metrics.recording-level}")
+    private String metricsRecordingLevel;
+
+    // persistent (RocksDB), in-memory, or lru (in-memory, bounded by max-entries)
+    @Value("${kafka.streams.store.type}")
+    private String storeType;
+
+    @Value("${kafka.streams.store.lru-max-entries}")
+    private int lruMaxEntries;
+
+    // 0 means one stream thread per available core
+    @Value("${kafka.streams.num-threads}")
+    private int numStreamThreads;
+
+    @Value("${kafka.streams.standby-replicas}")
+    private int standbyReplicas;
+
+    @Value("${kafka.streams.max-warmup-replicas}")
+    private int maxWarmupReplicas;
+
+    @Value("${kafka.streams.acceptable-recovery-lag}")
+    private long acceptableRecoveryLag;
+
+    @Value("${kafka.streams.close-timeout-seconds}")
+    private int closeTimeoutSeconds;
+
+    @Value("${kafka.consumer.group-instance-id}")
+    private String groupInstanceId;
+
+    @Value("${kafka.consumer.session-timeout-ms}")
+    private int sessionTimeoutMs;
+
+    @Value("${kafka.dedup.ttl-ms}")
+    private long dedupTtlMs;
+
+    // Partitions of the by-product repartition topic, fixed independently of the orders topic
+    @Value("${kafka.streams.aggregate-partitions}")
+    private int aggregatePartitions;
+
+    @Value("${kafka.streams.event-time.window-ms}")
+    private long eventTimeWindowMs;
+
+    // How long after a window closes in event time a delayed order (e.g. a retry) is still counted
+    @Value("${kafka.streams.event-time.grace-ms}")
+    private long eventTimeGraceMs;
+
+    @Value("${kafka.streams.event-time.retention-ms}")
+    private long eventTimeRetentionMs;
+
+    @Value("${kafka.streams.hot-keys.enabled}")
+    private boolean hotKeysEnabled;
+
+    // Share of a task's recent orders above which a product is salted
+    @Value("${kafka.streams.hot-keys.share}")
+    private double hotKeyShare;
+
+    @Value("${kafka.streams.hot-keys.min-count}")
+    private long hotKeyMinCount;
+
+    @Value("${kafka.streams.hot-keys.decay-every}")
+    private long hotKeyDecayEvery;
+
+    @Value("${kafka.streams.hot-keys.salt-buckets}")
+    private int hotKeySaltBuckets;
+
+    @Value("${kafka.streams.hot-keys.flush-interval-ms}")
+    private long hotKeyFlushIntervalMs;
+
     @Bean(name = KafkaStreamsDefaultConfiguration.DEFAULT_STREAMS_CONFIG_BEAN_NAME)
     public KafkaStreamsConfiguration kStreamsConfig() {
         Map<String, Object> props = new HashMap<>();
-        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "order-aggregation-streams");
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, APPLICATION_ID);
         props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.String().getClass().getName());
         props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.String().getClass().getName());
         props.put("schema.registry.url", schemaRegistryUrl);
+        props.put(StreamsConfig.STATESTORE_CACHE_MAX_BYTES_CONFIG, streamsCacheMaxBytes);
+        props.put(StreamsConfig.METRICS_RECORDING_LEVEL_CONFIG, metricsRecordingLevel);
+        props.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG,
+                numStreamThreads > 0 ? numStreamThreads : Runtime.getRuntime().availableProcessors());
+        props.put(StreamsConfig.NUM_STANDBY_REPLICAS_CONFIG, standbyReplicas);
+        props.put(StreamsConfig.MAX_WARMUP_REPLICAS_CONFIG, maxWarmupReplicas);
+        props.put(StreamsConfig.ACCEPTABLE_RECOVERY_LAG_CONFIG, acceptableRecoveryLag);
+        // Streams already rebalances cooperatively; static membership (suffixed per stream thread) lets a
+        // restarted instance keep its tasks instead of triggering a rebalance and state migration
+        props.put(StreamsConfig.consumerPrefix(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG), sessionTimeoutMs);
+        if (!groupInstanceId.isBlank()) {
+            props.put(StreamsConfig.consumerPrefix(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG), groupInstanceId);
+        }
+        // Lets Streams merge or drop redundant repartition steps in the topology
+        props.put(StreamsConfig.TOPOLOGY_OPTIMIZATION_CONFIG, StreamsConfig.OPTIMIZE);
+
+        props.put(StreamsConfig.ROCKSDB_CONFIG_SETTER_CLASS_CONFIG, BoundedMemoryRocksDBConfig.class);
+        props.put(BoundedMemoryRocksDBConfig.TOTAL_OFF_HEAP_BYTES_CONFIG, rocksDbTotalOffHeapBytes);
+        props.put(BoundedMemoryRocksDBConfig.TOTAL_MEMTABLE_BYTES_CONFIG, rocksDbTotalMemtableBytes);
+        props.put(BoundedMemoryRocksDBConfig.INDEX_FILTER_BLOCK_RATIO_CONFIG, rocksDbIndexFilterBlockRatio);
+        props.put(BoundedMemoryRocksDBConfig.BLOCK_SIZE_BYTES_CONFIG, rocksDbBlockSizeBytes);
+        props.put(BoundedMemoryRocksDBConfig.MAX_WRITE_BUFFERS_CONFIG, rocksDbMaxWriteBuffers);
+        props.put(BoundedMemoryRocksDBConfig.BLOOM_FILTER_BITS_PER_KEY_CONFIG, rocksDbBloomFilterBitsPerKey);
 
         return new KafkaStreamsConfiguration(props);
     }
 
     @Bean
-    public KStream<String, String> kStream(StreamsBuilder streamsBuilder) {
+    public StreamsBuilderFactoryBeanConfigurer restoreListenerConfigurer(StateRestoreTimingListener restoreListener) {
+        return factoryBean -> factoryBean.setStateRestoreListener(restoreListener);
+    }
+
+    // Bounds how long close() may take to flush stores and commit before the JVM exits
+    @Bean
+    public StreamsBuilderFactoryBeanConfigurer closeTimeoutConfigurer() {
+        return factoryBean -> factoryBean.setCloseTimeout(closeTimeoutSeconds);
+    }
+
+    @Bean
+    public KStream<String, ProductPriceStats> kStream(StreamsBuilder streamsBuilder, OrderPipeline orderPipeline,
+            FxRates fxRates, MeterRegistry meterRegistry, ObjectProvider<Tracer> tracerProvider,
+            ObjectProvider<Propagator> propagatorProvider) {
+        streamsBuilder.addStateStore(dedupStoreBuilder());
+        streamsBuilder.addStateStore(partialStoreBuilder());
+
+        // Fully replicated on every instance, so the join below never repartitions or calls out
+        GlobalKTable<String, ProductCatalogEntry> catalogTable = streamsBuilder.globalTable(catalogTopic,
+                Consumed.with(Serdes.String(), catalogSerde()),
+                Materialized.as(PRODUCT_CATALOG_STORE));
+
         KStream<String, Order> orderStream = streamsBuilder
-                .stream(ordersTopic, Consumed.with(Serdes.String(), getOrderSerde()));
+                .stream(ordersTopic, Consumed.with(Serdes.String(), getOrderSerde())
+                        .withTimestampExtractor(new OrderTimestampExtractor()));
+
+        // Tracing off leaves no-op beans missing; the processors then only forward
+        Tracer tracer = tracerProvider.getIfAvailable(() -> Tracer.NOOP);
+        Propagator propagator = propagatorProvider.getIfAvailable(() -> Propagator.NOOP);
+
+        // Salting is decided per task, so the topology is the same whether or not it is enabled
+        double hotShare = hotKeysEnabled ? hotKeyShare : Double.POSITIVE_INFINITY;
+        Counter saltedOrders = meterRegistry.counter("orders.streams.hot-keys.salted");
+
+        KStream<String, Order> accepted = orderStream
+                .processValues(() -> new HopTracingProcessor<String, Order>(tracer, propagator, "orders.streams.ingest"))
+                .filter((key, order) -> orderPipeline.evaluateInStreams(order) == null);
+        if (rejectUnknownProducts) {
+            // The listeners' catalog stage, applied against the global table: bootstrapped before any order is
+            // processed and read by the stream thread directly, so rebalances do not let unknown products through
+            accepted = accepted.join(catalogTable,
+                    (key, order) -> order.getProduct().toString(),
+                    (order, entry) -> order);
+        }
 
-        KGroupedStream<String, Order> groupedByProduct = orderStream
-                .filter((key, order) -> order.getPrice() >= 0)
+        KStream<String, Order> byProduct = accepted
+                .processValues(() -> new OrderDeduplicationProcessor(ORDER_DEDUP_STORE, dedupTtlMs), ORDER_DEDUP_STORE)
                 .peek((key, order) -> log.info("Processing order for aggregation: OrderId={}, Product={}, Price={}",
                         order.getOrderId(), order.getProduct(), order.getPrice()))
-                .groupBy((key, order) -> order.getProduct().toString(),
-                        Grouped.with(Serdes.String(), getOrderSerde()));
+                .process(() -> new HotKeySaltingProcessor(
+                        new HotKeyDetector(hotShare, hotKeyMinCount, hotKeyDecayEvery, hotKeySaltBuckets), saltedOrders))
+                // Pinned partition count: expanding the orders topic must not move a product to another
+                // aggregate task, which would split its running and windowed state
+                .repartition(Repartitioned.<String, Order>as(ORDERS_BY_PRODUCT_REPARTITION)
+                        .withKeySerde(Serdes.String())
+                        .withValueSerde(getOrderSerde())
+                        .withNumberOfPartitions(aggregatePartitions))
+                .processValues(() -> new HopTracingProcessor<String, Order>(tracer, propagator, "orders.streams.aggregate"));
+
+        Map<String, KStream<String, Order>> branches = byProduct.split(Named.as("orders-"))
+                .branch((key, order) -> HotKeyDetector.isSalted(key), Branched.as("salted"))
+                .defaultBranch(Branched.as("plain"));
+
+        KGroupedStream<String, Order> plainByProduct = branches.get("orders-plain")
+                .groupByKey(Grouped.with(Serdes.String(), getOrderSerde()));
+
+        // Two-stage aggregate for hot products: salted partials are pre-aggregated on the task that owns
+        // the salt bucket, then one partial per bucket and flush goes to the product's task to be merged
+        KStream<String, ProductPriceSketch> hotPartials = branches.get("orders-salted")
+                .process(() -> new PartialAggregateProcessor(HOT_PRODUCT_PARTIAL_STORE, eventTimeWindowMs,
+                        hotKeyFlushIntervalMs), HOT_PRODUCT_PARTIAL_STORE)
+                .repartition(Repartitioned.<String, ProductPriceSketch>as(PRODUCT_PARTIALS_REPARTITION)
+                        .withKeySerde(Serdes.String())
+                        .withValueSerde(new ProductPriceSketchSerde())
+                        .withNumberOfPartitions(aggregatePartitions));
 
-        KTable<String, String> averageTable = groupedByProduct
+        KGroupedStream<String, ProductPriceSketch> partialsByProduct = hotPartials
+                .groupByKey(Grouped.with(Serdes.String(), new ProductPriceSketchSerde()));
+
+        // Plain orders are added to the aggregate as they are; only hot-product partials are merged
+        Aggregator<String, Order, ProductPriceSketch> addOrder = (product, order, sketch) -> {
+            sketch.add(OrderAmounts.unitPriceMinor(order), order.getQuantity(), order.getOrderId());
+            return sketch;
+        };
+        Aggregator<String, ProductPriceSketch, ProductPriceSketch> mergePartial =
+                (product, partial, sketch) -> sketch.merge(partial);
+
+        KTable<String, ProductPriceSketch> sketchTable = plainByProduct.cogroup(addOrder)
+                .cogroup(partialsByProduct, mergePartial)
+                .aggregate(
+                        ProductPriceSketch::new,
+                        Materialized.<String, ProductPriceSketch>as(aggregateStoreSupplier())
+                                .withKeySerde(Serdes.String())
+                                .withValueSerde(new ProductPriceSketchSerde()));
+
+        // Per-product windows in event time; orders later than the grace period are dropped by Streams
+        // and show up in the dropped-records metric
+        plainByProduct.cogroup(addOrder)
+                .cogroup(partialsByProduct, mergePartial)
+                .windowedBy(TimeWindows.ofSizeAndGrace(Duration.ofMillis(eventTimeWindowMs), Duration.ofMillis(eventTimeGraceMs)))
                 .aggregate(
-                        () -> "0,0", 
-                        (product, order, aggregate) -> {
-                            String[] parts = aggregate.split(",");
-                            double sum = Double.parseDouble(parts[0]);
-                            int count = Integer.parseInt(parts[1]);
-
-                            sum += order.getPrice();
-                            count++;
-
-                            return sum + "," + count;
-                        },
-                        Materialized.with(Serdes.String(), Serdes.String()))
-                .mapValues(aggregate -> {
-                    String[] parts = aggregate.split(",");
-                    double sum = Double.parseDouble(parts[0]);
-                    int count = Integer.parseInt(parts[1]);
-                    double average = sum / count;
-                    return String.format("%.2f", average);
-                });
-
-        averageTable.toStream()
-                .peek((product, average) -> log.info("Aggregated Avg - {} = {}", product, average))
-                .to(aggregatedTopic, Produced.with(Serdes.String(), Serdes.String()));
-
-        return averageTable.toStream();
+                        ProductPriceSketch::new,
+                        Materialized.<String, ProductPriceSketch, WindowStore<Bytes, byte[]>>as(PRODUCT_WINDOWED_STORE)
+                                .withKeySerde(Serdes.String())
+                                .withValueSerde(new ProductPriceSketchSerde())
+                                .withRetention(Duration.ofMillis(Math.max(eventTimeRetentionMs, eventTimeWindowMs + eventTimeGraceMs))));
+
+        // Joined after aggregation so the catalog lookup runs once per aggregate update, keyed by product
+        KStream<String, ProductPriceStats> statsStream = sketchTable.toStream()
+                .leftJoin(catalogTable,
+                        (product, sketch) -> product,
+                        (product, sketch, entry) -> ProductPriceStats.from(product, sketch,
+                                fxRates.getBaseCurrency(), fxRates.getBaseFractionDigits()).withCatalog(entry));
+
+        statsStream
+                .peek((product, stats) -> log.info("Aggregated - {}: avg={}, p50={}, p95={}, p99={}, deviation={}%",
+                        product, stats.average(), stats.p50(), stats.p95(), stats.p99(), stats.deviationPercent()))
+                .to(aggregatedTopic, Produced.with(Serdes.String(), new JsonSerde<>(ProductPriceStats.class).noTypeInfo()));
+
+        return statsStream;
+    }
+
+    private StoreBuilder<WindowStore<String, Long>> dedupStoreBuilder() {
+        // Retain twice the TTL so late copies of an order still find the first one
+        return Stores.windowStoreBuilder(
+                Stores.persistentWindowStore(ORDER_DEDUP_STORE,
+                        Duration.ofMillis(dedupTtlMs * 2), Duration.ofMillis(dedupTtlMs), false),
+                Serdes.String(), Serdes.Long());
+    }
+
+    private StoreBuilder<TimestampedKeyValueStore<String, ProductPriceSketch>> partialStoreBuilder() {
+        // Holds at most one flush interval of partials, so memory is enough; the changelog makes it durable
+        return Stores.timestampedKeyValueStoreBuilder(
+                Stores.inMemoryKeyValueStore(HOT_PRODUCT_PARTIAL_STORE),
+                Serdes.String(), new ProductPriceSketchSerde());
+    }
+
+    private KeyValueBytesStoreSupplier aggregateStoreSupplier() {
+        return switch (storeType) {
+            case "in-memory" -> Stores.inMemoryKeyValueStore(PRODUCT_AGGREGATE_STORE);
+            case "lru" -> Stores.lruMap(PRODUCT_AGGREGATE_STORE, lruMaxEntries);
+            case "persistent" -> Stores.persistentTimestampedKeyValueStore(PRODUCT_AGGREGATE_STORE);
+            default -> throw new IllegalArgumentException("Unknown kafka.streams.store.type: " + storeType);
+        };
+    }
+
+    private JsonSerde<ProductCatalogEntry> catalogSerde() {
+        return new JsonSerde<>(ProductCatalogEntry.class).noTypeInfo().ignoreTypeHeaders();
     }
 
     private org.apache.kafka.common.serialization.Serde<Order> getOrderSerde() {
         Map<String, Object> serdeProps = new HashMap<>();
         serdeProps.put("schema.registry.url", schemaRegistryUrl);
-        serdeProps.put("specific.avro.reader", true);
 
-        io.confluent.kafka.streams.serdes.avro.SpecificAvroSerde<Order> orderSerde = new io.confluent.kafka.streams.serdes.avro.SpecificAvroSerde<>();
+        OrderAvroSerde orderSerde = new OrderAvroSerde();
         orderSerde.configure(serdeProps, false);
 
         return orderSerde;
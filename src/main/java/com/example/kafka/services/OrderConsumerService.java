@@ -1,70 +1,220 @@
 package com.example.kafka.services;
 
 import com.example.kafka.avro.Order;
+import com.example.kafka.chaos.FaultInjector;
+import com.example.kafka.lifecycle.StartupMetrics;
+import com.example.kafka.listener.ListenerLoadMonitor;
+import com.example.kafka.listener.RetryCircuitBreaker;
+import com.example.kafka.pipeline.OrderPipeline;
+import com.example.kafka.pipeline.OrderRejection;
+import com.example.kafka.snapshot.AggregationSnapshotService;
+import com.example.kafka.tenant.TenantRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
-import java.util.Random;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
-public class OrderConsumerService {
+public class OrderConsumerService implements ConsumerSeekAware {
+
+    private static final Duration HAND_OFF_REDELIVERY_DELAY = Duration.ofSeconds(1);
 
     private final PriceAggregationService priceAggregationService;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OrderDeduplicator orderDeduplicator;
+    private final ListenerLoadMonitor loadMonitor;
+    private final RetryCircuitBreaker circuitBreaker;
+    private final RetryDispatcher retryDispatcher;
+    private final OrderPipeline orderPipeline;
+    private final StartupMetrics startupMetrics;
+    private final FaultInjector faultInjector;
+    private final ParkingLotService parkingLotService;
+    private final ObjectProvider<AggregationSnapshotService> aggregationSnapshots;
     private final String retryTopic;
-    private final Random random = new Random();
+    private final String dlqTopic;
 
     public OrderConsumerService(PriceAggregationService priceAggregationService,
-            KafkaTemplate<String, Object> kafkaTemplate,
-            @Value("${kafka.topic.retry}") String retryTopic) {
+            OrderDeduplicator orderDeduplicator,
+            ListenerLoadMonitor loadMonitor,
+            RetryCircuitBreaker circuitBreaker,
+            RetryDispatcher retryDispatcher,
+            OrderPipeline orderPipeline,
+            StartupMetrics startupMetrics,
+            FaultInjector faultInjector,
+            ParkingLotService parkingLotService,
+            ObjectProvider<AggregationSnapshotService> aggregationSnapshots,
+            @Value("${kafka.topic.retry}") String retryTopic,
+            @Value("${kafka.topic.dlq}") String dlqTopic) {
         this.priceAggregationService = priceAggregationService;
-        this.kafkaTemplate = kafkaTemplate;
+        this.orderDeduplicator = orderDeduplicator;
+        this.loadMonitor = loadMonitor;
+        this.circuitBreaker = circuitBreaker;
+        this.retryDispatcher = retryDispatcher;
+        this.orderPipeline = orderPipeline;
+        this.startupMetrics = startupMetrics;
+        this.faultInjector = faultInjector;
+        this.parkingLotService = parkingLotService;
+        this.aggregationSnapshots = aggregationSnapshots;
         this.retryTopic = retryTopic;
+        this.dlqTopic = dlqTopic;
     }
 
-    @KafkaListener(topics = "${kafka.topic.orders}", groupId = "${spring.kafka.consumer.group-id}")
+    @KafkaListener(id = "order-consumer", topics = "${kafka.topic.orders}", groupId = "${spring.kafka.consumer.group-id}")
     public void consumeOrder(@Payload Order order,
             @Header(KafkaHeaders.RECEIVED_KEY) String key,
+            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+            @Header(KafkaHeaders.OFFSET) long offset,
             Acknowledgment acknowledgment) {
+        startupMetrics.recordConsumed();
         try {
             log.info("Consumed order: OrderId={}, Product={}, Price=${}",
                     order.getOrderId(), order.getProduct(), order.getPrice());
 
-            if (order.getPrice() < 0) {
-                throw new IllegalArgumentException(
-                        "Invalid price: " + order.getPrice() + " - Price cannot be negative");
+            CompletableFuture<?> rejected = rejectToDlq(order, null);
+            if (rejected != null) {
+                acknowledgeIfDispatched(rejected, order, priceAggregationService, partition, offset, acknowledgment);
+                return;
             }
 
-            if (random.nextInt(10) == 0) {
-                throw new RuntimeException("Simulated temporary processing failure");
-            }
+            faultInjector.inject(FaultInjector.ORDER_CONSUMER, order);
 
-            processOrder(order);
+            long start = System.nanoTime();
+            processOrder(order, null, priceAggregationService, partition, offset);
+            loadMonitor.recordProcessing("order-consumer", System.nanoTime() - start);
+            circuitBreaker.recordSuccess();
             acknowledgment.acknowledge();
 
+        } catch (AggregationFailedException e) {
+            acknowledgeIfDispatched(sendToDlq(order, e, null), order, priceAggregationService, partition, offset,
+                    acknowledgment);
         } catch (Exception e) {
-            log.error("Error processing order: OrderId={}, Error={} - Sending to retry topic",
-                    order.getOrderId(), e.getMessage());
-            sendToRetry(order);
+            circuitBreaker.recordFailure();
+            CompletableFuture<?> sent;
+            if (circuitBreaker.isParking()) {
+                log.error("Error processing order: OrderId={}, Error={} - Circuit open, parking order",
+                        order.getOrderId(), e.getMessage());
+                sent = parkingLotService.park(order);
+            } else {
+                log.error("Error processing order: OrderId={}, Error={} - Sending to retry topic",
+                        order.getOrderId(), e.getMessage());
+                sent = sendToRetry(order, retryTopic, null);
+            }
+            acknowledgeIfDispatched(sent, order, priceAggregationService, partition, offset, acknowledgment);
+        }
+    }
+
+    /**
+     * Handles an order from a tenant's own topic, invoked by the tenant's listener container.
+     * Tenant failures go to the tenant's own retry topic, and do not count towards the default listener's
+     * circuit breaker, so one tenant's failures cannot pause or delay the others.
+     */
+    public void consumeTenantOrder(String tenantId, String tenantRetryTopic, Order order, int partition,
+            long offset, PriceAggregationService aggregation, Acknowledgment acknowledgment) {
+        try {
+            CompletableFuture<?> rejected = rejectToDlq(order, tenantId);
+            if (rejected != null) {
+                acknowledgeIfDispatched(rejected, order, aggregation, partition, offset, acknowledgment);
+                return;
+            }
+
+            faultInjector.inject(FaultInjector.TENANT_CONSUMER, order);
+
+            long start = System.nanoTime();
+            processOrder(order, tenantId, aggregation, partition, offset);
+            loadMonitor.recordProcessing("order-consumer-" + tenantId, System.nanoTime() - start);
             acknowledgment.acknowledge();
+
+        } catch (AggregationFailedException e) {
+            acknowledgeIfDispatched(sendToDlq(order, e, tenantId), order, aggregation, partition, offset,
+                    acknowledgment);
+        } catch (Exception e) {
+            log.error("Error processing order: Tenant={}, OrderId={}, Error={} - Sending to retry topic",
+                    tenantId, order.getOrderId(), e.getMessage());
+            acknowledgeIfDispatched(sendToRetry(order, tenantRetryTopic, tenantId), order, aggregation, partition,
+                    offset, acknowledgment);
         }
     }
 
-    private void processOrder(Order order) {
-        priceAggregationService.addOrderPrice(order.getPrice());
+    /**
+     * Skips offsets the aggregate already covers but the group never committed, e.g. after a restore from a
+     * snapshot taken between an acknowledgment and its commit, so those orders are not added twice.
+     * Rewinds, once, partitions whose snapshot replay did not finish, so the orders it missed are consumed again.
+     */
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        AggregationSnapshotService snapshots = aggregationSnapshots.getIfAvailable();
+        assignments.forEach((partition, position) -> {
+            Long next = priceAggregationService.nextOffset(partition.partition());
+            if (next == null) {
+                return;
+            }
+            if (next > position) {
+                log.info("Skipping {} to offset {}, already aggregated", partition, next);
+                callback.seek(partition.topic(), partition.partition(), next);
+            } else if (next < position && snapshots != null && snapshots.takeRewind(partition.partition())) {
+                log.warn("Rewinding {} from {} to offset {}, snapshot replay did not reach it", partition, position, next);
+                callback.seek(partition.topic(), partition.partition(), next);
+            }
+        });
+    }
+
+    // Returns the DLQ send if the pipeline rejected the order, otherwise null
+    private CompletableFuture<?> rejectToDlq(Order order, String tenantId) {
+        OrderRejection rejection = orderPipeline.evaluate(order);
+        if (rejection == null) {
+            return null;
+        }
+        log.warn("Order rejected: OrderId={}, Reason={} - Sending to DLQ",
+                order.getOrderId(), rejection.reason());
+        return retryDispatcher.dispatch(dlqTopic, order, rejection.reason(), tenantId);
+    }
+
+    // A hand-off refused by the dispatcher (shutting down) is nacked, so the record is redelivered rather than lost
+    private void acknowledgeIfDispatched(CompletableFuture<?> send, Order order, PriceAggregationService aggregation,
+            int partition, long offset, Acknowledgment acknowledgment) {
+        if (RetryDispatcher.failedImmediately(send)) {
+            log.error("Hand-off failed, order will be redelivered: OrderId={}", order.getOrderId());
+            acknowledgment.nack(HAND_OFF_REDELIVERY_DELAY);
+            return;
+        }
+        aggregation.markConsumed(partition, offset);
+        acknowledgment.acknowledge();
+    }
+
+    private void processOrder(Order order, String tenantId, PriceAggregationService aggregation,
+            int partition, long offset) {
+        if (!orderDeduplicator.markIfFirst(TenantRegistry.dedupKey(tenantId, order.getOrderId()))) {
+            log.warn("Duplicate order skipped: OrderId={}", order.getOrderId());
+            aggregation.markConsumed(partition, offset);
+            return;
+        }
+        try {
+            aggregation.addOrder(order, partition, offset);
+        } catch (RuntimeException e) {
+            throw new AggregationFailedException(order.getOrderId().toString(), e);
+        }
         log.info("Order processed successfully: OrderId={}", order.getOrderId());
     }
 
-    private void sendToRetry(Order order) {
-        log.warn("Sending order to retry topic: OrderId={}", order.getOrderId());
-        kafkaTemplate.send(retryTopic, order.getOrderId().toString(), order);
+    // Not retryable: the order is already marked as seen, so the retry listener would skip it as a duplicate
+    private CompletableFuture<?> sendToDlq(Order order, AggregationFailedException e, String tenantId) {
+        log.error("{} - Sending to DLQ", e.getMessage());
+        return retryDispatcher.dispatch(dlqTopic, order, e.getMessage(), tenantId);
+    }
+
+    private CompletableFuture<?> sendToRetry(Order order, String topic, String tenantId) {
+        log.warn("Sending order to retry topic: OrderId={}, Topic={}", order.getOrderId(), topic);
+        return retryDispatcher.dispatch(topic, order, null, tenantId);
     }
 }
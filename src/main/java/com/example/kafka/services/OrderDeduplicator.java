@@ -0,0 +1,118 @@
+package com.example.kafka.services;
+
+import com.example.kafka.aggregation.KeyHashing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Drops orders whose orderId was already aggregated within the configured TTL.
+ * Two Bloom filters of fixed size are rotated every TTL: lookups check both, inserts go to the current one,
+ * so memory stays constant and every id is remembered for at least one full TTL.
+ * A false positive (rate set by kafka.dedup.false-positive-rate) drops a genuinely new order.
+ * Check and insert run under a lock striped by hash, so concurrent deliveries of one orderId admit exactly one.
+ * Both filters are swapped together on rotation, and each check reads them from one window taken under the
+ * stripe lock, so a rotation in between can never split the check across two windows.
+ */
+@Slf4j
+@Service
+public class OrderDeduplicator {
+
+    private static final int STRIPES = 64;
+
+    private final long ttlMs;
+    private final int numBits;
+    private final int numHashes;
+    private final Object[] stripes = new Object[STRIPES];
+
+    private volatile Window window;
+
+    public OrderDeduplicator(@Value("${kafka.dedup.ttl-ms}") long ttlMs,
+            @Value("${kafka.dedup.expected-orders-per-window}") int expectedOrders,
+            @Value("${kafka.dedup.false-positive-rate}") double falsePositiveRate) {
+        this.ttlMs = ttlMs;
+        this.numBits = (int) Math.ceil(-expectedOrders * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedOrders * Math.log(2)));
+        this.window = new Window(new BloomFilter(numBits), new BloomFilter(numBits), System.currentTimeMillis());
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+
+        log.info("Order deduplicator: TTL={}ms, Bits per filter={}, Hashes={}", ttlMs, numBits, numHashes);
+    }
+
+    /**
+     * Records the orderId and returns true if it was not seen within the TTL.
+     */
+    public boolean markIfFirst(CharSequence orderId) {
+        rotateIfExpired();
+        long hash = KeyHashing.hash64(orderId);
+        synchronized (stripes[(int) (hash >>> 58)]) {
+            Window filters = window;
+            boolean seenBefore = filters.previous().mightContain(hash, numHashes);
+            boolean added = filters.current().put(hash, numHashes);
+            return added && !seenBefore;
+        }
+    }
+
+    private void rotateIfExpired() {
+        long now = System.currentTimeMillis();
+        if (now - window.startMs() < ttlMs) {
+            return;
+        }
+        synchronized (this) {
+            Window expired = window;
+            if (now - expired.startMs() >= ttlMs) {
+                window = new Window(new BloomFilter(numBits), expired.current(), now);
+            }
+        }
+    }
+
+    private record Window(BloomFilter current, BloomFilter previous, long startMs) {
+    }
+
+    private static final class BloomFilter {
+
+        private final AtomicLongArray words;
+        private final int numBits;
+
+        BloomFilter(int numBits) {
+            this.numBits = numBits;
+            this.words = new AtomicLongArray((numBits + 63) >>> 6);
+        }
+
+        boolean mightContain(long hash, int numHashes) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Returns true if at least one bit was newly set, i.e. the hash was definitely not present
+        boolean put(long hash, int numHashes) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            boolean changed = false;
+            for (int i = 1; i <= numHashes; i++) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % numBits;
+                long mask = 1L << bit;
+                long word;
+                do {
+                    word = words.get(bit >>> 6);
+                    if ((word & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(bit >>> 6, word, word | mask));
+                changed |= (word & mask) == 0;
+            }
+            return changed;
+        }
+    }
+}
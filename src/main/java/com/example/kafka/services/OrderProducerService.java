@@ -1,12 +1,14 @@
 package com.example.kafka.services;
 
 import com.example.kafka.avro.Order;
+import com.example.kafka.catalog.ProductCatalogService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -17,20 +19,26 @@ public class OrderProducerService {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
     private final String ordersTopic;
+    private final ProductCatalogService productCatalogService;
     private final Random random = new Random();
-    private final String[] products = { "Laptop", "Mouse", "Keyboard", "Monitor", "Headphones", "Webcam", "Tablet",
-            "Smartphone", "Charger", "USB Cable" };
 
     public OrderProducerService(KafkaTemplate<String, Object> kafkaTemplate,
+            ProductCatalogService productCatalogService,
             @Value("${kafka.topic.orders}") String ordersTopic) {
         this.kafkaTemplate = kafkaTemplate;
+        this.productCatalogService = productCatalogService;
         this.ordersTopic = ordersTopic;
     }
 
     public void sendOrder() {
+        sendOrder(ordersTopic);
+    }
+
+    // topic is the orders topic of the tenant the order belongs to
+    public void sendOrder(String topic) {
         Order order = createRandomOrder();
 
-        CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(ordersTopic,
+        CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(topic,
                 order.getOrderId().toString(), order);
 
         future.whenComplete((result, ex) -> {
@@ -45,33 +53,43 @@ public class OrderProducerService {
     }
 
     public void sendMultipleOrders(int count) {
+        sendMultipleOrders(ordersTopic, count);
+    }
+
+    public void sendMultipleOrders(String topic, int count) {
         for (int i = 0; i < count; i++) {
-            sendOrder();
+            sendOrder(topic);
         }
-        log.info("Sent {} orders to Kafka topic: {}", count, ordersTopic);
+        log.info("Sent {} orders to Kafka topic: {}", count, topic);
     }
 
-    public void sendSpecificOrder(String orderId, String product, float price) {
-        Order order = Order.newBuilder()
-                .setOrderId(orderId)
-                .setProduct(product)
-                .setPrice(price)
-                .build();
+    public void sendSpecificOrder(Order order) {
+        sendSpecificOrder(ordersTopic, order);
+    }
 
-        kafkaTemplate.send(ordersTopic, order.getOrderId().toString(), order);
-        log.info("Sent specific order: OrderId={}, Product={}, Price=${}",
-                order.getOrderId(), order.getProduct(), order.getPrice());
+    public void sendSpecificOrder(String topic, Order order) {
+        kafkaTemplate.send(topic, order.getOrderId().toString(), order);
+        log.info("Sent specific order: OrderId={}, Product={}, Price={} {}",
+                order.getOrderId(), order.getProduct(), order.getPrice(), order.getCurrency());
     }
 
     private Order createRandomOrder() {
         String orderId = UUID.randomUUID().toString();
-        String product = products[random.nextInt(products.length)];
-        float price = 10.0f + (random.nextFloat() * 990.0f); 
+        List<String> products = productCatalogService.getProducts();
+        if (products.isEmpty()) {
+            throw new IllegalStateException("No products configured in kafka.catalog.seed");
+        }
+        String product = products.get(random.nextInt(products.size()));
+        long priceMinor = 1_000 + random.nextInt(99_000);
 
         return Order.newBuilder()
                 .setOrderId(orderId)
                 .setProduct(product)
-                .setPrice(price)
+                .setPrice(priceMinor / 100.0f)
+                .setPriceMinor(priceMinor)
+                .setQuantity(1 + random.nextInt(5))
+                .setCurrency("USD")
+                .setOrderTimestamp(System.currentTimeMillis())
                 .build();
     }
 }
@@ -0,0 +1,151 @@
+package com.example.kafka.services;
+
+import com.example.kafka.avro.Order;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The parking topic holds orders that failed while the circuit breaker was open in park mode.
+ * Nothing consumes it automatically; a redrive moves parked orders to the retry topic once the downstream
+ * problem is fixed. Redrive progress is committed under its own consumer group, only after the retry sends
+ * succeeded, so an interrupted redrive resumes where it stopped and never loses an order.
+ */
+@Slf4j
+@Service
+public class ParkingLotService {
+
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final RetryDispatcher retryDispatcher;
+    private final String parkingTopic;
+    private final String retryTopic;
+    private final String groupId;
+    private final long sendTimeoutMs;
+    private final Counter parkedOrders;
+    private final Counter redrivenOrders;
+
+    public ParkingLotService(ConsumerFactory<String, Object> consumerFactory,
+            RetryDispatcher retryDispatcher,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.topic.parking}") String parkingTopic,
+            @Value("${kafka.topic.retry}") String retryTopic,
+            @Value("${kafka.parking.redrive-group-id}") String groupId,
+            @Value("${kafka.parking.redrive-send-timeout-ms}") long sendTimeoutMs) {
+        this.consumerFactory = consumerFactory;
+        this.retryDispatcher = retryDispatcher;
+        this.parkingTopic = parkingTopic;
+        this.retryTopic = retryTopic;
+        this.groupId = groupId;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.parkedOrders = meterRegistry.counter("orders.parking.parked");
+        this.redrivenOrders = meterRegistry.counter("orders.parking.redriven");
+    }
+
+    public CompletableFuture<SendResult<String, Object>> park(Order order) {
+        log.warn("Sending order to parking topic: OrderId={}", order.getOrderId());
+        parkedOrders.increment();
+        return retryDispatcher.dispatch(parkingTopic, order);
+    }
+
+    // Parked orders not yet redriven
+    public long backlog() {
+        try (Consumer<String, Object> consumer = consumerFactory.createConsumer(groupId, "-parking")) {
+            Set<TopicPartition> partitions = partitions(consumer);
+            Map<TopicPartition, Long> start = startOffsets(consumer, partitions);
+            Map<TopicPartition, Long> ends = consumer.endOffsets(partitions);
+            return ends.entrySet().stream()
+                    .mapToLong(end -> Math.max(0, end.getValue() - start.get(end.getKey())))
+                    .sum();
+        }
+    }
+
+    /**
+     * Moves up to maxOrders parked orders to the retry topic, oldest first per partition.
+     * @return the orders moved and the ones still parked
+     */
+    public synchronized RedriveResult redrive(int maxOrders) throws Exception {
+        try (Consumer<String, Object> consumer = consumerFactory.createConsumer(groupId, "-parking")) {
+            Set<TopicPartition> partitions = partitions(consumer);
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> start = startOffsets(consumer, partitions);
+            start.forEach(consumer::seek);
+            Map<TopicPartition, Long> ends = consumer.endOffsets(partitions);
+
+            List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>();
+            Map<TopicPartition, OffsetAndMetadata> progress = new HashMap<>();
+            while (sends.size() < maxOrders && !caughtUp(consumer, ends)) {
+                for (ConsumerRecord<String, Object> record : consumer.poll(Duration.ofMillis(500))) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    if (sends.size() >= maxOrders || record.offset() >= ends.get(partition)) {
+                        continue;
+                    }
+                    if (record.value() instanceof Order order) {
+                        sends.add(retryDispatcher.dispatch(retryTopic, order));
+                    }
+                    progress.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                }
+            }
+
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+            if (!progress.isEmpty()) {
+                consumer.commitSync(progress);
+            }
+            redrivenOrders.increment(sends.size());
+
+            long remaining = ends.entrySet().stream()
+                    .mapToLong(end -> {
+                        OffsetAndMetadata done = progress.get(end.getKey());
+                        long from = done != null ? done.offset() : start.get(end.getKey());
+                        return Math.max(0, end.getValue() - from);
+                    })
+                    .sum();
+            log.info("Redrove {} parked orders to {}, {} still parked", sends.size(), retryTopic, remaining);
+            return new RedriveResult(sends.size(), remaining);
+        }
+    }
+
+    private Set<TopicPartition> partitions(Consumer<String, Object> consumer) {
+        return consumer.partitionsFor(parkingTopic).stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .collect(Collectors.toSet());
+    }
+
+    // The group's committed offset, or the start of the log for a partition never redriven
+    private static Map<TopicPartition, Long> startOffsets(Consumer<String, Object> consumer,
+            Set<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(partitions);
+        Map<TopicPartition, Long> beginnings = consumer.beginningOffsets(partitions);
+        Map<TopicPartition, Long> start = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata commit = committed.get(partition);
+            start.put(partition, commit != null ? Math.max(commit.offset(), beginnings.get(partition))
+                    : beginnings.get(partition));
+        }
+        return start;
+    }
+
+    private static boolean caughtUp(Consumer<String, Object> consumer, Map<TopicPartition, Long> ends) {
+        return ends.entrySet().stream().allMatch(end -> consumer.position(end.getKey()) >= end.getValue());
+    }
+
+    public record RedriveResult(long redriven, long remaining) {
+    }
+}
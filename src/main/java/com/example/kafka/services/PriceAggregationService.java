@@ -1,45 +1,253 @@
 package com.example.kafka.services;
 
-import lombok.Getter;
+import com.example.kafka.aggregation.AggregateTotals;
+import com.example.kafka.avro.Order;
+import com.example.kafka.currency.FxRates;
+import com.example.kafka.currency.OrderAmounts;
+import com.example.kafka.snapshot.AggregationSnapshot;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Running totals of the orders processed by the listeners, kept as exact longs in minor units of the
+ * base currency. Additions are overflow-checked and fail instead of wrapping.
+ * Expects orders that have passed the pipeline, so they are already in the base currency.
+ * Orders from the orders and retry topics are added together with their offset, so a snapshot of the totals
+ * also records exactly which offsets of each it covers. Updates share a read lock that a snapshot takes exclusively.
+ * A reset keeps the totals it cleared, so it can be undone with {@link #undoReset()}.
+ */
 @Slf4j
 @Service
 public class PriceAggregationService {
 
-    private final AtomicInteger orderCount = new AtomicInteger(0);
-    private final AtomicReference<Double> totalPrice = new AtomicReference<>(0.0);
+    private final AtomicLong orderCount = new AtomicLong();
+    private final AtomicLong totalQuantity = new AtomicLong();
+    private final AtomicLong totalPriceMinor = new AtomicLong();
+    private final Map<Integer, Long> nextOffsets = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> retryNextOffsets = new ConcurrentHashMap<>();
+    private final AtomicReference<AggregateTotals> clearedByReset = new AtomicReference<>(AggregateTotals.ZERO);
+    // Bumped by every reset and undo, so readers comparing totals over time can tell the totals jumped
+    private final AtomicLong resetEpoch = new AtomicLong();
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final int fractionDigits;
 
-    @Getter
-    private final AtomicReference<Double> runningAverage = new AtomicReference<>(0.0);
+    public PriceAggregationService(FxRates fxRates) {
+        this.fractionDigits = fxRates.getBaseFractionDigits();
+    }
+
+    public void addOrder(Order order) {
+        Lock lock = snapshotLock.readLock();
+        lock.lock();
+        try {
+            add(order);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Adds an order consumed from the orders topic at the given partition and offset
+    public void addOrder(Order order, int partition, long offset) {
+        Lock lock = snapshotLock.readLock();
+        lock.lock();
+        try {
+            add(order);
+            nextOffsets.merge(partition, offset + 1, Math::max);
+        } finally {
+            lock.unlock();
+        }
+    }
 
+    // Records an order consumed from the orders topic that is not aggregated (rejected, duplicate or retried)
+    public void markConsumed(int partition, long offset) {
+        Lock lock = snapshotLock.readLock();
+        lock.lock();
+        try {
+            nextOffsets.merge(partition, offset + 1, Math::max);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-    public void addOrderPrice(float price) {
-        int count = orderCount.incrementAndGet();
-        double total = totalPrice.updateAndGet(current -> current + price);
-        double average = total / count;
-        runningAverage.set(average);
+    // Adds an order consumed from the retry topic at the given partition and offset
+    public void addRetriedOrder(Order order, int partition, long offset) {
+        Lock lock = snapshotLock.readLock();
+        lock.lock();
+        try {
+            add(order);
+            retryNextOffsets.merge(partition, offset + 1, Math::max);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        log.info("Price Aggregation: Count={}, Total=${:.2f}, Running Average=${:.2f}",
-                count, total, average);
+    // Records a retry-topic record that is not aggregated (rejected, duplicate, sent on to retry or DLQ)
+    public void markRetryConsumed(int partition, long offset) {
+        Lock lock = snapshotLock.readLock();
+        lock.lock();
+        try {
+            retryNextOffsets.merge(partition, offset + 1, Math::max);
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public int getOrderCount() {
+    // Offset of the next order on the partition not yet reflected in the totals, or null if none was seen
+    public Long nextOffset(int partition) {
+        return nextOffsets.get(partition);
+    }
+
+    // Same as nextOffset, for a partition of the retry topic
+    public Long nextRetryOffset(int partition) {
+        return retryNextOffsets.get(partition);
+    }
+
+    public AggregationSnapshot snapshot() {
+        Lock lock = snapshotLock.writeLock();
+        lock.lock();
+        try {
+            return new AggregationSnapshot(System.currentTimeMillis(), getTotals(), Map.copyOf(nextOffsets),
+                    Map.copyOf(retryNextOffsets));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Replaces the totals and covered offsets with those of a snapshot; only before the listeners start
+    public void restore(AggregationSnapshot snapshot) {
+        Lock lock = snapshotLock.writeLock();
+        lock.lock();
+        try {
+            orderCount.set(snapshot.totals().count());
+            totalQuantity.set(snapshot.totals().quantity());
+            totalPriceMinor.set(snapshot.totals().totalMinor());
+            nextOffsets.clear();
+            nextOffsets.putAll(snapshot.nextOffsets());
+            retryNextOffsets.clear();
+            retryNextOffsets.putAll(snapshot.retryNextOffsets());
+        } finally {
+            lock.unlock();
+        }
+        log.info("Aggregation restored: Count={}, Total={}, Partitions={}",
+                snapshot.totals().count(), toMajor(snapshot.totals().totalMinor()), snapshot.nextOffsets().size());
+    }
+
+    private void add(Order order) {
+        long amount = OrderAmounts.totalMinor(order);
+        long total = totalPriceMinor.accumulateAndGet(amount, Math::addExact);
+        long quantity;
+        try {
+            quantity = totalQuantity.accumulateAndGet(order.getQuantity(), Math::addExact);
+        } catch (ArithmeticException e) {
+            // Takes the price back out, so the totals and the running average still describe the same orders
+            totalPriceMinor.addAndGet(-amount);
+            throw e;
+        }
+        long count = orderCount.incrementAndGet();
+
+        log.info("Price Aggregation: Count={}, Quantity={}, Total={}, Running Average={}",
+                count, quantity, toMajor(total), average(total, quantity));
+    }
+
+    public long getOrderCount() {
         return orderCount.get();
     }
 
-    public double getTotalPrice() {
-        return totalPrice.get();
+    public long getTotalQuantity() {
+        return totalQuantity.get();
+    }
+
+    public long getTotalPriceMinor() {
+        return totalPriceMinor.get();
+    }
+
+    // The three counters are read one after another, so the snapshot can be off by an in-flight order
+    public AggregateTotals getTotals() {
+        return new AggregateTotals(orderCount.get(), totalQuantity.get(), totalPriceMinor.get());
+    }
+
+    public BigDecimal getTotalPrice() {
+        return toMajor(totalPriceMinor.get());
     }
 
+    // Average unit price, weighted by quantity
+    public BigDecimal getRunningAverage() {
+        return average(totalPriceMinor.get(), totalQuantity.get());
+    }
+
+    /**
+     * Clears the totals; the consumed offsets are kept, so a later snapshot still knows where the totals start.
+     * The cleared totals are added to those kept from earlier resets until {@link #undoReset()}.
+     */
     public void reset() {
-        orderCount.set(0);
-        totalPrice.set(0.0);
-        runningAverage.set(0.0);
+        Lock lock = snapshotLock.writeLock();
+        lock.lock();
+        try {
+            AggregateTotals cleared = getTotals();
+            orderCount.set(0);
+            totalQuantity.set(0);
+            totalPriceMinor.set(0);
+            clearedByReset.set(clearedByReset.get().plus(cleared));
+            resetEpoch.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
         log.info("Aggregation metrics reset");
     }
+
+    /**
+     * Adds back the totals cleared by resets since the last undo, on top of whatever was aggregated since.
+     * @return the totals added back, ZERO if there was no reset to undo
+     */
+    public AggregateTotals undoReset() {
+        Lock lock = snapshotLock.writeLock();
+        lock.lock();
+        try {
+            AggregateTotals cleared = clearedByReset.getAndSet(AggregateTotals.ZERO);
+            if (cleared.equals(AggregateTotals.ZERO)) {
+                return cleared;
+            }
+            orderCount.addAndGet(cleared.count());
+            totalQuantity.addAndGet(cleared.quantity());
+            totalPriceMinor.addAndGet(cleared.totalMinor());
+            resetEpoch.incrementAndGet();
+            log.info("Aggregation reset undone: Count={}, Total={}", cleared.count(), toMajor(cleared.totalMinor()));
+            return cleared;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Totals a reset cleared and an undo would add back
+    public AggregateTotals getClearedByReset() {
+        return clearedByReset.get();
+    }
+
+    // Restores what resets had cleared before a restart; only before the listeners start
+    public void restoreClearedByReset(AggregateTotals cleared) {
+        clearedByReset.set(cleared);
+    }
+
+    public long getResetEpoch() {
+        return resetEpoch.get();
+    }
+
+    private BigDecimal toMajor(long minor) {
+        return BigDecimal.valueOf(minor, fractionDigits);
+    }
+
+    private BigDecimal average(long totalMinor, long quantity) {
+        if (quantity == 0) {
+            return toMajor(0);
+        }
+        return toMajor(totalMinor).divide(BigDecimal.valueOf(quantity), fractionDigits, RoundingMode.HALF_UP);
+    }
 }
@@ -0,0 +1,113 @@
+package com.example.kafka.services;
+
+import com.example.kafka.aggregation.AggregateTotals;
+import com.example.kafka.aggregation.ProductPriceSketch;
+import com.example.kafka.aggregation.ProductPriceStats;
+import com.example.kafka.aggregation.WindowedProductPriceStats;
+import com.example.kafka.catalog.ProductCatalogCache;
+import com.example.kafka.currency.FxRates;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serves per-product price statistics straight from the local Streams aggregate store.
+ * Only the products whose partitions are assigned to this instance are visible here.
+ */
+@Service
+public class ProductStatsQueryService {
+
+    private final StreamsBuilderFactoryBean streamsBuilderFactoryBean;
+    private final ProductCatalogCache productCatalogCache;
+    private final FxRates fxRates;
+    private final long windowMs;
+
+    public ProductStatsQueryService(StreamsBuilderFactoryBean streamsBuilderFactoryBean,
+            ProductCatalogCache productCatalogCache,
+            FxRates fxRates,
+            @Value("${kafka.streams.event-time.window-ms}") long windowMs) {
+        this.streamsBuilderFactoryBean = streamsBuilderFactoryBean;
+        this.productCatalogCache = productCatalogCache;
+        this.fxRates = fxRates;
+        this.windowMs = windowMs;
+    }
+
+    public Optional<ProductPriceStats> getProductStats(String product) {
+        ProductPriceSketch sketch = store().get(product);
+        return Optional.ofNullable(sketch).map(s -> enrich(product, s));
+    }
+
+    public List<ProductPriceStats> getAllProductStats(int limit) {
+        List<ProductPriceStats> stats = new ArrayList<>();
+        try (KeyValueIterator<String, ProductPriceSketch> iterator = store().all()) {
+            while (iterator.hasNext() && stats.size() < limit) {
+                KeyValue<String, ProductPriceSketch> entry = iterator.next();
+                stats.add(enrich(entry.key, entry.value));
+            }
+        }
+        return stats;
+    }
+
+    // Totals over every product in the local store
+    public AggregateTotals getLocalTotals() {
+        AggregateTotals totals = AggregateTotals.ZERO;
+        try (KeyValueIterator<String, ProductPriceSketch> iterator = store().all()) {
+            while (iterator.hasNext()) {
+                ProductPriceSketch sketch = iterator.next().value;
+                totals = totals.plus(new AggregateTotals(sketch.getCount(), sketch.getQuantity(), sketch.getSum()));
+            }
+        }
+        return totals;
+    }
+
+    // Event-time windows of one product whose start falls in [from, to]
+    public List<WindowedProductPriceStats> getWindowedStats(String product, Instant from, Instant to) {
+        List<WindowedProductPriceStats> windows = new ArrayList<>();
+        try (WindowStoreIterator<ProductPriceSketch> iterator = windowStore().fetch(product, from, to)) {
+            while (iterator.hasNext()) {
+                KeyValue<Long, ProductPriceSketch> window = iterator.next();
+                windows.add(new WindowedProductPriceStats(
+                        Instant.ofEpochMilli(window.key),
+                        Instant.ofEpochMilli(window.key + windowMs),
+                        enrich(product, window.value)));
+            }
+        }
+        return windows;
+    }
+
+    private ProductPriceStats enrich(String product, ProductPriceSketch sketch) {
+        return ProductPriceStats.from(product, sketch, fxRates.getBaseCurrency(), fxRates.getBaseFractionDigits())
+                .withCatalog(productCatalogCache.lookup(product).orElse(null));
+    }
+
+    private ReadOnlyKeyValueStore<String, ProductPriceSketch> store() {
+        return runningStreams().store(StoreQueryParameters.fromNameAndType(
+                OrderAggregationStreamsService.PRODUCT_AGGREGATE_STORE, QueryableStoreTypes.keyValueStore()));
+    }
+
+    private ReadOnlyWindowStore<String, ProductPriceSketch> windowStore() {
+        return runningStreams().store(StoreQueryParameters.fromNameAndType(
+                OrderAggregationStreamsService.PRODUCT_WINDOWED_STORE, QueryableStoreTypes.windowStore()));
+    }
+
+    private KafkaStreams runningStreams() {
+        KafkaStreams kafkaStreams = streamsBuilderFactoryBean.getKafkaStreams();
+        if (kafkaStreams == null || kafkaStreams.state() != KafkaStreams.State.RUNNING) {
+            throw new IllegalStateException("Kafka Streams is not running");
+        }
+        return kafkaStreams;
+    }
+}
@@ -1,96 +1,249 @@
 package com.example.kafka.services;
 
 import com.example.kafka.avro.Order;
+import com.example.kafka.chaos.FaultInjector;
+import com.example.kafka.lifecycle.GracefulShutdownCoordinator;
+import com.example.kafka.listener.ListenerLoadMonitor;
+import com.example.kafka.listener.PartitionStateOwner;
+import com.example.kafka.pipeline.OrderPipeline;
+import com.example.kafka.pipeline.OrderRejection;
+import com.example.kafka.snapshot.AggregationSnapshotService;
+import com.example.kafka.tenant.Tenant;
+import com.example.kafka.tenant.TenantRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Service
-public class RetryConsumerService {
+public class RetryConsumerService implements PartitionStateOwner, ConsumerSeekAware {
+
+    public static final String GROUP_ID = "retry-consumer-group";
+    private static final Duration HAND_OFF_REDELIVERY_DELAY = Duration.ofSeconds(1);
 
     private final PriceAggregationService priceAggregationService;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OrderDeduplicator orderDeduplicator;
+    private final ListenerLoadMonitor loadMonitor;
+    private final RetryDispatcher retryDispatcher;
+    private final OrderPipeline orderPipeline;
+    private final GracefulShutdownCoordinator shutdownCoordinator;
+    private final TenantRegistry tenantRegistry;
+    private final FaultInjector faultInjector;
+    private final ObjectProvider<AggregationSnapshotService> aggregationSnapshots;
     private final String retryTopic;
     private final String dlqTopic;
     private final int maxRetryAttempts;
     private final long backoffMs;
-    private final Map<String, Integer> retryAttempts = new ConcurrentHashMap<>();
+    // Attempts per order, grouped by retry-topic partition so a rebalance drops only what moved away
+    private final Map<TopicPartition, Map<String, Integer>> retryAttemptsByPartition = new ConcurrentHashMap<>();
 
     public RetryConsumerService(PriceAggregationService priceAggregationService,
-            KafkaTemplate<String, Object> kafkaTemplate,
+            OrderDeduplicator orderDeduplicator,
+            ListenerLoadMonitor loadMonitor,
+            RetryDispatcher retryDispatcher,
+            OrderPipeline orderPipeline,
+            GracefulShutdownCoordinator shutdownCoordinator,
+            TenantRegistry tenantRegistry,
+            FaultInjector faultInjector,
+            ObjectProvider<AggregationSnapshotService> aggregationSnapshots,
             @Value("${kafka.topic.retry}") String retryTopic,
             @Value("${kafka.topic.dlq}") String dlqTopic,
             @Value("${kafka.retry.max-attempts}") int maxRetryAttempts,
             @Value("${kafka.retry.backoff-ms}") long backoffMs) {
         this.priceAggregationService = priceAggregationService;
-        this.kafkaTemplate = kafkaTemplate;
+        this.orderDeduplicator = orderDeduplicator;
+        this.loadMonitor = loadMonitor;
+        this.retryDispatcher = retryDispatcher;
+        this.orderPipeline = orderPipeline;
+        this.shutdownCoordinator = shutdownCoordinator;
+        this.tenantRegistry = tenantRegistry;
+        this.faultInjector = faultInjector;
+        this.aggregationSnapshots = aggregationSnapshots;
         this.retryTopic = retryTopic;
         this.dlqTopic = dlqTopic;
         this.maxRetryAttempts = maxRetryAttempts;
         this.backoffMs = backoffMs;
     }
 
-    @KafkaListener(topics = "${kafka.topic.retry}", groupId = "retry-consumer-group")
+    @KafkaListener(id = "retry-consumer", topics = "${kafka.topic.retry}", groupId = GROUP_ID)
     public void consumeRetryOrder(@Payload Order order,
             @Header(KafkaHeaders.RECEIVED_KEY) String key,
+            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+            @Header(KafkaHeaders.OFFSET) long offset,
+            @Header(name = RetryDispatcher.TENANT_HEADER, required = false) byte[] tenantHeader,
             Acknowledgment acknowledgment) {
+        String tenantId = tenantHeader == null ? null : new String(tenantHeader, StandardCharsets.UTF_8);
+        if (tenantId != null) {
+            // Tenants retry on their own topics; this moves tenant records left on the shared topic
+            Optional<Tenant> tenant = tenantRegistry.find(tenantId);
+            if (tenant.isEmpty()) {
+                acknowledgeIfDispatched(sendToDLQ(order, "Unregistered tenant: " + tenantId, tenantId),
+                        order.getOrderId().toString(), priceAggregationService, partition, offset, acknowledgment);
+                return;
+            }
+            if (!tenant.get().retryTopic().equals(retryTopic)) {
+                acknowledgeIfDispatched(retryDispatcher.dispatch(tenant.get().retryTopic(), order, null, tenantId),
+                        order.getOrderId().toString(), priceAggregationService, partition, offset, acknowledgment);
+                return;
+            }
+        }
+        retry(null, retryTopic, order, partition, offset, priceAggregationService, "retry-consumer", acknowledgment);
+    }
+
+    /**
+     * Handles a record from a tenant's own retry topic, invoked by the tenant's retry container.
+     * The backoff blocks only that container, so one tenant's retries never delay another's.
+     */
+    public void consumeTenantRetryOrder(String tenantId, String tenantRetryTopic, Order order, int partition,
+            long offset, PriceAggregationService aggregation, Acknowledgment acknowledgment) {
+        retry(tenantId, tenantRetryTopic, order, partition, offset, aggregation, "retry-consumer-" + tenantId,
+                acknowledgment);
+    }
+
+    /**
+     * Rewinds, once after a restore from a snapshot, the retry partitions it covers to the offsets it covers:
+     * orders retried after the snapshot was taken are not in the restored totals. Offsets the aggregate
+     * already covers but the group never committed are skipped, as on the orders topic.
+     */
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        AggregationSnapshotService snapshots = aggregationSnapshots.getIfAvailable();
+        assignments.forEach((partition, position) -> {
+            Long next = priceAggregationService.nextRetryOffset(partition.partition());
+            if (next == null) {
+                return;
+            }
+            if (next > position) {
+                log.info("Skipping {} to offset {}, already aggregated", partition, next);
+                callback.seek(partition.topic(), partition.partition(), next);
+            } else if (next < position && snapshots != null && snapshots.takeRetryRewind(partition.partition())) {
+                log.warn("Rewinding {} from {} to offset {}, retried after the snapshot", partition, position, next);
+                callback.seek(partition.topic(), partition.partition(), next);
+            }
+        });
+    }
+
+    private void retry(String tenantId, String topic, Order order, int partition, long offset,
+            PriceAggregationService aggregation, String listenerId, Acknowledgment acknowledgment) {
         String orderId = order.getOrderId().toString();
+        Map<String, Integer> retryAttempts = retryAttemptsByPartition.computeIfAbsent(
+                new TopicPartition(topic, partition), p -> new ConcurrentHashMap<>());
         int currentAttempt = retryAttempts.getOrDefault(orderId, 0) + 1;
 
-        log.info("Retry attempt {} for order: OrderId={}", currentAttempt, orderId);
+        log.info("Retry attempt {} for order: OrderId={}, Topic={}", currentAttempt, orderId, topic);
 
         try {
-            long waitTime = backoffMs * currentAttempt;
-            Thread.sleep(waitTime);
-            log.info("Waited {}ms before retry attempt", waitTime);
+            // Permanent failures skip the backoff and the remaining attempts
+            OrderRejection rejection = orderPipeline.evaluate(order);
+            if (rejection != null) {
+                retryAttempts.remove(orderId);
+                acknowledgeIfDispatched(sendToDLQ(order, rejection.reason(), tenantId), orderId, aggregation,
+                        partition, offset, acknowledgment);
+                return;
+            }
 
-            if (order.getPrice() < 0) {
-                throw new RuntimeException("Invalid price: " + order.getPrice() + " - Price cannot be negative");
+            long waitTime = backoffMs * currentAttempt;
+            if (shutdownCoordinator.awaitShutdown(waitTime)) {
+                // Hand the record back to the retry topic with its attempt unchanged rather than
+                // holding the container open or leaving it to be redelivered after a rebalance
+                log.info("Shutting down, handing order back to retry topic: OrderId={}", orderId);
+                acknowledgeIfDispatched(retryDispatcher.dispatch(topic, order, null, tenantId), orderId,
+                        aggregation, partition, offset, acknowledgment);
+                return;
             }
+            log.info("Waited {}ms before retry attempt", waitTime);
+            faultInjector.inject(FaultInjector.RETRY_CONSUMER, order);
 
-            processOrder(order);
+            long start = System.nanoTime();
+            processOrder(order, tenantId, aggregation, partition, offset);
+            loadMonitor.recordProcessing(listenerId, System.nanoTime() - start);
             retryAttempts.remove(orderId);
             acknowledgment.acknowledge();
 
             log.info("Order processed successfully on retry: OrderId={}, Attempt={}",
                     orderId, currentAttempt);
 
+        } catch (AggregationFailedException e) {
+            // Not retryable: the order is already marked as seen, so another attempt would skip it as a duplicate
+            retryAttempts.remove(orderId);
+            acknowledgeIfDispatched(sendToDLQ(order, e.getMessage(), tenantId), orderId, aggregation, partition,
+                    offset, acknowledgment);
         } catch (Exception e) {
             log.error("Retry failed for order: OrderId={}, Attempt={}/{}, Error={}",
                     orderId, currentAttempt, maxRetryAttempts, e.getMessage());
 
             if (currentAttempt >= maxRetryAttempts) {
-                sendToDLQ(order, "Max retry attempts reached: " + maxRetryAttempts);
                 retryAttempts.remove(orderId);
-                acknowledgment.acknowledge();
+                acknowledgeIfDispatched(sendToDLQ(order, "Max retry attempts reached: " + maxRetryAttempts, tenantId),
+                        orderId, aggregation, partition, offset, acknowledgment);
             } else {
                 retryAttempts.put(orderId, currentAttempt);
-                kafkaTemplate.send(retryTopic, orderId, order);
-                acknowledgment.acknowledge();
+                acknowledgeIfDispatched(retryDispatcher.dispatch(topic, order, null, tenantId), orderId,
+                        aggregation, partition, offset, acknowledgment);
+            }
+        }
+    }
+
+    // Attempts are kept per topic partition, so tenants' retry topics never share counters
+    @Override
+    public void releasePartitions(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            Map<String, Integer> released = retryAttemptsByPartition.remove(partition);
+            if (released != null && !released.isEmpty()) {
+                log.info("Released retry attempts for {} orders on revoked partition {}", released.size(), partition);
             }
         }
     }
 
-    private void processOrder(Order order) {
-        priceAggregationService.addOrderPrice(order.getPrice());
+    private void processOrder(Order order, String tenantId, PriceAggregationService aggregation,
+            int partition, long offset) {
+        if (!orderDeduplicator.markIfFirst(TenantRegistry.dedupKey(tenantId, order.getOrderId()))) {
+            log.warn("Duplicate order skipped: OrderId={}", order.getOrderId());
+            aggregation.markRetryConsumed(partition, offset);
+            return;
+        }
+        try {
+            aggregation.addRetriedOrder(order, partition, offset);
+        } catch (RuntimeException e) {
+            throw new AggregationFailedException(order.getOrderId().toString(), e);
+        }
         log.info("Order processed in retry: OrderId={}", order.getOrderId());
     }
 
-    private void sendToDLQ(Order order, String reason) {
-        log.warn("Max retries exceeded. Sending to DLQ: OrderId={}", order.getOrderId());
+    // A hand-off refused by the dispatcher (shutting down) is nacked, so the record is redelivered rather than lost
+    private void acknowledgeIfDispatched(CompletableFuture<?> send, String orderId, PriceAggregationService aggregation,
+            int partition, long offset, Acknowledgment acknowledgment) {
+        if (send == null || RetryDispatcher.failedImmediately(send)) {
+            log.error("Hand-off failed, order will be redelivered: OrderId={}", orderId);
+            acknowledgment.nack(HAND_OFF_REDELIVERY_DELAY);
+            return;
+        }
+        aggregation.markRetryConsumed(partition, offset);
+        acknowledgment.acknowledge();
+    }
+
+    // Returns null if the send could not even be attempted
+    private CompletableFuture<?> sendToDLQ(Order order, String reason, String tenantId) {
+        log.warn("Sending to DLQ: OrderId={}, Reason={}", order.getOrderId(), reason);
 
         try {
-            kafkaTemplate.send(dlqTopic, order.getOrderId().toString(), order);
+            CompletableFuture<?> sent = retryDispatcher.dispatch(dlqTopic, order, reason, tenantId);
             log.info("Order sent to DLQ: OrderId={}", order.getOrderId());
 
             org.slf4j.LoggerFactory.getLogger("FAILED_ORDER_LOGGER")
@@ -100,8 +253,10 @@ public class RetryConsumerService {
                             order.getProduct(),
                             order.getPrice(),
                             reason);
+            return sent;
         } catch (Exception e) {
             log.error("Failed to send order to DLQ: OrderId={}, Error: {}", order.getOrderId(), e.getMessage());
+            return null;
         }
     }
 }
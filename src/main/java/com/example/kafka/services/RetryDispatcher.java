@@ -0,0 +1,144 @@
+package com.example.kafka.services;
+
+import com.example.kafka.avro.Order;
+import com.example.kafka.listener.ListenerLoadMonitor;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead for sends to the retry, DLQ and parking topics.
+ * They use their own producer (and so their own buffer.memory) and a bounded thread pool, so a retry storm
+ * cannot exhaust the producer or threads used for new orders. When the queue is full the calling listener
+ * thread performs the send itself, which slows the listener down instead of dropping the order. Once the
+ * dispatcher is shut down, sends fail immediately and the caller nacks its record instead of acknowledging it.
+ * The caller's trace context is carried over to the pool thread, so the send stays in the order's trace.
+ */
+@Slf4j
+@Service
+public class RetryDispatcher {
+
+    public static final String FAILURE_REASON_HEADER = "x-failure-reason";
+    public static final String TENANT_HEADER = "x-tenant-id";
+
+    private final KafkaTemplate<String, Object> retryKafkaTemplate;
+    private final ListenerLoadMonitor loadMonitor;
+    private final ThreadPoolExecutor executor;
+    private final ContextSnapshotFactory contextSnapshotFactory = ContextSnapshotFactory.builder().build();
+    private final long drainTimeoutMs;
+
+    public RetryDispatcher(@Qualifier("retryKafkaTemplate") KafkaTemplate<String, Object> retryKafkaTemplate,
+            ListenerLoadMonitor loadMonitor,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.retry.bulkhead.threads}") int threads,
+            @Value("${kafka.retry.bulkhead.queue-capacity}") int queueCapacity,
+            @Value("${kafka.retry.bulkhead.drain-timeout-ms}") long drainTimeoutMs) {
+        this.retryKafkaTemplate = retryKafkaTemplate;
+        this.drainTimeoutMs = drainTimeoutMs;
+        this.loadMonitor = loadMonitor;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("retry-dispatch-"),
+                RetryDispatcher::rejected);
+        meterRegistry.gauge("orders.retry.bulkhead.queue", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("orders.retry.bulkhead.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    public CompletableFuture<SendResult<String, Object>> dispatch(String topic, Order order) {
+        return dispatch(topic, order, null);
+    }
+
+    public CompletableFuture<SendResult<String, Object>> dispatch(String topic, Order order, String failureReason) {
+        return dispatch(topic, order, failureReason, null);
+    }
+
+    // tenantId is null for the default tenant; otherwise it travels as a header so retries aggregate per tenant
+    public CompletableFuture<SendResult<String, Object>> dispatch(String topic, Order order, String failureReason,
+            String tenantId) {
+        ProducerRecord<String, Object> record = new ProducerRecord<>(topic, order.getOrderId().toString(), order);
+        if (failureReason != null) {
+            record.headers().add(FAILURE_REASON_HEADER, failureReason.getBytes(StandardCharsets.UTF_8));
+        }
+        if (tenantId != null) {
+            record.headers().add(TENANT_HEADER, tenantId.getBytes(StandardCharsets.UTF_8));
+        }
+
+        CompletableFuture<SendResult<String, Object>> result = loadMonitor.trackSend(new CompletableFuture<>());
+        try {
+            executor.execute(contextSnapshotFactory.captureAll().wrap(() -> {
+                try {
+                    retryKafkaTemplate.send(record)
+                            .whenComplete((sendResult, ex) -> {
+                                if (ex == null) {
+                                    result.complete(sendResult);
+                                } else {
+                                    result.completeExceptionally(ex);
+                                }
+                            });
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        result.whenComplete((sendResult, ex) -> {
+            if (ex != null) {
+                log.error("Failed to send order to {}: OrderId={}, Error={}", topic, order.getOrderId(), ex.getMessage());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * True if the send failed before dispatch returned, e.g. because the dispatcher was already shut down.
+     * The source record must then be nacked rather than acknowledged so it is redelivered.
+     */
+    public static boolean failedImmediately(CompletableFuture<?> send) {
+        return send.isCompletedExceptionally();
+    }
+
+    // Runs on the caller while the pool is up (backpressure); after shutdown the send is refused instead of dropped
+    private static void rejected(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("Retry dispatcher is shut down");
+        }
+        task.run();
+    }
+
+    // Finishes queued sends and waits for the producer to deliver them; called once the listeners have stopped
+    public void drain() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(drainTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Retry dispatch queue not drained within {} ms, {} sends pending",
+                        drainTimeoutMs, executor.getQueue().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        retryKafkaTemplate.flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!executor.isTerminated()) {
+            drain();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.kafka.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps /stats and /failed as pre-serialized JSON so that reads only copy a cached byte array.
+ * Snapshots are rebuilt on a fixed tick, and only when the underlying values changed;
+ * each rebuild gets a new ETag and is pushed to server-sent-event subscribers.
+ * ETags carry the boot time, so a tag from an earlier process never matches a fresh snapshot.
+ * Each subscriber is sent only its latest snapshot, on its own virtual thread, so a slow client holds up
+ * neither the others nor the scheduler.
+ */
+@Slf4j
+@Service
+public class StatsSnapshotPublisher implements SmartInitializingSingleton {
+
+    private final PriceAggregationService priceAggregationService;
+    private final DLQConsumerService dlqConsumerService;
+    private final ObjectMapper objectMapper;
+    private final long sseTimeoutMs;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatcher = Executors.newVirtualThreadPerTaskExecutor();
+    private final String bootEpoch = Long.toHexString(System.currentTimeMillis());
+
+    private volatile Snapshot statsSnapshot;
+    private volatile Snapshot failedSnapshot;
+    private long version;
+    private long lastOrderCount = -1;
+    private long lastTotalPriceMinor = -1;
+    private long lastFailedVersion = -1;
+
+    public StatsSnapshotPublisher(PriceAggregationService priceAggregationService,
+            DLQConsumerService dlqConsumerService,
+            ObjectMapper objectMapper,
+            @Value("${kafka.stats.sse-timeout-ms}") long sseTimeoutMs) {
+        this.priceAggregationService = priceAggregationService;
+        this.dlqConsumerService = dlqConsumerService;
+        this.objectMapper = objectMapper;
+        this.sseTimeoutMs = sseTimeoutMs;
+    }
+
+    // Runs once every singleton is wired and before the web server takes requests
+    @Override
+    public void afterSingletonsInstantiated() {
+        refresh();
+    }
+
+    public Snapshot getStatsSnapshot() {
+        return statsSnapshot;
+    }
+
+    public Snapshot getFailedSnapshot() {
+        return failedSnapshot;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        subscriber.offer(statsSnapshot);
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    @Scheduled(fixedRateString = "${kafka.stats.snapshot-interval-ms}")
+    public synchronized void refresh() {
+        long orderCount = priceAggregationService.getOrderCount();
+        long totalPriceMinor = priceAggregationService.getTotalPriceMinor();
+        long failedVersion = dlqConsumerService.getVersion();
+
+        boolean statsChanged = orderCount != lastOrderCount || totalPriceMinor != lastTotalPriceMinor
+                || failedVersion != lastFailedVersion;
+        boolean failedChanged = failedVersion != lastFailedVersion;
+        if (!statsChanged) {
+            return;
+        }
+        version++;
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalOrders", orderCount);
+        stats.put("totalQuantity", priceAggregationService.getTotalQuantity());
+        stats.put("totalPrice", priceAggregationService.getTotalPrice().toPlainString());
+        stats.put("runningAverage", priceAggregationService.getRunningAverage().toPlainString());
+        stats.put("failedOrders", dlqConsumerService.getFailedOrderCount());
+        statsSnapshot = serialize(stats);
+
+        if (failedChanged) {
+            List<DLQConsumerService.FailedOrder> failedOrders = dlqConsumerService.getFailedOrders();
+            Map<String, Object> failed = new HashMap<>();
+            failed.put("count", failedOrders.size());
+            failed.put("failedOrders", failedOrders);
+            failedSnapshot = serialize(failed);
+        }
+
+        lastOrderCount = orderCount;
+        lastTotalPriceMinor = totalPriceMinor;
+        lastFailedVersion = failedVersion;
+
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(statsSnapshot);
+        }
+    }
+
+    private Snapshot serialize(Object value) {
+        try {
+            return new Snapshot(objectMapper.writeValueAsBytes(value),
+                    "\"" + bootEpoch + "-" + Long.toHexString(version) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize stats snapshot", e);
+        }
+    }
+
+    public record Snapshot(byte[] body, String etag) {
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicReference<Snapshot> pending = new AtomicReference<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // Only the newest snapshot matters, so an undelivered one is simply replaced
+        void offer(Snapshot snapshot) {
+            pending.set(snapshot);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down; the emitter is completed by shutdown()
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Snapshot snapshot;
+                while ((snapshot = pending.getAndSet(null)) != null) {
+                    emitter.send(SseEmitter.event()
+                            .id(snapshot.etag())
+                            .name("stats")
+                            .data(snapshot.body(), MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping stats subscriber: {}", e.getMessage());
+                subscribers.remove(this);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            if (pending.get() != null) {
+                scheduleDrain();
+            }
+        }
+    }
+}
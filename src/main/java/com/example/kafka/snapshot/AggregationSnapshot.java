@@ -0,0 +1,13 @@
+package com.example.kafka.snapshot;
+
+import com.example.kafka.aggregation.AggregateTotals;
+
+import java.util.Map;
+
+/**
+ * Listener aggregate totals together with the offsets they cover: for each partition of the orders topic and
+ * of the retry topic, the offset of the next record not yet reflected in the totals.
+ */
+public record AggregationSnapshot(long takenAtMs, AggregateTotals totals, Map<Integer, Long> nextOffsets,
+        Map<Integer, Long> retryNextOffsets) {
+}
@@ -0,0 +1,283 @@
+package com.example.kafka.snapshot;
+
+import com.example.kafka.aggregation.AggregateTotals;
+import com.example.kafka.avro.Order;
+import com.example.kafka.pipeline.OrderPipeline;
+import com.example.kafka.scaling.TopicScalingService;
+import com.example.kafka.services.OrderDeduplicator;
+import com.example.kafka.services.PriceAggregationService;
+import com.example.kafka.tenant.TenantRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists the listener aggregate so a restart does not reset /stats. Snapshots of the totals and the offsets
+ * they cover are written periodically and on shutdown. On startup, before the listener containers start,
+ * the latest snapshot is loaded and only the orders between its offsets and the group's committed offsets are
+ * replayed, through the same pipeline and deduplication but without any retry or DLQ sends. Orders that
+ * failed in that range are counted as if their retry succeeded. If the replay fails or times out, the
+ * partitions it did not finish are handed to the order listener to rewind to the offsets the totals cover,
+ * so those orders are consumed again instead of missing from the aggregate. The retry listener likewise
+ * rewinds, once, to the retry-topic offsets the totals cover, so an order handed to retry before the snapshot
+ * and aggregated after it is not lost with a crash.
+ *
+ * The totals cleared by a reset are kept in a second file next to the snapshot, so a reset can still be
+ * undone after a restart.
+ *
+ * The aggregate is instance-local, so restore is exact only when one instance consumes every partition.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kafka.snapshot.enabled", havingValue = "true")
+public class AggregationSnapshotService implements SmartLifecycle {
+
+    private final PriceAggregationService priceAggregationService;
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final TopicScalingService topicScalingService;
+    private final OrderPipeline orderPipeline;
+    private final OrderDeduplicator orderDeduplicator;
+    private final Path path;
+    private final Path resetPath;
+    private final int slotBytes;
+    private final String ordersTopic;
+    private final String groupId;
+    private final long replayTimeoutMs;
+    private final int adminTimeoutSeconds;
+    private final Timer writeTimer;
+    private final Timer restoreTimer;
+    private final Counter replayedOrders;
+    // Orders-topic partitions whose replay did not finish; the listener rewinds each once on assignment
+    private final Set<Integer> rewindPartitions = ConcurrentHashMap.newKeySet();
+    // Retry-topic partitions the snapshot covers; the retry listener rewinds each once on assignment
+    private final Set<Integer> retryRewindPartitions = ConcurrentHashMap.newKeySet();
+
+    private SnapshotFile snapshotFile;
+    private SnapshotFile resetFile;
+    private AggregateTotals writtenClearedByReset = AggregateTotals.ZERO;
+    private volatile boolean running;
+
+    public AggregationSnapshotService(PriceAggregationService priceAggregationService,
+            ConsumerFactory<String, Object> consumerFactory,
+            TopicScalingService topicScalingService,
+            OrderPipeline orderPipeline,
+            OrderDeduplicator orderDeduplicator,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.snapshot.file}") String file,
+            @Value("${kafka.snapshot.slot-bytes}") int slotBytes,
+            @Value("${kafka.topic.orders}") String ordersTopic,
+            @Value("${spring.kafka.consumer.group-id}") String groupId,
+            @Value("${kafka.snapshot.replay-timeout-ms}") long replayTimeoutMs,
+            @Value("${kafka.admin.operation-timeout-seconds}") int adminTimeoutSeconds) {
+        this.priceAggregationService = priceAggregationService;
+        this.consumerFactory = consumerFactory;
+        this.topicScalingService = topicScalingService;
+        this.orderPipeline = orderPipeline;
+        this.orderDeduplicator = orderDeduplicator;
+        this.path = Path.of(file);
+        this.resetPath = Path.of(file + ".reset");
+        this.slotBytes = slotBytes;
+        this.ordersTopic = ordersTopic;
+        this.groupId = groupId;
+        this.replayTimeoutMs = replayTimeoutMs;
+        this.adminTimeoutSeconds = adminTimeoutSeconds;
+        this.writeTimer = meterRegistry.timer("orders.snapshot.write");
+        this.restoreTimer = meterRegistry.timer("orders.snapshot.restore");
+        this.replayedOrders = meterRegistry.counter("orders.snapshot.replayed");
+    }
+
+    @Override
+    public synchronized void start() {
+        long start = System.nanoTime();
+        try {
+            snapshotFile = new SnapshotFile(path, slotBytes);
+            resetFile = new SnapshotFile(resetPath, slotBytes);
+        } catch (IOException e) {
+            log.error("Snapshot file {} unavailable, aggregation starts empty and is not persisted: {}",
+                    path, e.getMessage());
+            closeFiles();
+            running = true;
+            return;
+        }
+        resetFile.readLatest().ifPresent(cleared -> {
+            priceAggregationService.restoreClearedByReset(cleared.totals());
+            writtenClearedByReset = cleared.totals();
+        });
+        Optional<AggregationSnapshot> latest = snapshotFile.readLatest();
+        if (latest.isPresent()) {
+            priceAggregationService.restore(latest.get());
+            rewindPartitions.addAll(latest.get().nextOffsets().keySet());
+            retryRewindPartitions.addAll(latest.get().retryNextOffsets().keySet());
+            try {
+                long replayed = replay(latest.get().nextOffsets());
+                log.info("Aggregation snapshot from {} restored, {} orders replayed",
+                        Instant.ofEpochMilli(latest.get().takenAtMs()), replayed);
+            } catch (Exception e) {
+                // What was replayed is consistent with the offsets recorded; the listener re-reads the rest
+                log.warn("Snapshot replay incomplete, the order listener will rewind partitions {} to the "
+                        + "aggregated offsets: {}", rewindPartitions, e.getMessage());
+            }
+        }
+        restoreTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        // Runs after the listener containers stopped (lower phase), so this snapshot covers all they consumed
+        snapshot();
+        running = false;
+        closeFiles();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Restore must finish before the listener containers start consuming
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE - 1;
+    }
+
+    /**
+     * True once for each orders-topic partition whose replay did not finish, so the listener seeks it back to
+     * {@link PriceAggregationService#nextOffset} instead of continuing from the committed offset.
+     */
+    public boolean takeRewind(int partition) {
+        return rewindPartitions.remove(partition);
+    }
+
+    /**
+     * True once for each retry-topic partition the restored snapshot covers, so the retry listener seeks it back
+     * to {@link PriceAggregationService#nextRetryOffset}: retries committed after the snapshot are not in it.
+     */
+    public boolean takeRetryRewind(int partition) {
+        return retryRewindPartitions.remove(partition);
+    }
+
+    @Scheduled(fixedDelayString = "${kafka.snapshot.interval-ms}")
+    public synchronized void snapshot() {
+        if (!running || snapshotFile == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            // Kept before the totals, so a crash in between cannot lose what a reset cleared
+            AggregateTotals cleared = priceAggregationService.getClearedByReset();
+            if (!cleared.equals(writtenClearedByReset)) {
+                resetFile.write(new AggregationSnapshot(System.currentTimeMillis(), cleared, Map.of(), Map.of()));
+                writtenClearedByReset = cleared;
+            }
+            snapshotFile.write(priceAggregationService.snapshot());
+        } catch (RuntimeException e) {
+            log.warn("Aggregation snapshot failed: {}", e.getMessage());
+            return;
+        }
+        writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // Reads the orders between the snapshot's offsets and the committed ones into the aggregate
+    private long replay(Map<Integer, Long> snapshotOffsets) throws Exception {
+        Map<TopicPartition, OffsetAndMetadata> committed = topicScalingService.admin()
+                .listConsumerGroupOffsets(groupId).partitionsToOffsetAndMetadata()
+                .get(adminTimeoutSeconds, TimeUnit.SECONDS);
+        Map<TopicPartition, Long> ends = new HashMap<>();
+        snapshotOffsets.forEach((partition, offset) -> {
+            OffsetAndMetadata commit = committed.get(new TopicPartition(ordersTopic, partition));
+            if (commit != null && commit.offset() > offset) {
+                ends.put(new TopicPartition(ordersTopic, partition), commit.offset());
+            }
+        });
+        // Partitions already at their committed offset need no replay and no rewind
+        rewindPartitions.retainAll(ends.keySet().stream().map(TopicPartition::partition).toList());
+        if (ends.isEmpty()) {
+            return 0;
+        }
+
+        long replayed = 0;
+        long deadline = System.currentTimeMillis() + replayTimeoutMs;
+        try (Consumer<String, Object> consumer = consumerFactory.createConsumer("order-snapshot-replay", "-replay")) {
+            consumer.assign(ends.keySet());
+            ends.keySet().forEach(tp -> consumer.seek(tp, snapshotOffsets.get(tp.partition())));
+            Set<TopicPartition> remaining = new HashSet<>(ends.keySet());
+            while (!remaining.isEmpty()) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("replay of " + remaining + " timed out after " + replayTimeoutMs + " ms");
+                }
+                ConsumerRecords<String, Object> records = consumer.poll(Duration.ofMillis(500));
+                for (TopicPartition tp : records.partitions()) {
+                    long end = ends.get(tp);
+                    for (ConsumerRecord<String, Object> record : records.records(tp)) {
+                        if (record.offset() >= end) {
+                            break;
+                        }
+                        replayRecord(record);
+                        replayed++;
+                    }
+                }
+                for (TopicPartition tp : List.copyOf(remaining)) {
+                    if (consumer.position(tp) >= ends.get(tp)) {
+                        remaining.remove(tp);
+                        rewindPartitions.remove(tp.partition());
+                        consumer.pause(List.of(tp));
+                    }
+                }
+            }
+        } finally {
+            replayedOrders.increment(replayed);
+        }
+        return replayed;
+    }
+
+    private void closeFiles() {
+        for (SnapshotFile file : new SnapshotFile[] { snapshotFile, resetFile }) {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close snapshot file: {}", e.getMessage());
+                }
+            }
+        }
+        snapshotFile = null;
+        resetFile = null;
+    }
+
+    private void replayRecord(ConsumerRecord<String, Object> record) {
+        if (record.value() instanceof Order order
+                && orderPipeline.evaluate(order) == null
+                && orderDeduplicator.markIfFirst(TenantRegistry.dedupKey(null, order.getOrderId()))) {
+            priceAggregationService.addOrder(order, record.partition(), record.offset());
+        } else {
+            priceAggregationService.markConsumed(record.partition(), record.offset());
+        }
+    }
+}
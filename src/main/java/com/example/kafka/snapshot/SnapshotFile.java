@@ -0,0 +1,149 @@
+package com.example.kafka.snapshot;
+
+import com.example.kafka.aggregation.AggregateTotals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped file of two fixed-size slots written alternately, each with a sequence number and a CRC.
+ * A crash while writing one slot leaves the other intact, so the latest complete snapshot always survives.
+ * Slot layout: magic, version, sequence, taken-at, count, quantity, total, partition count,
+ * (partition, next offset) pairs, retry partition count, (partition, next offset) pairs, CRC32 of everything
+ * before it. Version 1 slots end before the retry section and are still read, with no retry offsets.
+ */
+public class SnapshotFile implements AutoCloseable {
+
+    private static final int MAGIC = 0x41474753;
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_RETRY = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 8 + 8 + 4;
+    private static final int ENTRY_BYTES = 4 + 8;
+    private static final int COUNT_BYTES = 4;
+    private static final int CRC_BYTES = 4;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotBytes;
+    private long sequence;
+
+    public SnapshotFile(Path path, int slotBytes) throws IOException {
+        if (slotBytes < HEADER_BYTES + COUNT_BYTES + CRC_BYTES) {
+            throw new IllegalArgumentException("Snapshot slot must hold at least "
+                    + (HEADER_BYTES + COUNT_BYTES + CRC_BYTES) + " bytes");
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.slotBytes = slotBytes;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, 2L * slotBytes);
+        this.sequence = Math.max(readSequence(0), readSequence(1));
+    }
+
+    // Largest number of partitions, orders and retry topic together, a slot can hold
+    public int capacity() {
+        return (slotBytes - HEADER_BYTES - COUNT_BYTES - CRC_BYTES) / ENTRY_BYTES;
+    }
+
+    public synchronized Optional<AggregationSnapshot> readLatest() {
+        int latest = readSequence(0) >= readSequence(1) ? 0 : 1;
+        if (readSequence(latest) == 0) {
+            return Optional.empty();
+        }
+        ByteBuffer slot = slot(latest);
+        slot.position(16);
+        long takenAtMs = slot.getLong();
+        AggregateTotals totals = new AggregateTotals(slot.getLong(), slot.getLong(), slot.getLong());
+        Map<Integer, Long> nextOffsets = readOffsets(slot);
+        Map<Integer, Long> retryNextOffsets = slot.getInt(4) == VERSION_WITHOUT_RETRY ? Map.of() : readOffsets(slot);
+        return Optional.of(new AggregationSnapshot(takenAtMs, totals, nextOffsets, retryNextOffsets));
+    }
+
+    // Writes the snapshot over the older slot and flushes it to disk
+    public synchronized void write(AggregationSnapshot snapshot) {
+        int partitions = snapshot.nextOffsets().size() + snapshot.retryNextOffsets().size();
+        if (partitions > capacity()) {
+            throw new IllegalArgumentException("Snapshot covers " + partitions + " partitions, slot holds " + capacity());
+        }
+        long next = sequence + 1;
+        int index = (int) (next % 2);
+        ByteBuffer slot = slot(index);
+        slot.putInt(MAGIC);
+        slot.putInt(VERSION);
+        slot.putLong(next);
+        slot.putLong(snapshot.takenAtMs());
+        slot.putLong(snapshot.totals().count());
+        slot.putLong(snapshot.totals().quantity());
+        slot.putLong(snapshot.totals().totalMinor());
+        writeOffsets(slot, snapshot.nextOffsets());
+        writeOffsets(slot, snapshot.retryNextOffsets());
+        slot.putInt(crc(slot, slot.position()));
+        buffer.force(index * slotBytes, slotBytes);
+        sequence = next;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Sequence of the slot, or 0 if it is empty, torn or from another format
+    private long readSequence(int index) {
+        ByteBuffer slot = slot(index);
+        int version = slot.getInt(4);
+        if (slot.getInt(0) != MAGIC || (version != VERSION && version != VERSION_WITHOUT_RETRY)) {
+            return 0;
+        }
+        int maxEntries = version == VERSION ? capacity() : (slotBytes - HEADER_BYTES - CRC_BYTES) / ENTRY_BYTES;
+        int partitions = slot.getInt(HEADER_BYTES - COUNT_BYTES);
+        if (partitions < 0 || partitions > maxEntries) {
+            return 0;
+        }
+        int length = HEADER_BYTES + partitions * ENTRY_BYTES;
+        if (version == VERSION) {
+            int retryPartitions = slot.getInt(length);
+            if (retryPartitions < 0 || partitions + retryPartitions > maxEntries) {
+                return 0;
+            }
+            length += COUNT_BYTES + retryPartitions * ENTRY_BYTES;
+        }
+        return crc(slot, length) == slot.getInt(length) ? slot.getLong(8) : 0;
+    }
+
+    private static Map<Integer, Long> readOffsets(ByteBuffer slot) {
+        int partitions = slot.getInt();
+        Map<Integer, Long> offsets = new HashMap<>();
+        for (int i = 0; i < partitions; i++) {
+            offsets.put(slot.getInt(), slot.getLong());
+        }
+        return offsets;
+    }
+
+    private static void writeOffsets(ByteBuffer slot, Map<Integer, Long> offsets) {
+        slot.putInt(offsets.size());
+        for (Map.Entry<Integer, Long> entry : offsets.entrySet()) {
+            slot.putInt(entry.getKey());
+            slot.putLong(entry.getValue());
+        }
+    }
+
+    private ByteBuffer slot(int index) {
+        return buffer.slice(index * slotBytes, slotBytes);
+    }
+
+    private static int crc(ByteBuffer slot, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(slot.slice(0, length));
+        return (int) crc.getValue();
+    }
+}
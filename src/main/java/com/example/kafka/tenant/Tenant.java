@@ -0,0 +1,12 @@
+package com.example.kafka.tenant;
+
+import com.example.kafka.services.PriceAggregationService;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+/**
+ * A storefront and the resources isolated to it. The default tenant has no containers of its own:
+ * it is served by the @KafkaListeners on the unprefixed orders and retry topics.
+ */
+public record Tenant(String id, String ordersTopic, String retryTopic, PriceAggregationService aggregation,
+        MessageListenerContainer container, MessageListenerContainer retryContainer) {
+}
@@ -0,0 +1,222 @@
+package com.example.kafka.tenant;
+
+import com.example.kafka.avro.Order;
+import com.example.kafka.currency.FxRates;
+import com.example.kafka.services.OrderConsumerService;
+import com.example.kafka.services.PriceAggregationService;
+import com.example.kafka.services.RetryConsumerService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Storefront tenants. Each tenant gets its own orders and retry topics (prefix + tenant + "." + topic),
+ * a listener container and consumer group for each, and its own running aggregate, so a tenant with a
+ * backlog or a burst of failures only delays itself: retry backoff blocks the tenant's own retry
+ * container, not the other tenants'. Tenants come from kafka.tenant.ids, from tenant topics already on
+ * the cluster at startup, and from {@link #register} at runtime, up to kafka.tenant.max-tenants.
+ * The default tenant keeps the unprefixed topics and the shared services.
+ */
+@Slf4j
+@Component
+public class TenantRegistry {
+
+    public static final String DEFAULT_TENANT = "default";
+    public static final String TENANT_REQUEST_HEADER = "X-Tenant-Id";
+    private static final Pattern TENANT_ID = Pattern.compile("[a-z0-9][a-z0-9-]{0,31}");
+
+    private final KafkaAdmin kafkaAdmin;
+    private final ConcurrentKafkaListenerContainerFactory<String, Object> containerFactory;
+    private final OrderConsumerService orderConsumerService;
+    // Looked up on registration: the retry consumer itself resolves tenants through this registry
+    private final ObjectProvider<RetryConsumerService> retryConsumerService;
+    private final FxRates fxRates;
+    private final String ordersTopic;
+    private final String retryTopic;
+    private final String groupId;
+    private final String topicPrefix;
+    private final int partitions;
+    private final short replicationFactor;
+    private final int concurrency;
+    private final int maxTenants;
+    private final String[] configuredTenants;
+    private final boolean discoverOnStartup;
+    private final int adminTimeoutSeconds;
+    private final Tenant defaultTenant;
+    private final ConcurrentMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+    public TenantRegistry(KafkaAdmin kafkaAdmin,
+            ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory,
+            OrderConsumerService orderConsumerService,
+            ObjectProvider<RetryConsumerService> retryConsumerService,
+            PriceAggregationService priceAggregationService,
+            FxRates fxRates,
+            @Value("${kafka.topic.orders}") String ordersTopic,
+            @Value("${kafka.topic.retry}") String retryTopic,
+            @Value("${spring.kafka.consumer.group-id}") String groupId,
+            @Value("${kafka.tenant.topic-prefix}") String topicPrefix,
+            @Value("${kafka.tenant.partitions}") int partitions,
+            @Value("${kafka.tenant.replication-factor}") short replicationFactor,
+            @Value("${kafka.tenant.listener-concurrency}") int concurrency,
+            @Value("${kafka.tenant.max-tenants}") int maxTenants,
+            @Value("${kafka.tenant.ids}") String[] configuredTenants,
+            @Value("${kafka.tenant.discover-on-startup}") boolean discoverOnStartup,
+            @Value("${kafka.admin.operation-timeout-seconds}") int adminTimeoutSeconds) {
+        this.kafkaAdmin = kafkaAdmin;
+        this.containerFactory = kafkaListenerContainerFactory;
+        this.orderConsumerService = orderConsumerService;
+        this.retryConsumerService = retryConsumerService;
+        this.fxRates = fxRates;
+        this.ordersTopic = ordersTopic;
+        this.retryTopic = retryTopic;
+        this.groupId = groupId;
+        this.topicPrefix = topicPrefix;
+        this.partitions = partitions;
+        this.replicationFactor = replicationFactor;
+        this.concurrency = concurrency;
+        this.maxTenants = maxTenants;
+        this.configuredTenants = configuredTenants;
+        this.discoverOnStartup = discoverOnStartup;
+        this.adminTimeoutSeconds = adminTimeoutSeconds;
+        this.defaultTenant = new Tenant(DEFAULT_TENANT, ordersTopic, retryTopic, priceAggregationService, null, null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startConfiguredTenants() {
+        Set<String> ids = new TreeSet<>();
+        Arrays.stream(configuredTenants).map(String::trim).filter(id -> !id.isEmpty()).forEach(ids::add);
+        if (discoverOnStartup) {
+            ids.addAll(discoverTenants());
+        }
+        for (String id : ids) {
+            try {
+                register(id);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                log.warn("Tenant {} not started: {}", id, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds a tenant: creates its topics if missing and starts its listener containers. Idempotent.
+     * @throws IllegalArgumentException if the id is not a valid tenant id
+     * @throws IllegalStateException if kafka.tenant.max-tenants tenants are already registered
+     */
+    public synchronized Tenant register(String tenantId) {
+        if (DEFAULT_TENANT.equals(tenantId)) {
+            return defaultTenant;
+        }
+        if (tenantId == null || !TENANT_ID.matcher(tenantId).matches()) {
+            throw new IllegalArgumentException("Tenant id must match " + TENANT_ID.pattern());
+        }
+        Tenant existing = tenants.get(tenantId);
+        if (existing != null) {
+            return existing;
+        }
+        if (tenants.size() >= maxTenants) {
+            throw new IllegalStateException("Tenant limit of " + maxTenants + " reached");
+        }
+
+        String topic = topicFor(tenantId, ordersTopic);
+        String tenantRetryTopic = topicFor(tenantId, retryTopic);
+        kafkaAdmin.createOrModifyTopics(new NewTopic(topic, partitions, replicationFactor),
+                new NewTopic(tenantRetryTopic, partitions, replicationFactor));
+
+        PriceAggregationService aggregation = new PriceAggregationService(fxRates);
+        RetryConsumerService retryConsumer = retryConsumerService.getObject();
+        ConcurrentMessageListenerContainer<String, Object> container = createContainer(topic,
+                groupId + "-" + tenantId, "order-consumer-" + tenantId,
+                (record, acknowledgment) -> orderConsumerService.consumeTenantOrder(tenantId, tenantRetryTopic,
+                        (Order) record.value(), record.partition(), record.offset(), aggregation, acknowledgment));
+        ConcurrentMessageListenerContainer<String, Object> retryContainer = createContainer(tenantRetryTopic,
+                RetryConsumerService.GROUP_ID + "-" + tenantId, "retry-consumer-" + tenantId,
+                (record, acknowledgment) -> retryConsumer.consumeTenantRetryOrder(tenantId, tenantRetryTopic,
+                        (Order) record.value(), record.partition(), record.offset(), aggregation,
+                        acknowledgment));
+        retryContainer.start();
+        container.start();
+
+        Tenant tenant = new Tenant(tenantId, topic, tenantRetryTopic, aggregation, container, retryContainer);
+        tenants.put(tenantId, tenant);
+        log.info("Tenant registered: Tenant={}, Topic={}, RetryTopic={}, Concurrency={}",
+                tenantId, topic, tenantRetryTopic, concurrency);
+        return tenant;
+    }
+
+    // A missing or blank id is the default tenant; an unregistered id is empty
+    public Optional<Tenant> find(String tenantId) {
+        if (tenantId == null || tenantId.isBlank() || DEFAULT_TENANT.equals(tenantId)) {
+            return Optional.of(defaultTenant);
+        }
+        return Optional.ofNullable(tenants.get(tenantId));
+    }
+
+    public Collection<Tenant> getTenants() {
+        return tenants.values();
+    }
+
+    // Called during graceful shutdown alongside the @KafkaListener containers
+    public void stopListeners() {
+        tenants.values().forEach(tenant -> {
+            tenant.container().stop();
+            tenant.retryContainer().stop();
+        });
+    }
+
+    // Order ids only need to be unique within a tenant
+    public static CharSequence dedupKey(String tenantId, CharSequence orderId) {
+        return tenantId == null ? orderId : tenantId + "/" + orderId;
+    }
+
+    private String topicFor(String tenantId, String topic) {
+        return topicPrefix + tenantId + "." + topic;
+    }
+
+    private ConcurrentMessageListenerContainer<String, Object> createContainer(String topic, String group,
+            String listenerId, AcknowledgingMessageListener<String, Object> listener) {
+        ConcurrentMessageListenerContainer<String, Object> container = containerFactory.createContainer(topic);
+        container.getContainerProperties().setGroupId(group);
+        container.getContainerProperties().setMessageListener(listener);
+        container.setConcurrency(concurrency);
+        container.setBeanName(listenerId);
+        return container;
+    }
+
+    private Set<String> discoverTenants() {
+        Set<String> ids = new TreeSet<>();
+        String suffix = "." + ordersTopic;
+        try (AdminClient admin = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            for (String topic : admin.listTopics().names().get(adminTimeoutSeconds, TimeUnit.SECONDS)) {
+                if (topic.startsWith(topicPrefix) && topic.endsWith(suffix)
+                        && topic.length() > topicPrefix.length() + suffix.length()) {
+                    String id = topic.substring(topicPrefix.length(), topic.length() - suffix.length());
+                    if (TENANT_ID.matcher(id).matches()) {
+                        ids.add(id);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Could not list tenant topics, starting configured tenants only: {}", e.getMessage());
+        }
+        return ids;
+    }
+}
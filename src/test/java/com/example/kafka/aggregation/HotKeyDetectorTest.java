@@ -0,0 +1,107 @@
+package com.example.kafka.aggregation;
+
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HotKeyDetectorTest {
+
+    private static final int PARTITIONS = 12;
+    private static final int ORDERS = 200_000;
+
+    @Test
+    void uniformTrafficIsNeverSalted() {
+        HotKeyDetector detector = new HotKeyDetector(0.05, 200, 10_000, 8);
+        Random random = new Random(7);
+
+        for (int i = 0; i < ORDERS; i++) {
+            assertThat(detector.observe("product-" + random.nextInt(200), "order-" + i)).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void flashSaleProductIsSaltedOverEveryBucket() {
+        HotKeyDetector detector = new HotKeyDetector(0.05, 200, 10_000, 8);
+        Random random = new Random(42);
+        Set<Integer> buckets = new HashSet<>();
+
+        for (int i = 0; i < ORDERS; i++) {
+            boolean laptop = random.nextDouble() < 0.5;
+            int bucket = detector.observe(laptop ? "Laptop" : "product-" + random.nextInt(200), "order-" + i);
+            if (laptop) {
+                buckets.add(bucket);
+            } else {
+                assertThat(bucket).isEqualTo(-1);
+            }
+        }
+        // -1 only while the sketch warms up
+        assertThat(buckets).containsAll(Set.of(0, 1, 2, 3, 4, 5, 6, 7));
+    }
+
+    @Test
+    void saltingSpreadsTheHotPartition() {
+        HotKeyDetector detector = new HotKeyDetector(0.05, 200, 10_000, 8);
+        Random random = new Random(42);
+        long[] unsalted = new long[PARTITIONS];
+        long[] salted = new long[PARTITIONS];
+
+        for (int i = 0; i < ORDERS; i++) {
+            String product = random.nextDouble() < 0.5 ? "Laptop" : "product-" + random.nextInt(200);
+            int bucket = detector.observe(product, "order-" + i);
+            unsalted[partition(product)]++;
+            salted[partition(bucket < 0 ? product : HotKeyDetector.saltedKey(product, bucket))]++;
+        }
+
+        double hottestBefore = (double) Arrays.stream(unsalted).max().orElseThrow() / ORDERS;
+        double hottestAfter = (double) Arrays.stream(salted).max().orElseThrow() / ORDERS;
+        assertThat(hottestBefore).isGreaterThan(0.5);
+        assertThat(hottestAfter).isLessThan(0.3);
+    }
+
+    @Test
+    void hotProductCoolsOffAfterDecay() {
+        HotKeyDetector detector = new HotKeyDetector(0.05, 200, 10_000, 8);
+        for (int i = 0; i < 50_000; i++) {
+            detector.observe(i % 2 == 0 ? "Laptop" : "product-" + (i % 200), "order-" + i);
+        }
+        assertThat(detector.observe("Laptop", "order-hot")).isNotNegative();
+
+        Random random = new Random(3);
+        for (int i = 0; i < 60_000; i++) {
+            detector.observe("product-" + random.nextInt(200), "later-" + i);
+        }
+        assertThat(detector.observe("Laptop", "order-cold")).isEqualTo(-1);
+    }
+
+    @Test
+    void disabledDetectorNeverSalts() {
+        HotKeyDetector detector = new HotKeyDetector(Double.POSITIVE_INFINITY, 200, 10_000, 8);
+        for (int i = 0; i < 50_000; i++) {
+            assertThat(detector.observe("Laptop", "order-" + i)).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void saltedKeysMapBackToTheProduct() {
+        String key = HotKeyDetector.saltedKey("Laptop", 3);
+        assertThat(HotKeyDetector.isSalted(key)).isTrue();
+        assertThat(HotKeyDetector.unsalted(key)).isEqualTo("Laptop");
+        assertThat(HotKeyDetector.isSalted("Laptop")).isFalse();
+        assertThat(HotKeyDetector.unsalted("Laptop")).isEqualTo("Laptop");
+        assertThatThrownBy(() -> new HotKeyDetector(0.05, 200, 10_000, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Same as the default partitioner for the repartition topic's String keys
+    private static int partition(String key) {
+        return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % PARTITIONS;
+    }
+}
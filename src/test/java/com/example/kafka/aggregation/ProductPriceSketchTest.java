@@ -0,0 +1,94 @@
+package com.example.kafka.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class ProductPriceSketchTest {
+
+    @Test
+    void quantilesStayWithinRelativeAccuracy() {
+        Random random = new Random(42);
+        ProductPriceSketch sketch = new ProductPriceSketch();
+        long[] prices = new long[50_000];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = 1_000 + random.nextInt(99_000);
+            sketch.add(prices[i], 1, "order-" + i);
+        }
+        Arrays.sort(prices);
+
+        for (double q : new double[] { 0.5, 0.95, 0.99 }) {
+            double exact = prices[(int) (q * (prices.length - 1))];
+            assertThat(sketch.quantile(q)).isCloseTo(exact, within(exact * 2 * ProductPriceSketch.RELATIVE_ACCURACY));
+        }
+        assertThat(sketch.distinctOrders()).isCloseTo(50_000L, within(2_500L));
+    }
+
+    @Test
+    void mergeMatchesSingleSketch() {
+        ProductPriceSketch all = new ProductPriceSketch();
+        ProductPriceSketch left = new ProductPriceSketch();
+        ProductPriceSketch right = new ProductPriceSketch();
+        for (int i = 0; i < 1_000; i++) {
+            all.add(i + 1, 1, "order-" + i);
+            (i % 2 == 0 ? left : right).add(i + 1, 1, "order-" + i);
+        }
+
+        ProductPriceSketch merged = left.merge(right);
+
+        assertThat(merged.getCount()).isEqualTo(all.getCount());
+        assertThat(merged.getSum()).isEqualTo(all.getSum());
+        assertThat(merged.quantile(0.95)).isEqualTo(all.quantile(0.95));
+        assertThat(merged.distinctOrders()).isEqualTo(all.distinctOrders());
+    }
+
+    @Test
+    void serializationRoundTrips() {
+        ProductPriceSketch sketch = new ProductPriceSketch();
+        sketch.add(0, 1, "free");
+        for (int i = 0; i < 200; i++) {
+            sketch.add(1_000 + i, 2, "order-" + i);
+        }
+
+        ProductPriceSketch restored = ProductPriceSketch.fromBytes(sketch.toBytes());
+
+        assertThat(restored.getCount()).isEqualTo(sketch.getCount());
+        assertThat(restored.getQuantity()).isEqualTo(401);
+        assertThat(restored.getSum()).isEqualTo(sketch.getSum());
+        assertThat(restored.getMax()).isEqualTo(1_199);
+        assertThat(restored.getAverage()).isEqualTo(sketch.getAverage());
+        assertThat(restored.quantile(0.5)).isEqualTo(sketch.quantile(0.5));
+        assertThat(restored.quantile(0.0)).isEqualTo(0.0);
+        assertThat(restored.distinctOrders()).isEqualTo(sketch.distinctOrders());
+    }
+
+    @Test
+    void readsLegacySumCountAggregates() {
+        ProductPriceSketch restored = ProductPriceSketch.fromBytes("250.5,3".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(restored.getCount()).isEqualTo(3);
+        assertThat(restored.getSum()).isEqualTo(25_050);
+        assertThat(restored.getMin()).isEqualTo(8_350);
+        assertThat(restored.quantile(0.5)).isEqualTo(8_350.0);
+        assertThat(ProductPriceSketch.fromBytes(restored.toBytes()).getSum()).isEqualTo(25_050);
+        assertThat(ProductPriceSketch.fromBytes("0,0".getBytes(StandardCharsets.UTF_8)).getCount()).isZero();
+    }
+
+    @Test
+    void sumsAreExactAndOverflowFails() {
+        ProductPriceSketch sketch = new ProductPriceSketch();
+        for (int i = 0; i < 1_000_000; i++) {
+            sketch.add(1, 1, null);
+        }
+        assertThat(sketch.getSum()).isEqualTo(1_000_000L);
+
+        assertThatThrownBy(() -> sketch.add(Long.MAX_VALUE / 2, 3, "huge"))
+                .isInstanceOf(ArithmeticException.class);
+    }
+}
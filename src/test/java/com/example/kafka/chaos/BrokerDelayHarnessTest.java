@@ -0,0 +1,76 @@
+package com.example.kafka.chaos;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends a burst of orders to an embedded broker with and without the simulated broker delay, measuring
+ * throughput and the time send() spends blocked on a full buffer. Shows the backpressure the order path
+ * sees when the cluster slows down. Takes several seconds, so it only runs with -Dchaos.harness=true.
+ */
+@EnabledIfSystemProperty(named = "chaos.harness", matches = "true")
+class BrokerDelayHarnessTest {
+
+    private static final String TOPIC = "chaos-harness";
+    private static final int RECORDS = 200;
+    private static final long DELAY_MS = 10;
+
+    private static EmbeddedKafkaBroker broker;
+
+    @BeforeAll
+    static void startBroker() {
+        broker = new EmbeddedKafkaKraftBroker(1, 1, TOPIC);
+        broker.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopBroker() {
+        broker.destroy();
+    }
+
+    @Test
+    void delayedAcknowledgmentsThrottleTheProducer() throws Exception {
+        long normalNanos = sendBurst(0);
+        long delayedNanos = sendBurst(DELAY_MS);
+
+        String timings = String.format("%d sends: normal=%d ms, broker delay %d ms/record=%d ms", RECORDS,
+                TimeUnit.NANOSECONDS.toMillis(normalNanos), DELAY_MS, TimeUnit.NANOSECONDS.toMillis(delayedNanos));
+        assertThat(delayedNanos).as(timings)
+                .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(RECORDS * DELAY_MS));
+        assertThat(delayedNanos).as(timings).isGreaterThan(normalNanos);
+    }
+
+    // Time until every record of the burst is acknowledged
+    private static long sendBurst(long delayMs) throws Exception {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG, BrokerDelayInterceptor.class.getName());
+        props.put(BrokerDelayInterceptor.DELAY_MS_CONFIG, delayMs);
+
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(props)) {
+            producer.send(new ProducerRecord<>(TOPIC, "warm-up", "warm-up")).get();
+            long start = System.nanoTime();
+            for (int i = 0; i < RECORDS; i++) {
+                producer.send(new ProducerRecord<>(TOPIC, "order-" + i, "order-" + i));
+            }
+            producer.flush();
+            return System.nanoTime() - start;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.kafka.chaos;
+
+import com.example.kafka.avro.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FaultInjectorTest {
+
+    private static final FaultProfile EVERYTHING_FAILS = new FaultProfile(1.0, 0, 0.0, Set.of(), Set.of());
+
+    @Test
+    void disabledInjectorNeverInterferes() {
+        FaultInjector injector = new FaultInjector(false, EVERYTHING_FAILS, new SimpleMeterRegistry(), () -> 0.0);
+
+        assertThatCode(() -> injector.inject(FaultInjector.ORDER_CONSUMER, order("Laptop"))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void failsAtTheConfiguredRate() {
+        Random random = new Random(11);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FaultInjector injector = new FaultInjector(true, new FaultProfile(0.2, 0, 0.0, Set.of(), Set.of()),
+                registry, random::nextDouble);
+
+        int failures = 0;
+        for (int i = 0; i < 10_000; i++) {
+            try {
+                injector.inject(FaultInjector.ORDER_CONSUMER, order("Laptop"));
+            } catch (InjectedFaultException e) {
+                failures++;
+            }
+        }
+        assertThat(failures).isBetween(1_800, 2_200);
+        assertThat(registry.counter("orders.chaos.injected", "hop", FaultInjector.ORDER_CONSUMER, "fault", "failure")
+                .count()).isEqualTo(failures);
+    }
+
+    @Test
+    void targetsOnlyTheGivenProductsAndHops() {
+        FaultInjector injector = new FaultInjector(true,
+                new FaultProfile(1.0, 0, 0.0, Set.of("Laptop"), Set.of(FaultInjector.RETRY_CONSUMER)),
+                new SimpleMeterRegistry(), () -> 0.0);
+
+        assertThatThrownBy(() -> injector.inject(FaultInjector.RETRY_CONSUMER, order("Laptop")))
+                .isInstanceOf(InjectedFaultException.class);
+        assertThatCode(() -> injector.inject(FaultInjector.RETRY_CONSUMER, order("Phone"))).doesNotThrowAnyException();
+        assertThatCode(() -> injector.inject(FaultInjector.ORDER_CONSUMER, order("Laptop"))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void injectsLatencyWithoutFailing() {
+        FaultInjector injector = new FaultInjector(true, new FaultProfile(0.0, 50, 1.0, Set.of(), Set.of()),
+                new SimpleMeterRegistry(), () -> 0.0);
+
+        long start = System.nanoTime();
+        injector.inject(FaultInjector.ORDER_CONSUMER, order("Laptop"));
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(50_000_000L);
+    }
+
+    @Test
+    void profileChangesApplyToTheNextOrder() {
+        FaultInjector injector = new FaultInjector(true, EVERYTHING_FAILS, new SimpleMeterRegistry(), () -> 0.5);
+        assertThatThrownBy(() -> injector.inject(FaultInjector.ORDER_CONSUMER, order("Laptop")))
+                .isInstanceOf(InjectedFaultException.class);
+
+        injector.setProfile(new FaultProfile(0.0, 0, 0.0, Set.of(), Set.of()));
+        assertThatCode(() -> injector.inject(FaultInjector.ORDER_CONSUMER, order("Laptop"))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void rejectsInvalidProfiles() {
+        assertThatThrownBy(() -> new FaultProfile(1.5, 0, 0.0, Set.of(), Set.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new FaultProfile(0.1, -1, 0.0, Set.of(), Set.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(FaultInjector.toSet(new String[] { "", " Laptop " })).containsExactly("Laptop");
+    }
+
+    private static Order order(String product) {
+        return Order.newBuilder()
+                .setOrderId("order-1")
+                .setProduct(product)
+                .setPrice(100.0f)
+                .build();
+    }
+}
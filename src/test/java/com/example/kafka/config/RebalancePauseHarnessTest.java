@@ -0,0 +1,175 @@
+package com.example.kafka.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rolling restart of a three-member group against an embedded broker, measuring how long the members that
+ * are not restarting stop consuming (from revocation to their next assignment). Compares the default
+ * eager assignor with the cooperative-sticky, static-membership settings from KafkaConsumerConfig.
+ * Takes tens of seconds, so it only runs with -Drebalance.harness=true.
+ */
+@EnabledIfSystemProperty(named = "rebalance.harness", matches = "true")
+class RebalancePauseHarnessTest {
+
+    private static final String TOPIC = "rebalance-harness";
+    private static final int PARTITIONS = 6;
+    private static final int MEMBERS = 3;
+
+    private static EmbeddedKafkaBroker broker;
+
+    @BeforeAll
+    static void startBroker() {
+        broker = new EmbeddedKafkaKraftBroker(1, PARTITIONS, TOPIC);
+        broker.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopBroker() {
+        broker.destroy();
+    }
+
+    @Test
+    void cooperativeStaticMembersDoNotPauseDuringRollingRestart() throws Exception {
+        long eagerPauseNanos = worstSurvivorPause("eager-group", false);
+        long cooperativePauseNanos = worstSurvivorPause("cooperative-group", true);
+
+        assertThat(eagerPauseNanos)
+                .as("worst survivor pause with eager rebalancing, %d ms", TimeUnit.NANOSECONDS.toMillis(eagerPauseNanos))
+                .isPositive();
+        assertThat(cooperativePauseNanos)
+                .as("worst survivor pause with cooperative static members, %d ms",
+                        TimeUnit.NANOSECONDS.toMillis(cooperativePauseNanos))
+                .isZero();
+    }
+
+    private long worstSurvivorPause(String groupId, boolean cooperativeStatic) throws Exception {
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i++) {
+            members.add(Member.start(consumerProps(groupId, "member-" + i, cooperativeStatic)));
+        }
+        awaitFullAssignment(members);
+        members.forEach(Member::resetPause);
+
+        long worstPause = 0;
+        for (int i = 0; i < MEMBERS; i++) {
+            members.get(i).stop();
+            Thread.sleep(1_000);
+            members.set(i, Member.start(consumerProps(groupId, "member-" + i, cooperativeStatic)));
+            awaitFullAssignment(members);
+            for (int j = 0; j < MEMBERS; j++) {
+                if (j != i) {
+                    worstPause = Math.max(worstPause, members.get(j).maxPauseNanos.get());
+                }
+            }
+            members.forEach(Member::resetPause);
+        }
+        for (Member member : members) {
+            member.stop();
+        }
+        return worstPause;
+    }
+
+    private static Map<String, Object> consumerProps(String groupId, String instanceId, boolean cooperativeStatic) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        if (cooperativeStatic) {
+            KafkaConsumerConfig.addMembershipProps(props, instanceId, 10_000);
+        }
+        return props;
+    }
+
+    private static void awaitFullAssignment(List<Member> members) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (members.stream().mapToInt(member -> member.owned.size()).sum() < PARTITIONS
+                || members.stream().anyMatch(member -> member.owned.isEmpty())) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Group did not settle on a full assignment");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private static final class Member implements ConsumerRebalanceListener {
+
+        private final Set<TopicPartition> owned = ConcurrentHashMap.newKeySet();
+        private final AtomicLong maxPauseNanos = new AtomicLong();
+        private final Thread thread;
+        private volatile boolean running = true;
+        private long revokedAtNanos = -1;
+
+        private Member(Map<String, Object> props) {
+            this.thread = new Thread(() -> {
+                try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props)) {
+                    consumer.subscribe(List.of(TOPIC), this);
+                    while (running) {
+                        consumer.poll(Duration.ofMillis(50));
+                    }
+                }
+            });
+        }
+
+        static Member start(Map<String, Object> props) {
+            Member member = new Member(props);
+            member.thread.start();
+            return member;
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+            owned.clear();
+        }
+
+        void resetPause() {
+            maxPauseNanos.set(0);
+        }
+
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            if (!partitions.isEmpty()) {
+                revokedAtNanos = System.nanoTime();
+            }
+            owned.removeAll(partitions);
+        }
+
+        @Override
+        public void onPartitionsLost(Collection<TopicPartition> partitions) {
+            onPartitionsRevoked(partitions);
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            owned.addAll(partitions);
+            if (revokedAtNanos >= 0) {
+                maxPauseNanos.accumulateAndGet(System.nanoTime() - revokedAtNanos, Math::max);
+                revokedAtNanos = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.kafka.controller;
+
+import com.example.kafka.currency.FxRates;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.converter.json.SpringHandlerInstantiator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderRequestDeserializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    OrderRequestDeserializerTest() {
+        // The same wiring Boot's ObjectMapper uses to construct the deserializer with its FxRates
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("fxRates", new FxRates("USD", new String[] { "EUR:1.08", "JPY:0.0067" }));
+        objectMapper.setHandlerInstantiator(new SpringHandlerInstantiator(beanFactory));
+    }
+
+    @Test
+    void bindsPriceExactlyInMinorUnits() throws Exception {
+        OrderRequest request = objectMapper.readValue("""
+                {"orderId":"o-1","product":"laptop","price":"19.99","quantity":3,"currency":"EUR",
+                 "orderTimestamp":1700000000000,"note":{"ignored":[1,2]}}
+                """, OrderRequest.class);
+
+        assertThat(request.orderId()).isEqualTo("o-1");
+        assertThat(request.priceMinor()).isEqualTo(1_999);
+        assertThat(request.fractionDigits()).isEqualTo(2);
+        assertThat(request.quantity()).isEqualTo(3);
+        assertThat(request.currency()).isEqualTo("EUR");
+        assertThat(request.orderTimestamp()).isEqualTo(1_700_000_000_000L);
+    }
+
+    @Test
+    void defaultsQuantityAndCurrency() throws Exception {
+        OrderRequest request = objectMapper.readValue(
+                "{\"orderId\":\"o-2\",\"product\":\"mouse\",\"price\":25}", OrderRequest.class);
+
+        assertThat(request.priceMinor()).isEqualTo(2_500);
+        assertThat(request.quantity()).isEqualTo(1);
+        assertThat(request.currency()).isEqualTo("USD");
+    }
+
+    @Test
+    void reportsEveryInvalidField() {
+        assertThatThrownBy(() -> objectMapper.readValue(
+                "{\"product\":7,\"price\":\"1.005\",\"quantity\":0}", OrderRequest.class))
+                .isInstanceOfSatisfying(InvalidOrderRequestException.class, e -> assertThat(e.getFieldErrors())
+                        .containsOnlyKeys("orderId", "product", "price", "quantity"));
+    }
+
+    @Test
+    void acceptsAZeroPrice() throws Exception {
+        OrderRequest request = objectMapper.readValue(
+                "{\"orderId\":\"o-3\",\"product\":\"sample\",\"price\":0}", OrderRequest.class);
+
+        assertThat(request.priceMinor()).isZero();
+    }
+
+    @Test
+    void rejectsNegativePricesAndCurrenciesWithoutARate() {
+        assertThatThrownBy(() -> objectMapper.readValue(
+                "{\"orderId\":\"o-4\",\"product\":\"mouse\",\"price\":-1,\"currency\":\"CHF\"}",
+                OrderRequest.class))
+                .isInstanceOfSatisfying(InvalidOrderRequestException.class, e -> assertThat(e.getFieldErrors())
+                        .containsOnlyKeys("currency")
+                        .containsEntry("currency", "is not supported"));
+        assertThatThrownBy(() -> objectMapper.readValue(
+                "{\"orderId\":\"o-5\",\"product\":\"mouse\",\"price\":-1}", OrderRequest.class))
+                .isInstanceOfSatisfying(InvalidOrderRequestException.class, e -> assertThat(e.getFieldErrors())
+                        .containsOnlyKeys("price"));
+    }
+}
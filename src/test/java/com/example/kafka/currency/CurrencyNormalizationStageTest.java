@@ -0,0 +1,46 @@
+package com.example.kafka.currency;
+
+import com.example.kafka.avro.Order;
+import com.example.kafka.pipeline.OrderRejection;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CurrencyNormalizationStageTest {
+
+    private final CurrencyNormalizationStage stage = new CurrencyNormalizationStage(
+            new FxRates("USD", new String[] { "EUR:1.08" }), 100_000_000_000L);
+
+    @Test
+    void rewritesPriceAlongWithPriceMinor() {
+        Order order = order("EUR", 12_345L, 1);
+
+        assertThat(stage.apply(order)).isNull();
+        assertThat(order.getCurrency().toString()).isEqualTo("USD");
+        assertThat(order.getPriceMinor()).isEqualTo(13_333L);
+        assertThat(order.getPrice()).isEqualTo(133.33f);
+        // Already normalized, so a retry passes through unchanged
+        assertThat(stage.apply(order)).isNull();
+        assertThat(order.getPriceMinor()).isEqualTo(13_333L);
+    }
+
+    @Test
+    void rejectsTotalsThatWouldOverflowTheAggregates() {
+        assertThat(stage.apply(order("USD", 100_000_000_000L, 2))).isNotNull();
+        assertThat(stage.apply(order("EUR", Long.MAX_VALUE / 2, 1))).isNotNull();
+        assertThat(stage.apply(order("USD", Long.MAX_VALUE, Integer.MAX_VALUE)))
+                .extracting(OrderRejection::reason)
+                .isEqualTo("order total exceeds 100000000000 minor units of USD");
+    }
+
+    private static Order order(String currency, long priceMinor, int quantity) {
+        return Order.newBuilder()
+                .setOrderId("order-1")
+                .setProduct("Laptop")
+                .setPrice(0.0f)
+                .setCurrency(currency)
+                .setPriceMinor(priceMinor)
+                .setQuantity(quantity)
+                .build();
+    }
+}
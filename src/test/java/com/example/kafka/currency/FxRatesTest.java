@@ -0,0 +1,29 @@
+package com.example.kafka.currency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FxRatesTest {
+
+    private final FxRates fxRates = new FxRates("USD", new String[] { "EUR:1.08", "JPY:0.0067" });
+
+    @Test
+    void convertsMinorUnitsExactly() {
+        assertThat(fxRates.toBaseMinor(12_345, "USD")).isEqualTo(12_345);
+        // 123.45 EUR = 133.326 USD
+        assertThat(fxRates.toBaseMinor(12_345, "EUR")).isEqualTo(13_333);
+        // 1000 JPY has no minor units and is 6.70 USD
+        assertThat(fxRates.toBaseMinor(1_000, "JPY")).isEqualTo(670);
+    }
+
+    @Test
+    void rejectsUnknownCurrencyAndOverflow() {
+        assertThat(fxRates.supports("GBP")).isFalse();
+        assertThatThrownBy(() -> fxRates.toBaseMinor(100, "GBP"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> fxRates.toBaseMinor(Long.MAX_VALUE / 2, "EUR"))
+                .isInstanceOf(ArithmeticException.class);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.kafka.listener;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ListenerLoadMonitorTest {
+
+    @Test
+    void pausedListenerDecaysBelowTheLimit() {
+        ListenerLoadMonitor monitor = new ListenerLoadMonitor(new SimpleMeterRegistry());
+        for (int i = 0; i < 50; i++) {
+            monitor.recordProcessing("order-consumer", 800_000_000L);
+        }
+        assertThat(monitor.getProcessingEwmaNanos("order-consumer")).isGreaterThan(500_000_000L);
+
+        int intervals = 0;
+        while (monitor.getProcessingEwmaNanos("order-consumer") > 50_000_000L) {
+            monitor.decayProcessing("order-consumer");
+            intervals++;
+        }
+        assertThat(intervals).isEqualTo(4);
+    }
+
+    @Test
+    void tracksSendsUntilTheyComplete() {
+        ListenerLoadMonitor monitor = new ListenerLoadMonitor(new SimpleMeterRegistry());
+        CompletableFuture<String> send = monitor.trackSend(new CompletableFuture<>());
+        assertThat(monitor.getInFlightSends()).isEqualTo(1);
+
+        send.completeExceptionally(new IllegalStateException("broker down"));
+        assertThat(monitor.getInFlightSends()).isZero();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.kafka.pipeline;
+
+import com.example.kafka.avro.Order;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderRuleCompilerTest {
+
+    @Test
+    void numericRuleRejectsNegativePrice() {
+        OrderStage rule = OrderRuleCompiler.compile("price >= 0");
+
+        assertThat(rule.apply(order("o-1", "Laptop", 10.0f))).isNull();
+        assertThat(rule.apply(order("o-2", "Laptop", -1.0f)))
+                .extracting(OrderRejection::reason)
+                .isEqualTo("Rule failed: price >= 0");
+    }
+
+    @Test
+    void priceRuleChecksExactMinorPrice() {
+        OrderStage rule = OrderRuleCompiler.compile("price >= 0");
+        Order order = order("o-1", "Laptop", 10.0f);
+        order.setPriceMinor(-1L);
+
+        assertThat(rule.apply(order)).isNotNull();
+        assertThat(OrderRuleCompiler.compile("price < 100000").apply(order("o-2", "Laptop", 999.99f))).isNull();
+    }
+
+    @Test
+    void textRulesCheckBlankAndAllowedValues() {
+        OrderStage notBlank = OrderRuleCompiler.compile("product not-blank");
+        OrderStage allowed = OrderRuleCompiler.compile("product in Laptop|Mouse");
+
+        assertThat(notBlank.apply(order("o-1", " ", 10.0f))).isNotNull();
+        assertThat(allowed.apply(order("o-1", "Mouse", 10.0f))).isNull();
+        assertThat(allowed.apply(order("o-1", "Tablet", 10.0f))).isNotNull();
+    }
+
+    @Test
+    void invalidRulesFailAtCompileTime() {
+        assertThatThrownBy(() -> OrderRuleCompiler.compile("weight > 3"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OrderRuleCompiler.compile("price >="))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Order order(String orderId, String product, float price) {
+        return Order.newBuilder()
+                .setOrderId(orderId)
+                .setProduct(product)
+                .setPrice(price)
+                .build();
+    }
+}
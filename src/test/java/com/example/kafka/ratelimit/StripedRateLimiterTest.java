@@ -0,0 +1,49 @@
+package com.example.kafka.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(-TimeUnit.SECONDS.toNanos(5));
+    private final StripedRateLimiter limiter = new StripedRateLimiter(10, 5, 64, now::get);
+
+    @Test
+    void allowsBurstThenRefillsAtRate() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("client-a", 1)).isZero();
+        }
+        long wait = limiter.tryAcquire("client-a", 1);
+        assertThat(wait).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        now.addAndGet(wait);
+        assertThat(limiter.tryAcquire("client-a", 1)).isZero();
+        assertThat(limiter.tryAcquire("client-a", 1)).isPositive();
+    }
+
+    @Test
+    void chargesPermitsPerRequest() {
+        assertThat(limiter.tryAcquire("client-a", 3)).isZero();
+        assertThat(limiter.tryAcquire("client-a", 3)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void rejectsRequestsAboveTheBurst() {
+        assertThatThrownBy(() -> limiter.tryAcquire("client-b", 6)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> limiter.tryAcquire("client-b", 0)).isInstanceOf(IllegalArgumentException.class);
+        // Nothing was charged, so the full burst is still there
+        assertThat(limiter.tryAcquire("client-b", 5)).isZero();
+    }
+
+    @Test
+    void clientsHaveIndependentBuckets() {
+        assertThat(limiter.tryAcquire("client-a", 5)).isZero();
+        assertThat(limiter.tryAcquire("client-a", 1)).isPositive();
+        assertThat(limiter.tryAcquire("client-b", 1)).isZero();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.kafka.reconcile;
+
+import com.example.kafka.aggregation.AggregateTotals;
+import com.example.kafka.reconcile.ReconciliationLedger.Side;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReconciliationLedgerTest {
+
+    private static final AggregateTotals ONE = new AggregateTotals(1, 2, 100);
+
+    @Test
+    void capturesEachSideAtItsOwnOffset() {
+        ReconciliationLedger ledger = new ReconciliationLedger();
+        ledger.track(0, 10);
+        assertThat(ledger.mark(Side.LISTENER, 0, 12)).isTrue();
+        assertThat(ledger.mark(Side.STREAMS, 0, 14)).isTrue();
+        assertThat(ledger.readLimit(0)).isEqualTo(14);
+
+        for (long offset = 10; offset < 14; offset++) {
+            ledger.record(0, offset, ONE);
+        }
+        ledger.advanceTo(0, 14);
+
+        assertThat(ledger.isCheckpointComplete()).isTrue();
+        assertThat(ledger.expectedAt(Side.LISTENER)).isEqualTo(new AggregateTotals(2, 4, 200));
+        assertThat(ledger.expectedAt(Side.STREAMS)).isEqualTo(new AggregateTotals(4, 8, 400));
+    }
+
+    @Test
+    void nextCheckpointContinuesWithoutRereading() {
+        ReconciliationLedger ledger = new ReconciliationLedger();
+        ledger.track(0, 0);
+        ledger.mark(Side.LISTENER, 0, 1);
+        ledger.mark(Side.STREAMS, 0, 1);
+        ledger.record(0, 0, ONE);
+        ledger.advanceTo(0, 1);
+        assertThat(ledger.isCheckpointComplete()).isTrue();
+
+        ledger.mark(Side.LISTENER, 0, 3);
+        ledger.mark(Side.STREAMS, 0, 1);
+        assertThat(ledger.isCheckpointComplete()).isFalse();
+        assertThat(ledger.position(0)).isEqualTo(1);
+
+        ledger.record(0, 1, ONE);
+        ledger.record(0, 2, AggregateTotals.ZERO);
+        ledger.advanceTo(0, 3);
+
+        assertThat(ledger.isCheckpointComplete()).isTrue();
+        assertThat(ledger.expectedAt(Side.LISTENER)).isEqualTo(new AggregateTotals(2, 4, 200));
+        assertThat(ledger.expectedAt(Side.STREAMS)).isEqualTo(ONE);
+    }
+
+    @Test
+    void skippedOffsetsStillReachTheMark() {
+        ReconciliationLedger ledger = new ReconciliationLedger();
+        ledger.track(0, 0);
+        ledger.mark(Side.LISTENER, 0, 5);
+        ledger.mark(Side.STREAMS, 0, 5);
+        ledger.record(0, 0, ONE);
+        // Offsets 1-4 are transaction markers or compacted away; the consumer position moves past them
+        ledger.advanceTo(0, 5);
+
+        assertThat(ledger.isCheckpointComplete()).isTrue();
+        assertThat(ledger.expectedAt(Side.STREAMS)).isEqualTo(ONE);
+    }
+
+    @Test
+    void refusesMarkBehindWhatWasRead() {
+        ReconciliationLedger ledger = new ReconciliationLedger();
+        ledger.track(0, 20);
+        assertThat(ledger.mark(Side.LISTENER, 0, 19)).isFalse();
+        assertThat(ledger.mark(Side.LISTENER, 0, 20)).isTrue();
+    }
+
+    @Test
+    void capturesASlowerSideBehindWhatWasRead() {
+        ReconciliationLedger ledger = new ReconciliationLedger();
+        ledger.track(0, 10);
+        ledger.mark(Side.LISTENER, 0, 12);
+        ledger.mark(Side.STREAMS, 0, 14);
+        for (long offset = 10; offset < 14; offset++) {
+            ledger.record(0, offset, ONE);
+        }
+        ledger.advanceTo(0, 14);
+        assertThat(ledger.isCheckpointComplete()).isTrue();
+
+        // The listener lags: its next mark is between its previous one and what was read for Streams
+        assertThat(ledger.mark(Side.LISTENER, 0, 13)).isTrue();
+        assertThat(ledger.mark(Side.STREAMS, 0, 16)).isTrue();
+        assertThat(ledger.expectedAt(Side.LISTENER)).isEqualTo(new AggregateTotals(3, 6, 300));
+        ledger.record(0, 14, ONE);
+        ledger.record(0, 15, ONE);
+        ledger.advanceTo(0, 16);
+
+        assertThat(ledger.isCheckpointComplete()).isTrue();
+        assertThat(ledger.expectedAt(Side.STREAMS)).isEqualTo(new AggregateTotals(6, 12, 600));
+        assertThat(ledger.mark(Side.LISTENER, 0, 12)).isFalse();
+    }
+
+    @Test
+    void sumsPartitions() {
+        ReconciliationLedger ledger = new ReconciliationLedger();
+        ledger.track(0, 0);
+        ledger.track(1, 0);
+        for (int partition = 0; partition < 2; partition++) {
+            ledger.mark(Side.LISTENER, partition, 1);
+            ledger.mark(Side.STREAMS, partition, 1);
+        }
+        ledger.record(0, 0, ONE);
+        assertThat(ledger.isCheckpointComplete()).isFalse();
+        ledger.record(1, 0, ONE);
+        ledger.advanceTo(0, 1);
+        ledger.advanceTo(1, 1);
+
+        assertThat(ledger.isCheckpointComplete()).isTrue();
+        assertThat(ledger.expectedAt(Side.LISTENER)).isEqualTo(new AggregateTotals(2, 4, 200));
+    }
+}
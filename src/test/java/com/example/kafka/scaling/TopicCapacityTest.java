@@ -0,0 +1,56 @@
+package com.example.kafka.scaling;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopicCapacityTest {
+
+    private static final TopicPartition P0 = new TopicPartition("orders", 0);
+    private static final TopicPartition P1 = new TopicPartition("orders", 1);
+
+    @Test
+    void computesLagRatesAndDrainTimePerPartition() {
+        OffsetSample previous = new OffsetSample(0, Map.of(P0, 1_000L, P1, 1_000L),
+                Map.of("group", Map.of(P0, 1_000L, P1, 0L)));
+        OffsetSample latest = new OffsetSample(10_000, Map.of(P0, 1_500L, P1, 1_500L),
+                Map.of("group", Map.of(P0, 1_500L, P1, 1_000L)));
+
+        TopicCapacity capacity = TopicCapacity.compute("orders", "group", previous, latest, 1.0);
+
+        assertThat(capacity.partitions()).isEqualTo(2);
+        assertThat(capacity.totalLag()).isEqualTo(500);
+        assertThat(capacity.produceRate()).isEqualTo(100.0);
+
+        PartitionCapacity caughtUp = capacity.partitionDetails().get(0);
+        assertThat(caughtUp.lag()).isZero();
+        assertThat(caughtUp.secondsToDrain()).isZero();
+
+        PartitionCapacity lagging = capacity.partitionDetails().get(1);
+        assertThat(lagging.lag()).isEqualTo(500);
+        assertThat(lagging.consumeRate()).isEqualTo(100.0);
+        // Gaining 50 records/s on a 500 record backlog
+        assertThat(lagging.secondsToDrain()).isEqualTo(10);
+        assertThat(capacity.partitionCapacity()).isEqualTo(100.0);
+    }
+
+    @Test
+    void recommendsPartitionsOnlyFromSaturatedConsumers() {
+        OffsetSample previous = new OffsetSample(0, Map.of(P0, 0L, P1, 0L),
+                Map.of("group", Map.of(P0, 0L, P1, 0L)));
+        OffsetSample caughtUp = new OffsetSample(1_000, Map.of(P0, 100L, P1, 100L),
+                Map.of("group", Map.of(P0, 100L, P1, 100L)));
+        OffsetSample falling = new OffsetSample(1_000, Map.of(P0, 300L, P1, 300L),
+                Map.of("group", Map.of(P0, 100L, P1, 100L)));
+
+        assertThat(TopicCapacity.compute("orders", "group", previous, caughtUp, 1.5).recommendedPartitions())
+                .isEqualTo(2);
+        // 600 records/s produced, 100 records/s per consumer, 1.5x headroom
+        TopicCapacity capacity = TopicCapacity.compute("orders", "group", previous, falling, 1.5);
+        assertThat(capacity.recommendedPartitions()).isEqualTo(9);
+        assertThat(capacity.partitionDetails().get(0).secondsToDrain()).isNull();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.kafka.serde;
+
+import com.example.kafka.avro.Order;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.serializers.AbstractKafkaSchemaSerDeConfig;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaCompatibility;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderSchemaCompatibilityTest {
+
+    private static final String TOPIC = "order-topic";
+
+    private MockSchemaRegistryClient schemaRegistry;
+    private KafkaAvroSerializer serializer;
+    private OrderAvroDeserializer deserializer;
+    private Schema v1Schema;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        schemaRegistry = new MockSchemaRegistryClient();
+        serializer = new KafkaAvroSerializer(schemaRegistry, Map.of(
+                AbstractKafkaSchemaSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, "mock://compatibility-test",
+                AbstractKafkaSchemaSerDeConfig.AUTO_REGISTER_SCHEMAS, true));
+        deserializer = new OrderAvroDeserializer(schemaRegistry);
+        try (InputStream in = getClass().getResourceAsStream("/avro/order-v1.avsc")) {
+            v1Schema = new Schema.Parser().parse(in);
+        }
+    }
+
+    @Test
+    void currentSchemaIsFullyCompatibleWithV1() {
+        assertThat(SchemaCompatibility.checkReaderWriterCompatibility(Order.getClassSchema(), v1Schema).getType())
+                .isEqualTo(SchemaCompatibility.SchemaCompatibilityType.COMPATIBLE);
+        assertThat(SchemaCompatibility.checkReaderWriterCompatibility(v1Schema, Order.getClassSchema()).getType())
+                .isEqualTo(SchemaCompatibility.SchemaCompatibilityType.COMPATIBLE);
+    }
+
+    @Test
+    void v1ProducerIsReadByCurrentConsumer() {
+        GenericRecord v1Order = new GenericData.Record(v1Schema);
+        v1Order.put("orderId", "o-1");
+        v1Order.put("product", "Laptop");
+        v1Order.put("price", 999.5f);
+
+        Order order = deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, v1Order));
+
+        assertThat(order.getOrderId().toString()).isEqualTo("o-1");
+        assertThat(order.getProduct().toString()).isEqualTo("Laptop");
+        assertThat(order.getPrice()).isEqualTo(999.5f);
+        assertThat(order.getOrderTimestamp()).isNull();
+    }
+
+    @Test
+    void currentProducerIsReadByV1Consumer() throws IOException {
+        Order order = Order.newBuilder()
+                .setOrderId("o-2")
+                .setProduct("Mouse")
+                .setPrice(25.0f)
+                .setOrderTimestamp(1_700_000_000_000L)
+                .build();
+        byte[] data = serializer.serialize(TOPIC, order);
+
+        GenericDatumReader<GenericRecord> v1Reader = new GenericDatumReader<>(Order.getClassSchema(), v1Schema);
+        GenericRecord read = v1Reader.read(null, DecoderFactory.get().binaryDecoder(data, 5, data.length - 5, null));
+
+        assertThat(read.get("orderId").toString()).isEqualTo("o-2");
+        assertThat(read.get("price")).isEqualTo(25.0f);
+        assertThat(read.getSchema().getField("orderTimestamp")).isNull();
+        assertThat(deserializer.deserialize(TOPIC, data).getOrderTimestamp()).isEqualTo(1_700_000_000_000L);
+    }
+
+    @Test
+    void readerIsResolvedOncePerWriterSchema() {
+        GenericRecord v1Order = new GenericData.Record(v1Schema);
+        v1Order.put("orderId", "o-3");
+        v1Order.put("product", "Tablet");
+        v1Order.put("price", 500.0f);
+        Order v2Order = Order.newBuilder().setOrderId("o-4").setProduct("Tablet").setPrice(510.0f).build();
+
+        for (int i = 0; i < 100; i++) {
+            deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, v1Order));
+            deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, v2Order));
+        }
+
+        assertThat(deserializer.getCachedReaderCount()).isEqualTo(2);
+    }
+
+    @Test
+    void incompatibleWriterSchemaIsRejected() {
+        Schema incompatible = new Schema.Parser().parse("""
+                {"type":"record","name":"Order","namespace":"com.example.kafka.avro","fields":[
+                  {"name":"orderId","type":"string"},
+                  {"name":"product","type":"string"},
+                  {"name":"price","type":"string"}]}
+                """);
+        GenericRecord record = new GenericData.Record(incompatible);
+        record.put("orderId", "o-5");
+        record.put("product", "Webcam");
+        record.put("price", "cheap");
+        byte[] data = serializer.serialize("incompatible-orders", record);
+
+        assertThatThrownBy(() -> deserializer.deserialize("incompatible-orders", data))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("cannot be read");
+    }
+}
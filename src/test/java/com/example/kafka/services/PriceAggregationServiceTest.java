@@ -0,0 +1,82 @@
+package com.example.kafka.services;
+
+import com.example.kafka.aggregation.AggregateTotals;
+import com.example.kafka.avro.Order;
+import com.example.kafka.currency.FxRates;
+import com.example.kafka.snapshot.AggregationSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PriceAggregationServiceTest {
+
+    private final PriceAggregationService aggregation = new PriceAggregationService(new FxRates("USD", new String[0]));
+
+    @Test
+    void undoAddsBackEveryResetSinceTheLastUndo() {
+        aggregation.addOrder(order(1_000, 2), 0, 0);
+        aggregation.reset();
+        aggregation.addOrder(order(500, 1), 0, 1);
+        aggregation.reset();
+        aggregation.addOrder(order(250, 4), 0, 2);
+
+        assertThat(aggregation.undoReset()).isEqualTo(new AggregateTotals(2, 3, 2_500));
+        assertThat(aggregation.getTotals()).isEqualTo(new AggregateTotals(3, 7, 3_500));
+        assertThat(aggregation.undoReset()).isEqualTo(AggregateTotals.ZERO);
+        assertThat(aggregation.nextOffset(0)).isEqualTo(3);
+    }
+
+    @Test
+    void resetAndUndoMoveTheResetEpoch() {
+        long epoch = aggregation.getResetEpoch();
+        aggregation.undoReset();
+        assertThat(aggregation.getResetEpoch()).isEqualTo(epoch);
+
+        aggregation.addOrder(order(100, 1));
+        aggregation.reset();
+        aggregation.undoReset();
+        assertThat(aggregation.getResetEpoch()).isEqualTo(epoch + 2);
+    }
+
+    @Test
+    void snapshotCoversRetryOffsetsSeparately() {
+        aggregation.addOrder(order(1_000, 2), 0, 4);
+        aggregation.markConsumed(0, 5);
+        aggregation.addRetriedOrder(order(500, 1), 0, 1);
+        aggregation.markRetryConsumed(0, 2);
+
+        AggregationSnapshot snapshot = aggregation.snapshot();
+        assertThat(snapshot.totals()).isEqualTo(new AggregateTotals(2, 3, 2_500));
+        assertThat(snapshot.nextOffsets()).isEqualTo(Map.of(0, 6L));
+        assertThat(snapshot.retryNextOffsets()).isEqualTo(Map.of(0, 3L));
+
+        PriceAggregationService restored = new PriceAggregationService(new FxRates("USD", new String[0]));
+        restored.restore(snapshot);
+        assertThat(restored.nextRetryOffset(0)).isEqualTo(3);
+    }
+
+    @Test
+    void quantityOverflowLeavesTheTotalsUnchanged() {
+        AggregateTotals full = new AggregateTotals(1, Long.MAX_VALUE, 1_000);
+        aggregation.restore(new AggregationSnapshot(0, full, Map.of(), Map.of()));
+
+        assertThatThrownBy(() -> aggregation.addOrder(order(100, 1), 0, 0))
+                .isInstanceOf(ArithmeticException.class);
+        assertThat(aggregation.getTotals()).isEqualTo(full);
+        assertThat(aggregation.nextOffset(0)).isNull();
+    }
+
+    private static Order order(long priceMinor, int quantity) {
+        return Order.newBuilder()
+                .setOrderId("order-1")
+                .setProduct("Laptop")
+                .setPrice(0.0f)
+                .setCurrency("USD")
+                .setPriceMinor(priceMinor)
+                .setQuantity(quantity)
+                .build();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.kafka.snapshot;
+
+import com.example.kafka.aggregation.AggregateTotals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotFileTest {
+
+    private static final int SLOT_BYTES = 256;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void emptyFileHasNoSnapshot() throws Exception {
+        try (SnapshotFile file = new SnapshotFile(dir.resolve("agg.snapshot"), SLOT_BYTES)) {
+            assertThat(file.readLatest()).isEmpty();
+        }
+    }
+
+    @Test
+    void latestSnapshotSurvivesReopen() throws Exception {
+        Path path = dir.resolve("agg.snapshot");
+        AggregationSnapshot second = snapshot(2_000, 7, Map.of(0, 40L, 1, 12L));
+        try (SnapshotFile file = new SnapshotFile(path, SLOT_BYTES)) {
+            file.write(snapshot(1_000, 3, Map.of(0, 10L)));
+            file.write(second);
+        }
+        try (SnapshotFile file = new SnapshotFile(path, SLOT_BYTES)) {
+            assertThat(file.readLatest()).contains(second);
+            AggregationSnapshot third = snapshot(3_000, 9, Map.of(0, 41L, 1, 12L));
+            file.write(third);
+            assertThat(file.readLatest()).contains(third);
+        }
+    }
+
+    @Test
+    void tornWriteFallsBackToPreviousSlot() throws Exception {
+        Path path = dir.resolve("agg.snapshot");
+        AggregationSnapshot first = snapshot(1_000, 3, Map.of(0, 10L));
+        try (SnapshotFile file = new SnapshotFile(path, SLOT_BYTES)) {
+            file.write(first);
+            file.write(snapshot(2_000, 5, Map.of(0, 20L)));
+        }
+        // Second write went to slot 0; corrupt its totals as if the process died mid-write
+        try (RandomAccessFile raw = new RandomAccessFile(path.toFile(), "rw")) {
+            raw.seek(32);
+            raw.writeLong(-1);
+        }
+        try (SnapshotFile file = new SnapshotFile(path, SLOT_BYTES)) {
+            assertThat(file.readLatest()).contains(first);
+        }
+    }
+
+    @Test
+    void rejectsMorePartitionsThanASlotHolds() throws Exception {
+        try (SnapshotFile file = new SnapshotFile(dir.resolve("agg.snapshot"), 64)) {
+            assertThat(file.capacity()).isEqualTo(0);
+            assertThatThrownBy(() -> file.write(snapshot(1_000, 1, Map.of(0, 1L))))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void keepsRetryOffsetsApartFromOrderOffsets() throws Exception {
+        Path path = dir.resolve("agg.snapshot");
+        AggregationSnapshot snapshot = new AggregationSnapshot(1_000, new AggregateTotals(2, 4, 300),
+                Map.of(0, 10L, 1, 12L), Map.of(0, 3L));
+        try (SnapshotFile file = new SnapshotFile(path, SLOT_BYTES)) {
+            file.write(snapshot);
+        }
+        try (SnapshotFile file = new SnapshotFile(path, SLOT_BYTES)) {
+            assertThat(file.readLatest()).contains(snapshot);
+        }
+    }
+
+    @Test
+    void readsVersionOneSlotsWithoutRetryOffsets() throws Exception {
+        Path path = dir.resolve("agg.snapshot");
+        ByteBuffer slot = ByteBuffer.allocate(SLOT_BYTES);
+        slot.putInt(0x41474753).putInt(1).putLong(1).putLong(1_000).putLong(3).putLong(6).putLong(450)
+                .putInt(1).putInt(0).putLong(10);
+        CRC32 crc = new CRC32();
+        crc.update(slot.array(), 0, slot.position());
+        slot.putInt((int) crc.getValue());
+        try (RandomAccessFile raw = new RandomAccessFile(path.toFile(), "rw")) {
+            raw.seek(SLOT_BYTES);
+            raw.write(slot.array());
+        }
+        try (SnapshotFile file = new SnapshotFile(path, SLOT_BYTES)) {
+            assertThat(file.readLatest()).contains(snapshot(1_000, 3, Map.of(0, 10L)));
+        }
+    }
+
+    private static AggregationSnapshot snapshot(long takenAtMs, long count, Map<Integer, Long> offsets) {
+        return new AggregationSnapshot(takenAtMs, new AggregateTotals(count, count * 2, count * 150), offsets,
+                Map.of());
+    }
+}